@@ -22,6 +22,7 @@ import com.gitee.starblues.core.descriptor.InsidePluginDescriptor;
 import com.gitee.starblues.core.descriptor.PluginDescriptorLoader;
 import com.gitee.starblues.core.descriptor.decrypt.EmptyPluginDescriptorDecrypt;
 import com.gitee.starblues.core.launcher.plugin.PluginInteractive;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupTrace;
 import com.gitee.starblues.integration.AutoIntegrationConfiguration;
 import com.gitee.starblues.integration.IntegrationConfiguration;
 import com.gitee.starblues.spring.MainApplicationContext;
@@ -37,7 +38,7 @@ import java.nio.file.Paths;
 /**
  * 插件自己的Interactive
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class PluginOneselfInteractive implements PluginInteractive {
 
@@ -46,6 +47,7 @@ public class PluginOneselfInteractive implements PluginInteractive {
     private final IntegrationConfiguration configuration;
     private final InvokeSupperCache invokeSupperCache;
     private final OpExtractFactory opExtractFactory;
+    private final PluginStartupTrace startupTrace = new PluginStartupTrace();
 
     public PluginOneselfInteractive(){
         this.pluginDescriptor = createPluginDescriptor();
@@ -80,6 +82,11 @@ public class PluginOneselfInteractive implements PluginInteractive {
         return opExtractFactory;
     }
 
+    @Override
+    public PluginStartupTrace getStartupTrace() {
+        return startupTrace;
+    }
+
     private InsidePluginDescriptor createPluginDescriptor(){
         EmptyPluginDescriptorDecrypt descriptorDecrypt = new EmptyPluginDescriptorDecrypt();
         try (PluginDescriptorLoader pluginDescriptorLoader = new DevPluginDescriptorLoader(descriptorDecrypt)){
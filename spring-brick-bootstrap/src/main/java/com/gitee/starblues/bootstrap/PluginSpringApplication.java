@@ -18,6 +18,7 @@ package com.gitee.starblues.bootstrap;
 
 import com.gitee.starblues.bootstrap.processor.ProcessorContext;
 import com.gitee.starblues.bootstrap.processor.SpringPluginProcessor;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupTrace;
 import com.gitee.starblues.spring.ApplicationContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +35,7 @@ import org.springframework.core.io.ResourceLoader;
 /**
  * 插件SpringApplication实现
  * @author starBlues
- * @version 3.0.3
+ * @version 3.0.4
  */
 public class PluginSpringApplication extends SpringApplication {
 
@@ -100,10 +101,17 @@ public class PluginSpringApplication extends SpringApplication {
 
     @Override
     public ConfigurableApplicationContext run(String... args) {
+        PluginStartupTrace startupTrace = getStartupTrace();
+        PluginStartupTrace.Phase runPhase = startupTrace.begin("application.run");
         try {
             processorContext.setApplicationContext(this.applicationContext);
             PluginContextHolder.initialize(processorContext);
-            pluginProcessor.initialize(processorContext);
+            PluginStartupTrace.Phase phase = startupTrace.begin("processor.initialize");
+            try {
+                pluginProcessor.initialize(processorContext);
+            } finally {
+                phase.end();
+            }
             return super.run(args);
         } catch (Exception e) {
             pluginProcessor.failure(processorContext);
@@ -111,14 +119,36 @@ public class PluginSpringApplication extends SpringApplication {
                     processorContext.getPluginDescriptor().getPluginId(),
                     e.getMessage(), e);
             throw new RuntimeException(e);
+        } finally {
+            runPhase.end();
         }
     }
 
     @Override
     protected void refresh(ConfigurableApplicationContext applicationContext) {
-        pluginProcessor.refreshBefore(processorContext);
-        super.refresh(applicationContext);
-        pluginProcessor.refreshAfter(processorContext);
+        PluginStartupTrace startupTrace = getStartupTrace();
+        PluginStartupTrace.Phase phase = startupTrace.begin("processor.refreshBefore");
+        try {
+            pluginProcessor.refreshBefore(processorContext);
+        } finally {
+            phase.end();
+        }
+        phase = startupTrace.begin("context.refresh");
+        try {
+            super.refresh(applicationContext);
+        } finally {
+            phase.end();
+        }
+        phase = startupTrace.begin("processor.refreshAfter");
+        try {
+            pluginProcessor.refreshAfter(processorContext);
+        } finally {
+            phase.end();
+        }
+    }
+
+    private PluginStartupTrace getStartupTrace(){
+        return processorContext.getPluginInteractive().getStartupTrace();
     }
 
 }
@@ -22,6 +22,7 @@ import com.gitee.starblues.bootstrap.processor.ProcessorContext;
 import com.gitee.starblues.bootstrap.processor.SpringPluginProcessor;
 import com.gitee.starblues.bootstrap.realize.AutowiredTypeDefiner;
 import com.gitee.starblues.core.launcher.plugin.PluginInteractive;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupTrace;
 import com.gitee.starblues.spring.SpringPluginHook;
 
 import java.util.ArrayList;
@@ -31,7 +32,7 @@ import java.util.List;
  * 插件引导抽象类。插件入口需集成本抽象类
  * @author starBlues
  * @since 3.0.0
- * @version 3.0.3
+ * @version 3.0.4
  */
 public abstract class SpringPluginBootstrap {
 
@@ -55,15 +56,23 @@ public abstract class SpringPluginBootstrap {
 
     private SpringPluginHook start(Class<?>[] primarySources, String[] args){
         createPluginInteractive();
-        addCustomSpringPluginProcessor();
-        SpringPluginProcessor pluginProcessor = new ComposeSpringPluginProcessor(runMode, customPluginProcessors);
-        ProcessorContext processorContext = new DefaultProcessorContext(
-                runMode, this, pluginInteractive, this.getClass()
-        );
-        PluginSpringApplication springApplication = new PluginSpringApplication(
-                pluginProcessor,
-                processorContext,
-                primarySources);
+        PluginStartupTrace.Phase phase = pluginInteractive.getStartupTrace().begin("application.create");
+        SpringPluginProcessor pluginProcessor;
+        ProcessorContext processorContext;
+        PluginSpringApplication springApplication;
+        try {
+            addCustomSpringPluginProcessor();
+            pluginProcessor = new ComposeSpringPluginProcessor(runMode, customPluginProcessors);
+            processorContext = new DefaultProcessorContext(
+                    runMode, this, pluginInteractive, this.getClass()
+            );
+            springApplication = new PluginSpringApplication(
+                    pluginProcessor,
+                    processorContext,
+                    primarySources);
+        } finally {
+            phase.end();
+        }
         springApplication.run(args);
         return new DefaultSpringPluginHook(pluginProcessor, processorContext);
     }
@@ -25,6 +25,7 @@ import com.gitee.starblues.bootstrap.processor.web.PluginStaticResourceProcessor
 import com.gitee.starblues.bootstrap.processor.web.thymeleaf.PluginThymeleafProcessor;
 import com.gitee.starblues.bootstrap.utils.AnnotationUtils;
 import com.gitee.starblues.bootstrap.utils.ProcessorUtils;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupTrace;
 import com.gitee.starblues.utils.OrderUtils;
 import com.gitee.starblues.utils.ObjectUtils;
 import com.gitee.starblues.utils.OrderPriority;
@@ -38,7 +39,7 @@ import java.util.stream.Collectors;
 /**
  * 组合的处理器
  * @author starBlues
- * @version 3.0.3
+ * @version 3.0.4
  */
 public class ComposeSpringPluginProcessor implements SpringPluginProcessor {
 
@@ -80,33 +81,45 @@ public class ComposeSpringPluginProcessor implements SpringPluginProcessor {
                 })
                 .sorted(OrderUtils.orderPriority(SpringPluginProcessor::order))
                 .collect(Collectors.toList());
+        PluginStartupTrace startupTrace = context.getPluginInteractive().getStartupTrace();
         for (SpringPluginProcessor processor : this.processors) {
+            PluginStartupTrace.Phase phase = startupTrace.begin(getPhaseName(processor, "initialize"));
             try {
                 processor.initialize(context);
             } catch (Throwable e){
                 processException(processor, "initialize", e, true);
+            } finally {
+                phase.end();
             }
         }
     }
 
     @Override
     public void refreshBefore(ProcessorContext context) throws ProcessorException {
+        PluginStartupTrace startupTrace = context.getPluginInteractive().getStartupTrace();
         for (SpringPluginProcessor processor : processors) {
+            PluginStartupTrace.Phase phase = startupTrace.begin(getPhaseName(processor, "refreshBefore"));
             try {
                 processor.refreshBefore(context);
             } catch (Throwable e){
                 processException(processor, "refreshBefore", e, true);
+            } finally {
+                phase.end();
             }
         }
     }
 
     @Override
     public void refreshAfter(ProcessorContext context) throws ProcessorException {
+        PluginStartupTrace startupTrace = context.getPluginInteractive().getStartupTrace();
         for (SpringPluginProcessor processor : processors) {
+            PluginStartupTrace.Phase phase = startupTrace.begin(getPhaseName(processor, "refreshAfter"));
             try {
                 processor.refreshAfter(context);
             } catch (Throwable e){
                 processException(processor, "refreshAfter", e, true);
+            } finally {
+                phase.end();
             }
         }
     }
@@ -178,6 +191,14 @@ public class ComposeSpringPluginProcessor implements SpringPluginProcessor {
         ProcessorUtils.add(processors, PluginSpringDocControllerProcessor::new);
     }
 
+    private String getPhaseName(SpringPluginProcessor processor, String executeType){
+        String name = processor.getClass().getSimpleName();
+        if(name.isEmpty()){
+            name = processor.getClass().getName();
+        }
+        return name + "." + executeType;
+    }
+
     private void processException(SpringPluginProcessor processor, String executeType,
                                   Throwable e, boolean isThrow) throws ProcessorException{
         String error =  "Processor[" + processor.getClass().getName() + "] execute[" + executeType + "] failure : "
@@ -18,6 +18,7 @@ package com.gitee.starblues.bootstrap.processor;
 
 import com.gitee.starblues.annotation.Caller;
 import com.gitee.starblues.annotation.Supplier;
+import com.gitee.starblues.bootstrap.processor.invoke.CopyInvokeTransfer;
 import com.gitee.starblues.bootstrap.processor.invoke.InvokeBeanFactory;
 import com.gitee.starblues.bootstrap.processor.scanner.PluginClassPathBeanDefinitionScanner;
 import com.gitee.starblues.spring.ApplicationContext;
@@ -40,7 +41,7 @@ import java.util.Set;
 /**
  * 反射调用其他插件的处理者
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class InvokeOtherPluginProcessor implements SpringPluginProcessor {
 
@@ -67,6 +68,12 @@ public class InvokeOtherPluginProcessor implements SpringPluginProcessor {
         });
     }
 
+    @Override
+    public void close(ProcessorContext context) throws ProcessorException {
+        // 移除与当前插件的类相关的字段复制器
+        CopyInvokeTransfer.evict(context.getClassLoader());
+    }
+
     @Override
     public ProcessorContext.RunMode runMode() {
         return ProcessorContext.RunMode.ALL;
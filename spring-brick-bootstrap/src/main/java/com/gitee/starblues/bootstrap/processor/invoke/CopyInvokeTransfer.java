@@ -0,0 +1,548 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gitee.starblues.bootstrap.processor.invoke;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按字段复制进行传递转换.
+ * 源类型和目标类型结构相同(字段名称相同)时, 为每对类型生成一个基于 MethodHandle 的字段复制器并缓存,
+ * 集合、Map、数组、枚举递归转换. 只复制 json 序列化时可见的字段(public 字段或者有 public getter/setter 的字段).
+ * 与 json 转换一致, 转换结果不与源对象共享可变对象: 只有基本类型及其包装类型、String、枚举、java.time 等不可变类型直接传递,
+ * 集合、Map、数组总是复制为新的实例.
+ * 以下情况回退到 fallback 转换, 保持与 json 转换一致:
+ * 没有无参构造器、使用了 jackson 注解、存在没有对应字段的 getter/setter、
+ * 需要转换为 Object 或者接口等非具体类型、对象层级超过 {@link #MAX_DEPTH}(例如循环引用)
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class CopyInvokeTransfer implements InvokeTransfer{
+
+    /**
+     * 按字段复制的最大对象层级, 超过时回退到 fallback 转换
+     */
+    public static final int MAX_DEPTH = 64;
+
+    private static final String JACKSON_ANNOTATION_PACKAGE = "com.fasterxml.jackson.";
+
+    private static final String JAVA_TIME_PACKAGE = "java.time.";
+
+    /**
+     * 可直接传递的不可变类型
+     */
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(
+            Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, String.class, BigInteger.class, BigDecimal.class, UUID.class
+    ));
+
+    /**
+     * 字段复制器缓存. 以源类型和目标类型为键. 复制器中的方法句柄引用了源类型和目标类型,
+     * 插件关闭时通过 {@link #evict(ClassLoader)} 移除与该插件相关的复制器, 不会阻止插件类加载器被回收
+     */
+    private static final Map<CopierKey, BeanCopier> COPIER_CACHE = new ConcurrentHashMap<>();
+
+    private final InvokeTransfer fallback;
+
+    public CopyInvokeTransfer() {
+        this(new JsonInvokeTransfer());
+    }
+
+    public CopyInvokeTransfer(InvokeTransfer fallback) {
+        this.fallback = Objects.requireNonNull(fallback, "fallback can't be null");
+    }
+
+    @Override
+    public Object transfer(Object source, Type targetType) throws Exception {
+        return transfer(source, targetType, 0);
+    }
+
+    private Object transfer(Object source, Type targetType, int depth) throws Exception {
+        if(source == null){
+            return null;
+        }
+        if(depth > MAX_DEPTH){
+            // 层级过深或者存在循环引用
+            return fallback.transfer(source, targetType);
+        }
+        Class<?> targetClass = wrap(getRawClass(targetType));
+        Class<?> sourceClass = source.getClass();
+        if(isBeanType(sourceClass) && !isConcreteType(targetClass)){
+            // 目标为 Object 或者接口等类型时, 不能直接传递其他类加载器中的 bean
+            return fallback.transfer(source, targetType);
+        }
+        if(isImmutableType(sourceClass) && targetClass.isInstance(source)){
+            // 不可变类型, 直接传递
+            return source;
+        }
+        if(targetClass.isArray() && sourceClass.isArray()){
+            return transferArray(source, targetType, targetClass, depth);
+        }
+        if(Collection.class.isAssignableFrom(targetClass) && source instanceof Collection){
+            return transferCollection((Collection<?>) source, targetType, targetClass, depth);
+        }
+        if(Map.class.isAssignableFrom(targetClass) && source instanceof Map){
+            return transferMap((Map<?, ?>) source, targetType, targetClass, depth);
+        }
+        if(targetClass.isEnum() && source instanceof Enum){
+            return transferEnum((Enum<?>) source, targetClass);
+        }
+        if(isBeanType(sourceClass) && isBeanType(targetClass)){
+            BeanCopier beanCopier = getBeanCopier(sourceClass, targetClass);
+            if(beanCopier != null){
+                return beanCopier.copy(this, source, depth);
+            }
+        }
+        return fallback.transfer(source, targetType);
+    }
+
+    private Object transferArray(Object source, Type targetType, Class<?> targetClass, int depth)
+            throws Exception {
+        Type componentType;
+        if(targetType instanceof GenericArrayType){
+            componentType = ((GenericArrayType) targetType).getGenericComponentType();
+        } else {
+            componentType = targetClass.getComponentType();
+        }
+        int length = Array.getLength(source);
+        Object target = Array.newInstance(targetClass.getComponentType(), length);
+        if(targetClass == source.getClass() && targetClass.getComponentType().isPrimitive()){
+            System.arraycopy(source, 0, target, 0, length);
+            return target;
+        }
+        for (int i = 0; i < length; i++) {
+            Array.set(target, i, transfer(Array.get(source, i), componentType, depth + 1));
+        }
+        return target;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object transferCollection(Collection<?> source, Type targetType, Class<?> targetClass, int depth)
+            throws Exception {
+        Collection<Object> target = (Collection<Object>) newContainer(targetClass);
+        if(target == null){
+            return fallback.transfer(source, targetType);
+        }
+        Type elementType = getTypeArgument(targetType, 0);
+        for (Object element : source) {
+            target.add(transfer(element, elementType, depth + 1));
+        }
+        return target;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object transferMap(Map<?, ?> source, Type targetType, Class<?> targetClass, int depth)
+            throws Exception {
+        Type keyType = getTypeArgument(targetType, 0);
+        Type valueType = getTypeArgument(targetType, 1);
+        Map<Object, Object> target = (Map<Object, Object>) newContainer(targetClass);
+        if(target == null){
+            return fallback.transfer(source, targetType);
+        }
+        for (Map.Entry<?, ?> entry : source.entrySet()) {
+            target.put(transfer(entry.getKey(), keyType, depth + 1),
+                    transfer(entry.getValue(), valueType, depth + 1));
+        }
+        return target;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object transferEnum(Enum<?> source, Class<?> targetClass){
+        return Enum.valueOf((Class<? extends Enum>) targetClass, source.name());
+    }
+
+    /**
+     * 移除源类型或者目标类型由指定类加载器加载的字段复制器. 插件关闭时调用
+     * @param classLoader 插件类加载器
+     */
+    public static void evict(ClassLoader classLoader){
+        if(classLoader == null){
+            return;
+        }
+        COPIER_CACHE.keySet().removeIf(key -> key.sourceClass.getClassLoader() == classLoader
+                || key.targetClass.getClassLoader() == classLoader);
+    }
+
+    private static BeanCopier getBeanCopier(Class<?> sourceClass, Class<?> targetClass){
+        BeanCopier beanCopier = COPIER_CACHE.computeIfAbsent(new CopierKey(sourceClass, targetClass),
+                key -> BeanCopier.create(sourceClass, targetClass));
+        return beanCopier == BeanCopier.UNSUPPORTED ? null : beanCopier;
+    }
+
+    /**
+     * 是否为可直接传递的不可变类型
+     * @param aClass 类
+     * @return boolean
+     */
+    private static boolean isImmutableType(Class<?> aClass){
+        if(aClass.isPrimitive() || aClass.isEnum() || IMMUTABLE_TYPES.contains(aClass)){
+            return true;
+        }
+        if(Enum.class.isAssignableFrom(aClass)){
+            // 带有方法体的枚举常量
+            return true;
+        }
+        return aClass.getClassLoader() == null && aClass.getName().startsWith(JAVA_TIME_PACKAGE);
+    }
+
+    /**
+     * 是否为可按字段复制的 bean 类型. jdk 自身的类(由启动类加载器加载)不按字段复制
+     * @param aClass 类
+     * @return boolean
+     */
+    private static boolean isBeanType(Class<?> aClass){
+        return !aClass.isPrimitive() && !aClass.isArray() && !aClass.isInterface() && !aClass.isEnum()
+                && !Modifier.isAbstract(aClass.getModifiers())
+                && aClass.getClassLoader() != null
+                && !Collection.class.isAssignableFrom(aClass) && !Map.class.isAssignableFrom(aClass);
+    }
+
+    /**
+     * 是否为可直接实例化的具体类型
+     * @param aClass 类
+     * @return boolean
+     */
+    private static boolean isConcreteType(Class<?> aClass){
+        return aClass != Object.class && !aClass.isInterface() && !Modifier.isAbstract(aClass.getModifiers());
+    }
+
+    /**
+     * 是否为可按字段复制的字段类型. 类型中(包括泛型参数和数组元素)存在 Object、接口等非具体类型时返回 false
+     * @param type 字段类型
+     * @return boolean
+     */
+    private static boolean isCopyableType(Type type){
+        Class<?> rawClass = getRawClass(type);
+        if(rawClass.isPrimitive()){
+            return true;
+        }
+        if(rawClass.isArray()){
+            if(type instanceof GenericArrayType){
+                return isCopyableType(((GenericArrayType) type).getGenericComponentType());
+            }
+            return isCopyableType(rawClass.getComponentType());
+        }
+        if(Collection.class.isAssignableFrom(rawClass) || Map.class.isAssignableFrom(rawClass)){
+            if(!(type instanceof ParameterizedType)){
+                return false;
+            }
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if(!isCopyableType(argument)){
+                    return false;
+                }
+            }
+            return true;
+        }
+        return isConcreteType(rawClass);
+    }
+
+    private static Object newContainer(Class<?> targetClass){
+        if(!targetClass.isInterface() && !Modifier.isAbstract(targetClass.getModifiers())){
+            try {
+                Constructor<?> constructor = targetClass.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor.newInstance();
+            } catch (Exception e){
+                return null;
+            }
+        }
+        if(targetClass.isAssignableFrom(ArrayList.class)){
+            return new ArrayList<>();
+        }
+        if(targetClass.isAssignableFrom(LinkedHashSet.class)){
+            return new LinkedHashSet<>();
+        }
+        if(targetClass.isAssignableFrom(TreeSet.class)){
+            return new TreeSet<>();
+        }
+        if(targetClass.isAssignableFrom(ArrayDeque.class)){
+            return new ArrayDeque<>();
+        }
+        if(targetClass.isAssignableFrom(LinkedHashMap.class)){
+            return new LinkedHashMap<>();
+        }
+        if(targetClass.isAssignableFrom(TreeMap.class)){
+            return new TreeMap<>();
+        }
+        if(targetClass.isAssignableFrom(ConcurrentHashMap.class)){
+            return new ConcurrentHashMap<>();
+        }
+        return null;
+    }
+
+    private static Type getTypeArgument(Type type, int index){
+        if(type instanceof ParameterizedType){
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if(index < arguments.length){
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    static Class<?> getRawClass(Type type){
+        if(type instanceof Class){
+            return (Class<?>) type;
+        } else if(type instanceof ParameterizedType){
+            return getRawClass(((ParameterizedType) type).getRawType());
+        } else if(type instanceof GenericArrayType){
+            Class<?> componentClass = getRawClass(((GenericArrayType) type).getGenericComponentType());
+            return Array.newInstance(componentClass, 0).getClass();
+        } else if(type instanceof WildcardType){
+            return getRawClass(((WildcardType) type).getUpperBounds()[0]);
+        } else if(type instanceof TypeVariable){
+            return getRawClass(((TypeVariable<?>) type).getBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    private static Class<?> wrap(Class<?> aClass){
+        if(!aClass.isPrimitive()){
+            return aClass;
+        }
+        return MethodType.methodType(aClass).wrap().returnType();
+    }
+
+    /**
+     * 两个类型之间的字段复制器. 按字段名称匹配, 匹配不到的字段忽略
+     */
+    private static class BeanCopier {
+
+        private static final BeanCopier UNSUPPORTED = new BeanCopier(null, null);
+
+        private final MethodHandle constructor;
+        private final FieldCopier[] fieldCopiers;
+
+        private BeanCopier(MethodHandle constructor, FieldCopier[] fieldCopiers) {
+            this.constructor = constructor;
+            this.fieldCopiers = fieldCopiers;
+        }
+
+        static BeanCopier create(Class<?> sourceClass, Class<?> targetClass){
+            try {
+                Map<String, Field> sourceFields = getFields(sourceClass);
+                Map<String, Field> targetFields = getFields(targetClass);
+                Set<String> sourceProperties = getProperties(sourceClass, sourceFields, true);
+                Set<String> targetProperties = getProperties(targetClass, targetFields, false);
+                if(sourceProperties == null || targetProperties == null
+                        || !targetProperties.containsAll(sourceProperties)){
+                    // 与 json 转换的行为不一致
+                    return UNSUPPORTED;
+                }
+                Constructor<?> targetConstructor = targetClass.getDeclaredConstructor();
+                targetConstructor.setAccessible(true);
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle constructor = lookup.unreflectConstructor(targetConstructor)
+                        .asType(MethodType.methodType(Object.class));
+                List<FieldCopier> fieldCopiers = new ArrayList<>();
+                for (Field targetField : targetFields.values()) {
+                    String name = targetField.getName();
+                    Field sourceField = sourceFields.get(name);
+                    if(sourceField == null || !sourceProperties.contains(name) || !targetProperties.contains(name)){
+                        continue;
+                    }
+                    sourceField.setAccessible(true);
+                    targetField.setAccessible(true);
+                    MethodHandle getter = lookup.unreflectGetter(sourceField)
+                            .asType(MethodType.methodType(Object.class, Object.class));
+                    MethodHandle setter = lookup.unreflectSetter(targetField)
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                    if(!isCopyableType(targetField.getGenericType())){
+                        // json 转换会将 Object 等类型的值转换为 Map, 字段复制无法保持一致
+                        return UNSUPPORTED;
+                    }
+                    // 只有不可变类型的字段直接赋值, 集合、Map、数组、bean 等可变类型的字段复制为新的实例
+                    boolean direct = Objects.equals(sourceField.getGenericType(), targetField.getGenericType())
+                            && isImmutableType(wrap(targetField.getType()));
+                    fieldCopiers.add(new FieldCopier(getter, setter, targetField.getGenericType(),
+                            targetField.getType().isPrimitive(), direct));
+                }
+                return new BeanCopier(constructor, fieldCopiers.toArray(new FieldCopier[0]));
+            } catch (Throwable e){
+                return UNSUPPORTED;
+            }
+        }
+
+        Object copy(CopyInvokeTransfer transfer, Object source, int depth) throws Exception {
+            try {
+                Object target = (Object) constructor.invokeExact();
+                for (FieldCopier fieldCopier : fieldCopiers) {
+                    Object value = (Object) fieldCopier.getter.invokeExact(source);
+                    if(value == null){
+                        if(fieldCopier.primitive){
+                            continue;
+                        }
+                    } else if(!fieldCopier.direct){
+                        value = transfer.transfer(value, fieldCopier.targetType, depth + 1);
+                    }
+                    fieldCopier.setter.invokeExact(target, value);
+                }
+                return target;
+            } catch (Exception | Error e){
+                throw e;
+            } catch (Throwable e){
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * 得到 json 序列化(source 为 true)或者反序列化时可见的字段名称
+         * @param aClass 类
+         * @param fields 类的字段
+         * @param source 是否为源类型
+         * @return 可见的字段名称. 使用了 jackson 注解或者存在没有对应字段的 getter/setter 时返回 null
+         */
+        private static Set<String> getProperties(Class<?> aClass, Map<String, Field> fields, boolean source){
+            if(hasJacksonAnnotation(aClass.getAnnotations())){
+                return null;
+            }
+            Set<String> properties = new HashSet<>();
+            for (Field field : fields.values()) {
+                if(hasJacksonAnnotation(field.getAnnotations())){
+                    return null;
+                }
+                if(Modifier.isPublic(field.getModifiers())){
+                    properties.add(field.getName());
+                }
+            }
+            for (Method method : aClass.getMethods()) {
+                if(Modifier.isStatic(method.getModifiers()) || method.getDeclaringClass() == Object.class){
+                    continue;
+                }
+                if(hasJacksonAnnotation(method.getAnnotations())){
+                    return null;
+                }
+                String property = getPropertyName(method);
+                if(property == null){
+                    continue;
+                }
+                if(!fields.containsKey(property)){
+                    // 没有对应字段的属性
+                    return null;
+                }
+                boolean setter = method.getName().startsWith("set");
+                if(source && setter){
+                    continue;
+                }
+                // 反序列化时, 有 getter 的字段也可以直接设置
+                properties.add(property);
+            }
+            return properties;
+        }
+
+        private static String getPropertyName(Method method){
+            String name = method.getName();
+            int parameterCount = method.getParameterCount();
+            String property;
+            if(name.startsWith("get") && parameterCount == 0 && method.getReturnType() != void.class){
+                property = name.substring(3);
+            } else if(name.startsWith("is") && parameterCount == 0 && method.getReturnType() == boolean.class){
+                property = name.substring(2);
+            } else if(name.startsWith("set") && parameterCount == 1){
+                property = name.substring(3);
+            } else {
+                return null;
+            }
+            if(property.isEmpty()){
+                return null;
+            }
+            return Character.toLowerCase(property.charAt(0)) + property.substring(1);
+        }
+
+        private static boolean hasJacksonAnnotation(Annotation[] annotations){
+            for (Annotation annotation : annotations) {
+                if(annotation.annotationType().getName().startsWith(JACKSON_ANNOTATION_PACKAGE)){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static Map<String, Field> getFields(Class<?> aClass){
+            Map<String, Field> fields = new LinkedHashMap<>();
+            while (aClass != null && aClass != Object.class){
+                for (Field field : aClass.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()){
+                        continue;
+                    }
+                    // 子类字段优先
+                    fields.putIfAbsent(field.getName(), field);
+                }
+                aClass = aClass.getSuperclass();
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * 复制器缓存的键
+     */
+    private static class CopierKey {
+
+        private final Class<?> sourceClass;
+        private final Class<?> targetClass;
+
+        private CopierKey(Class<?> sourceClass, Class<?> targetClass) {
+            this.sourceClass = sourceClass;
+            this.targetClass = targetClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CopierKey)) {
+                return false;
+            }
+            CopierKey that = (CopierKey) o;
+            return sourceClass == that.sourceClass && targetClass == that.targetClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sourceClass.hashCode() + targetClass.hashCode();
+        }
+    }
+
+    private static class FieldCopier {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Type targetType;
+        private final boolean primitive;
+        private final boolean direct;
+
+        private FieldCopier(MethodHandle getter, MethodHandle setter, Type targetType,
+                            boolean primitive, boolean direct) {
+            this.getter = getter;
+            this.setter = setter;
+            this.targetType = targetType;
+            this.primitive = primitive;
+            this.direct = direct;
+        }
+    }
+
+}
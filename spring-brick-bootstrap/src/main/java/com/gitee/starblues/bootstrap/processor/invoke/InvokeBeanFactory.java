@@ -25,20 +25,21 @@ import java.lang.reflect.Proxy;
 /**
  * 反射调用其他插件定义的接口bean工厂
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class InvokeBeanFactory<T> implements FactoryBean<T> {
 
     private Class<T> callerInterface;
     private Caller callerAnnotation;
     private InvokeSupperCache invokeSupperCache;
+    private InvokeTransfer invokeTransfer;
 
     @Override
     @SuppressWarnings("unchecked")
     public T getObject() throws Exception {
         ClassLoader classLoader = callerInterface.getClassLoader();
         Class<?>[] interfaces = new Class[]{callerInterface};
-        InvokeProxyHandler proxy = new InvokeProxyHandler(callerAnnotation, invokeSupperCache);
+        InvokeProxyHandler proxy = new InvokeProxyHandler(callerAnnotation, invokeSupperCache, invokeTransfer);
         return (T) Proxy.newProxyInstance(classLoader, interfaces, proxy);
     }
 
@@ -63,4 +64,12 @@ public class InvokeBeanFactory<T> implements FactoryBean<T> {
     public void setInvokeSupperCache(InvokeSupperCache invokeSupperCache) {
         this.invokeSupperCache = invokeSupperCache;
     }
+
+    /**
+     * 设置参数和返回值的传递转换. 插件中定义了 InvokeTransfer bean 时自动注入, 否则使用 CopyInvokeTransfer
+     * @param invokeTransfer InvokeTransfer
+     */
+    public void setInvokeTransfer(InvokeTransfer invokeTransfer) {
+        this.invokeTransfer = invokeTransfer;
+    }
 }
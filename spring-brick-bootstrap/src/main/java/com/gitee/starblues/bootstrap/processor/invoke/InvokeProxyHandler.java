@@ -16,39 +16,107 @@
 
 package com.gitee.starblues.bootstrap.processor.invoke;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gitee.starblues.annotation.Caller;
 import com.gitee.starblues.annotation.Supplier;
 import com.gitee.starblues.spring.invoke.InvokeSupperCache;
 import com.gitee.starblues.utils.ObjectUtils;
 import com.gitee.starblues.utils.ReflectionUtils;
 
-import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Collection;
+import java.lang.reflect.Type;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * 反射调用处理模块
+ * 反射调用处理模块.
+ * 每个调用接口的方法第一次调用时解析出调用计划并缓存. 调用计划只弱引用提供者对象, 提供者发生变化时重新查找.
+ * 调用计划记录解析时提供者缓存的版本号, 版本号变化后丢弃旧的调用计划, 不会继续持有已卸载插件的类和方法
+ * 没有注解的调用按调用者参数的运行时类型匹配提供者方法, 参数为 null 时使用调用接口方法中声明的参数类型
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public class InvokeProxyHandler implements InvocationHandler {
 
+    private final static Object[] EMPTY_ARGS = new Object[]{};
+
+    private final static InvokeTransfer DEFAULT_INVOKE_TRANSFER = new CopyInvokeTransfer();
+
     private final Caller callerAnnotation;
 
-    private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     private final InvokeSupperCache invokeSupperCache;
+    private final InvokeTransfer invokeTransfer;
+
+    private final Map<Method, InvokePlan> invokePlanCache = new ConcurrentHashMap<>();
+    /**
+     * 当前缓存的调用计划对应的提供者缓存版本号
+     */
+    private final AtomicLong planVersion = new AtomicLong(-1);
 
     public InvokeProxyHandler(Caller callerAnnotation, InvokeSupperCache invokeSupperCache) {
+        this(callerAnnotation, invokeSupperCache, null);
+    }
+
+    public InvokeProxyHandler(Caller callerAnnotation, InvokeSupperCache invokeSupperCache,
+                              InvokeTransfer invokeTransfer) {
         this.callerAnnotation = callerAnnotation;
         this.invokeSupperCache = invokeSupperCache;
+        if(invokeTransfer == null){
+            this.invokeTransfer = DEFAULT_INVOKE_TRANSFER;
+        } else {
+            this.invokeTransfer = invokeTransfer;
+        }
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] callerArgs) throws Throwable {
+        if (callerArgs == null) {
+            callerArgs = EMPTY_ARGS;
+        }
+        long version = invokeSupperCache.getVersion();
+        removeStalePlans(version);
+        InvokePlan invokePlan = invokePlanCache.get(method);
+        if(invokePlan != null && !invokePlan.isCurrent(version)){
+            invokePlan = null;
+        }
+        Object supplierObject = null;
+        if(invokePlan != null){
+            // 提供者缓存的版本号未发生变化时, 直接使用调用计划中弱引用的提供者对象
+            supplierObject = invokePlan.getSupplierObject(version);
+        }
+        if(supplierObject == null){
+            supplierObject = getSupplierObject();
+        }
+        if(invokePlan == null || !invokePlan.isAvailable(supplierObject, callerArgs)){
+            invokePlan = createInvokePlan(version, method, supplierObject, callerArgs);
+            invokePlanCache.put(method, invokePlan);
+        }
+        invokePlan.setSupplierObject(version, supplierObject);
+        return invokePlan.invoke(supplierObject, callerArgs);
+    }
+
+    /**
+     * 提供者缓存的版本号变化时, 移除其他版本下解析的调用计划
+     * @param version 当前提供者缓存的版本号
+     */
+    private void removeStalePlans(long version){
+        if(version < 0){
+            return;
+        }
+        long current = planVersion.get();
+        if(current != version && planVersion.compareAndSet(current, version)){
+            invokePlanCache.values().removeIf(invokePlan -> !invokePlan.isCurrent(version));
+        }
+    }
+
+    private Object getSupplierObject() throws Exception {
         String pluginId = callerAnnotation.pluginId();
         Object supplierObject = invokeSupperCache.getSupperBean(pluginId, callerAnnotation.value());
         if (supplierObject == null) {
@@ -59,77 +127,88 @@ public class InvokeProxyHandler implements InvocationHandler {
                         pluginId + "'");
             }
         }
+        return supplierObject;
+    }
+
+    private InvokePlan createInvokePlan(long version, Method method, Object supplierObject, Object[] callerArgs)
+            throws Exception {
         Caller.Method callerMethod = method.getAnnotation(Caller.Method.class);
-        if (callerArgs == null) {
-            callerArgs = new Object[]{};
+        Method supplierMethod = null;
+        if (callerMethod != null) {
+            supplierMethod = findAnnotationSupplierMethod(callerMethod, supplierObject, callerArgs);
         }
-        if (callerMethod == null) {
-            return notAnnotationInvoke(method, supplierObject, callerArgs);
-        } else {
-            return annotationInvoke(method, callerMethod, supplierObject, callerArgs);
+        Class<?>[] callerArgClasses = null;
+        if (supplierMethod == null) {
+            // 如果为空, 说明没有找到被调用者的注解, 则走没有注解的代理调用。
+            callerArgClasses = getCallerArgClasses(callerArgs);
+            supplierMethod = findNotAnnotationSupplierMethod(method, supplierObject, callerArgClasses);
         }
+        return new InvokePlan(version, supplierObject.getClass(), callerArgClasses, method, supplierMethod,
+                invokeTransfer);
     }
 
-
+    private static Class<?>[] getCallerArgClasses(Object[] callerArgs){
+        Class<?>[] callerArgClasses = new Class<?>[callerArgs.length];
+        for (int i = 0; i < callerArgs.length; i++) {
+            Object callerArg = callerArgs[i];
+            callerArgClasses[i] = callerArg == null ? null : callerArg.getClass();
+        }
+        return callerArgClasses;
+    }
 
     /**
-     * 有注解的调用
-     * @param method 调用接口的方法
+     * 根据注解查找提供者方法
      * @param callerMethod 调用者方法注解
-     * @param supplierObject 调用者对象
+     * @param supplierObject 提供者对象
      * @param callerArgs 调用者参数
-     * @return 返回值
-     * @throws Throwable 异常
+     * @return 提供者方法, 没有找到或者参数不匹配时返回 null
      */
-    private Object annotationInvoke(Method method, Caller.Method callerMethod,
-                                    Object supplierObject, Object[] callerArgs) throws Throwable{
-
+    private Method findAnnotationSupplierMethod(Caller.Method callerMethod,
+                                                Object supplierObject, Object[] callerArgs){
         String callerMethodName = callerMethod.value();
         Class<?> supplierClass = supplierObject.getClass();
         Method[] methods = supplierClass.getMethods();
-        Method supplierMethod = null;
         for (Method m : methods) {
             Supplier.Method supplierMethodAnnotation = m.getAnnotation(Supplier.Method.class);
             if(supplierMethodAnnotation == null){
                 continue;
             }
             if(Objects.equals(supplierMethodAnnotation.value(), callerMethodName)){
-                supplierMethod = m;
-                break;
+                if(m.getParameterTypes().length != callerArgs.length){
+                    // 参数不匹配
+                    return null;
+                }
+                return m;
             }
         }
-        if(supplierMethod == null){
-            // 如果为空, 说明没有找到被调用者的注解, 则走没有注解的代理调用。
-            return notAnnotationInvoke(method, supplierObject, callerArgs);
-        }
-        Class<?>[] parameterTypes = supplierMethod.getParameterTypes();
-        if(parameterTypes.length != callerArgs.length){
-            // 参数不匹配
-            return notAnnotationInvoke(method, supplierObject, callerArgs);
-        }
-        Object[] supplierArgs = getSupplierArgs(callerArgs, supplierMethod);
-        Object invokeReturn = supplierMethod.invoke(supplierObject, supplierArgs);
-        return getReturnObject(invokeReturn, method);
+        return null;
     }
 
     /**
-     * 没有注解调用
+     * 根据调用接口方法的名称和调用者参数的运行时类型查找提供者方法
      * @param method 调用接口的方法
      * @param supplierObject 提供者对象
-     * @param callerArgs 调用者参数
-     * @return 返回值
-     * @throws Throwable 异常
+     * @param callerArgClasses 调用者参数的运行时类型, 参数为 null 的位置为 null
+     * @return 提供者方法
+     * @throws NoSuchMethodException 没有找到提供者方法
      */
-    private Object notAnnotationInvoke(Method method, Object supplierObject, Object[] callerArgs) throws Throwable{
+    private Method findNotAnnotationSupplierMethod(Method method, Object supplierObject,
+                                                   Class<?>[] callerArgClasses)
+            throws NoSuchMethodException {
         String name = method.getName();
-        Class<?>[] supplierArgClasses = new Class[callerArgs.length];
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Class<?>[] supplierArgClasses = new Class[callerArgClasses.length];
         ClassLoader classLoader = supplierObject.getClass().getClassLoader();
-        for (int i = 0; i < callerArgs.length; i++) {
-            Object callerArg = callerArgs[i];
+        for (int i = 0; i < callerArgClasses.length; i++) {
+            Class<?> callerArgClass = callerArgClasses[i];
+            if(callerArgClass == null){
+                // 参数为 null 时, 使用声明的参数类型
+                callerArgClass = parameterTypes[i];
+            }
             try {
-                supplierArgClasses[i] = classLoader.loadClass(callerArg.getClass().getName());
+                supplierArgClasses[i] = classLoader.loadClass(callerArgClass.getName());
             } catch (Exception e){
-                supplierArgClasses[i] = callerArg.getClass();
+                supplierArgClasses[i] = callerArgClass;
             }
         }
         Class<?> supplierClass = supplierObject.getClass();
@@ -142,52 +221,7 @@ public class InvokeProxyHandler implements InvocationHandler {
         if(supplierMethod == null){
             throw ReflectionUtils.getNoSuchMethodException(supplierClass, name, supplierArgClasses);
         }
-        Object[] supplierArgs = getSupplierArgs(callerArgs, supplierMethod);
-        Object invokeReturn = supplierMethod.invoke(supplierObject, supplierArgs);
-        return getReturnObject(invokeReturn, method);
-    }
-
-    private Object[] getSupplierArgs(Object[] callerArgs, Method supplierMethod) throws Exception{
-        if(callerArgs == null || callerArgs.length == 0){
-            return new Class<?>[]{};
-        }
-        Class<?>[] supplierParameterTypes = supplierMethod.getParameterTypes();
-        Object[] supplierArgs = new Object[callerArgs.length];
-        for (int i = 0; i < supplierParameterTypes.length; i++) {
-            Class<?> supplierParameterType = supplierParameterTypes[i];
-            Object arg = callerArgs[i];
-            if(supplierParameterType.isAssignableFrom(arg.getClass())){
-                // 类型相同
-                supplierArgs[i] = arg;
-            } else {
-                // 类型不匹配, 尝试使用json序列化. 当前序列化针对大数据量下性能比较低, 建议将大数据量传输的参数定义到主程序中
-                String json = OBJECT_MAPPER.writeValueAsString(arg);
-                Object serializeObject = OBJECT_MAPPER.readValue(json, supplierParameterType);
-                supplierArgs[i] = serializeObject;
-            }
-        }
-        return supplierArgs;
-    }
-
-
-    /**
-     * 得到返回值对象
-     * @param invokeReturn 反射调用后返回的对象
-     * @param method 调用接口的方法
-     * @return 返回值对象
-     * @throws Throwable Throwable
-     */
-    private Object getReturnObject(Object invokeReturn, Method method) throws Throwable{
-        if(invokeReturn == null){
-            return null;
-        }
-        Class<?> returnType = method.getReturnType();
-        if(invokeReturn.getClass().isAssignableFrom(returnType)){
-            return invokeReturn;
-        } else {
-            String json = OBJECT_MAPPER.writeValueAsString(invokeReturn);
-            return OBJECT_MAPPER.readValue(json, OBJECT_MAPPER.getTypeFactory().constructType(method.getGenericReturnType()) );
-        }
+        return supplierMethod;
     }
 
     private Method findSupplierMethod(Class<?> supplierClass, String methodName, Class<?>[] supplierArgClasses){
@@ -207,4 +241,198 @@ public class InvokeProxyHandler implements InvocationHandler {
         return null;
     }
 
-}
\ No newline at end of file
+    /**
+     * 调用计划. 包含已解析的提供者方法句柄以及参数和返回值的转换方式.
+     * 提供者对象只被弱引用, 不会阻止已卸载插件的提供者被回收. 提供者类和方法在版本号变化后随调用计划一起被丢弃
+     */
+    private static class InvokePlan {
+
+        /**
+         * 解析调用计划时提供者缓存的版本号. 不支持版本号时为负数
+         */
+        private final long version;
+        private final Class<?> supplierClass;
+        /**
+         * 解析提供者方法时调用者参数的运行时类型. 按注解匹配时为 null
+         */
+        private final Class<?>[] callerArgClasses;
+        private final InvokeTransfer invokeTransfer;
+        private final Method supplierMethod;
+        private final MethodHandle methodHandle;
+
+        private final Type[] supplierParameterTypes;
+        private final Class<?>[] supplierParameterClasses;
+        /**
+         * 参数是否可直接传递. 调用者与提供者参数类型完全一致时为 true
+         */
+        private final boolean[] directParameters;
+
+        private final Type returnType;
+        private final Class<?> returnClass;
+        private final boolean directReturn;
+
+        private volatile SupplierReference supplierReference;
+
+        private InvokePlan(long version, Class<?> supplierClass, Class<?>[] callerArgClasses,
+                           Method method, Method supplierMethod, InvokeTransfer invokeTransfer) {
+            this.version = version;
+            this.supplierClass = supplierClass;
+            this.callerArgClasses = callerArgClasses;
+            this.invokeTransfer = invokeTransfer;
+            this.supplierMethod = supplierMethod;
+            this.methodHandle = getMethodHandle(supplierMethod);
+
+            this.supplierParameterTypes = supplierMethod.getGenericParameterTypes();
+            this.supplierParameterClasses = supplierMethod.getParameterTypes();
+            Type[] callerGenericTypes = method.getGenericParameterTypes();
+            this.directParameters = new boolean[supplierParameterTypes.length];
+            for (int i = 0; i < supplierParameterTypes.length; i++) {
+                directParameters[i] = i < callerGenericTypes.length &&
+                        Objects.equals(callerGenericTypes[i], supplierParameterTypes[i]);
+            }
+
+            this.returnType = method.getGenericReturnType();
+            this.returnClass = method.getReturnType();
+            this.directReturn = returnType == void.class ||
+                    Objects.equals(returnType, supplierMethod.getGenericReturnType());
+        }
+
+        /**
+         * 调用计划是否是当前版本下解析的
+         * @param version 当前提供者缓存的版本号
+         * @return 版本号相同或者不支持版本号时返回 true
+         */
+        private boolean isCurrent(long version){
+            return version < 0 || this.version == version;
+        }
+
+        /**
+         * 得到弱引用的提供者对象
+         * @param version 当前提供者缓存的版本号
+         * @return 版本号未变化并且未被回收时返回提供者对象, 否则返回 null. 不支持版本号时总是返回 null
+         */
+        private Object getSupplierObject(long version){
+            SupplierReference supplierReference = this.supplierReference;
+            if(version < 0 || supplierReference == null || supplierReference.version != version){
+                return null;
+            }
+            return supplierReference.get();
+        }
+
+        private void setSupplierObject(long version, Object supplierObject){
+            SupplierReference supplierReference = this.supplierReference;
+            if(supplierReference != null && supplierReference.version == version
+                    && supplierReference.get() == supplierObject){
+                return;
+            }
+            this.supplierReference = new SupplierReference(version, supplierObject);
+        }
+
+        /**
+         * 调用计划对当前提供者对象和调用者参数是否可用
+         * @param supplierObject 提供者对象
+         * @param callerArgs 调用者参数
+         * @return boolean
+         */
+        private boolean isAvailable(Object supplierObject, Object[] callerArgs){
+            if(supplierObject.getClass() != supplierClass){
+                return false;
+            }
+            if(callerArgClasses == null){
+                return true;
+            }
+            for (int i = 0; i < callerArgs.length; i++) {
+                Object callerArg = callerArgs[i];
+                if(callerArg != null && callerArg.getClass() != callerArgClasses[i]){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Object invoke(Object supplierObject, Object[] callerArgs) throws Throwable {
+            Object[] supplierArgs = getSupplierArgs(callerArgs);
+            Object invokeReturn;
+            if(methodHandle != null){
+                invokeReturn = (Object) methodHandle.invokeExact(supplierObject, supplierArgs);
+            } else {
+                try {
+                    invokeReturn = supplierMethod.invoke(supplierObject, supplierArgs);
+                } catch (InvocationTargetException e){
+                    throw e.getTargetException();
+                }
+            }
+            return getReturnObject(invokeReturn);
+        }
+
+        private Object[] getSupplierArgs(Object[] callerArgs) throws Exception{
+            if(callerArgs.length == 0){
+                return EMPTY_ARGS;
+            }
+            Object[] supplierArgs = new Object[callerArgs.length];
+            for (int i = 0; i < supplierParameterTypes.length; i++) {
+                Object arg = callerArgs[i];
+                if(arg == null){
+                    if(supplierParameterClasses[i].isPrimitive()){
+                        // 与反射调用保持一致
+                        throw new IllegalArgumentException("The parameter " + i + " of supplier method '"
+                                + supplierMethod + "' is primitive type, can't be null");
+                    }
+                    supplierArgs[i] = null;
+                } else if(directParameters[i] || supplierParameterClasses[i].isInstance(arg)){
+                    // 类型相同
+                    supplierArgs[i] = arg;
+                } else {
+                    // 类型不匹配, 使用 InvokeTransfer 转换为提供者中的类型
+                    supplierArgs[i] = invokeTransfer.transfer(arg, supplierParameterTypes[i]);
+                }
+            }
+            return supplierArgs;
+        }
+
+        /**
+         * 得到返回值对象
+         * @param invokeReturn 反射调用后返回的对象
+         * @return 返回值对象
+         * @throws Throwable Throwable
+         */
+        private Object getReturnObject(Object invokeReturn) throws Throwable{
+            if(invokeReturn == null || directReturn || returnClass.isInstance(invokeReturn)){
+                return invokeReturn;
+            }
+            return invokeTransfer.transfer(invokeReturn, returnType);
+        }
+
+        /**
+         * 将提供者方法转换为 (Object, Object[])Object 类型的方法句柄
+         * @param supplierMethod 提供者方法
+         * @return 方法句柄, 无法访问时返回 null, 使用反射调用
+         */
+        private static MethodHandle getMethodHandle(Method supplierMethod){
+            try {
+                if(!supplierMethod.isAccessible()){
+                    supplierMethod.setAccessible(true);
+                }
+                MethodHandle methodHandle = MethodHandles.lookup().unreflect(supplierMethod);
+                return methodHandle.asType(methodHandle.type().generic())
+                        .asSpreader(Object[].class, supplierMethod.getParameterTypes().length);
+            } catch (Exception e){
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 弱引用的提供者对象以及获取时提供者缓存的版本号
+     */
+    private static class SupplierReference extends WeakReference<Object> {
+
+        private final long version;
+
+        private SupplierReference(long version, Object supplierObject) {
+            super(supplierObject);
+            this.version = version;
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gitee.starblues.bootstrap.processor.invoke;
+
+import java.lang.reflect.Type;
+
+/**
+ * 插件之间反射调用时, 参数和返回值的传递转换接口.
+ * 调用者和提供者的类由不同的 ClassLoader 加载时, 需要将对象转换为目标 ClassLoader 中的类型.
+ * 可在插件中定义该接口的 bean 来替换默认的实现
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public interface InvokeTransfer {
+
+    /**
+     * 将对象转换为目标类型
+     * @param source 源对象, 可能为 null
+     * @param targetType 目标类型, 包含泛型信息
+     * @return 转换后的对象
+     * @throws Exception 转换异常
+     */
+    Object transfer(Object source, Type targetType) throws Exception;
+
+}
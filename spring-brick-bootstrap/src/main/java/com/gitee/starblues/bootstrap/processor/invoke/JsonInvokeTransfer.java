@@ -0,0 +1,55 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gitee.starblues.bootstrap.processor.invoke;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.lang.reflect.Type;
+
+/**
+ * 使用 json 序列化进行传递转换. 针对大数据量下性能比较低
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class JsonInvokeTransfer implements InvokeTransfer{
+
+    private final ObjectMapper objectMapper;
+
+    public JsonInvokeTransfer() {
+        this(new ObjectMapper());
+    }
+
+    public JsonInvokeTransfer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Object transfer(Object source, Type targetType) throws Exception {
+        if(source == null){
+            return null;
+        }
+        JavaType javaType = objectMapper.getTypeFactory().constructType(targetType);
+        if(!javaType.hasGenericTypes() && javaType.getRawClass().isInstance(source)){
+            // 类型相同
+            return source;
+        }
+        String json = objectMapper.writeValueAsString(source);
+        return objectMapper.readValue(json, javaType);
+    }
+}
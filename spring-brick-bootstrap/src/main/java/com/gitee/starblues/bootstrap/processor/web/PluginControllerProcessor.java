@@ -22,6 +22,7 @@ import com.gitee.starblues.bootstrap.processor.SpringPluginProcessor;
 import com.gitee.starblues.bootstrap.utils.AnnotationUtils;
 import com.gitee.starblues.bootstrap.utils.DestroyUtils;
 import com.gitee.starblues.integration.IntegrationConfiguration;
+import com.gitee.starblues.loader.classloader.GenericClassLoader;
 import com.gitee.starblues.spring.SpringBeanFactory;
 import com.gitee.starblues.utils.*;
 import lombok.AllArgsConstructor;
@@ -36,6 +37,7 @@ import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.mvc.condition.RequestCondition;
 import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
@@ -48,9 +50,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 
 /**
- * 插件Controller处理者
+ * 插件Controller处理者.
+ * 插件不停机升级时, 新版本的接口在切换到新版本时才替换同一插件旧版本的同名接口, 新版本启动失败时旧版本的接口不受影响;
+ * 旧版本关闭时只卸载仍属于自己的接口
  * @author starBlues
- * @version 3.0.3
+ * @version 3.0.4
  */
 public class PluginControllerProcessor implements SpringPluginProcessor {
 
@@ -101,10 +105,12 @@ public class PluginControllerProcessor implements SpringPluginProcessor {
         String pathPrefix = PluginConfigUtils.getPluginRestPrefix(processorContext.getConfiguration(), pluginId);
         PluginRequestMappingHandlerMapping pluginHandlerMapping = new PluginRequestMappingHandlerMapping(pathPrefix);
 
+        List<RegisterMappingInfo> allMappingInfo = new ArrayList<>();
         while (iterator.hasNext()){
             ControllerWrapper controllerWrapper = iterator.next();
             if(!applicationContext.containsBean(controllerWrapper.getBeanName())){
                 iterator.remove();
+                continue;
             }
             Object controllerBean = applicationContext.getBean(controllerWrapper.getBeanName());
             pluginHandlerMapping.registerHandler(controllerBean);
@@ -112,17 +118,61 @@ public class PluginControllerProcessor implements SpringPluginProcessor {
 
             Set<RequestMappingInfo> requestMappingInfoSet = new HashSet<>(registerMappingInfo.size());
             for (RegisterMappingInfo mappingInfo : registerMappingInfo) {
-                RequestMappingInfo requestMappingInfo = mappingInfo.getRequestMappingInfo();
-                requestMappingHandlerMapping.registerMapping(
-                        requestMappingInfo,
-                        mappingInfo.getHandler(),
-                        mappingInfo.getMethod()
-                );
-                LOG.info("插件[{}]注册接口: {}", pluginId, requestMappingInfo);
-                requestMappingInfoSet.add(requestMappingInfo);
+                checkMapping(pluginId, mappingInfo);
+                requestMappingInfoSet.add(mappingInfo.getRequestMappingInfo());
             }
+            allMappingInfo.addAll(registerMappingInfo);
+            controllerWrapper.setHandler(controllerBean);
             controllerWrapper.setRequestMappingInfo(requestMappingInfoSet);
         }
+        // 不停机升级时, 在切换到新版本时才注册, 避免新版本启动失败后旧版本的接口指向新版本
+        processorContext.getPluginInteractive().onActive(()->{
+            for (RegisterMappingInfo mappingInfo : allMappingInfo) {
+                registerMapping(pluginId, mappingInfo);
+                LOG.info("插件[{}]注册接口: {}", pluginId, mappingInfo.getRequestMappingInfo());
+            }
+        });
+    }
+
+    /**
+     * 检查接口是否可以注册. 接口已被主程序或者其他插件注册时, 不能注册
+     * @param pluginId 插件id
+     * @param mappingInfo 接口信息
+     */
+    private void checkMapping(String pluginId, RegisterMappingInfo mappingInfo){
+        RequestMappingInfo requestMappingInfo = mappingInfo.getRequestMappingInfo();
+        HandlerMethod existHandlerMethod = requestMappingHandlerMapping.getHandlerMethods().get(requestMappingInfo);
+        if(existHandlerMethod != null && !isPluginHandler(pluginId, existHandlerMethod)){
+            throw new IllegalStateException("插件[" + pluginId + "]的接口[" + requestMappingInfo
+                    + "]已被注册: " + existHandlerMethod);
+        }
+    }
+
+    /**
+     * 注册接口. 如果接口已被同一插件的其他版本注册, 则替换为当前版本
+     * @param pluginId 插件id
+     * @param mappingInfo 接口信息
+     */
+    private void registerMapping(String pluginId, RegisterMappingInfo mappingInfo){
+        RequestMappingInfo requestMappingInfo = mappingInfo.getRequestMappingInfo();
+        try {
+            requestMappingHandlerMapping.registerMapping(requestMappingInfo,
+                    mappingInfo.getHandler(), mappingInfo.getMethod());
+        } catch (IllegalStateException e){
+            HandlerMethod existHandlerMethod = requestMappingHandlerMapping.getHandlerMethods().get(requestMappingInfo);
+            if(existHandlerMethod == null || !isPluginHandler(pluginId, existHandlerMethod)){
+                throw e;
+            }
+            requestMappingHandlerMapping.unregisterMapping(requestMappingInfo);
+            requestMappingHandlerMapping.registerMapping(requestMappingInfo,
+                    mappingInfo.getHandler(), mappingInfo.getMethod());
+        }
+    }
+
+    private static boolean isPluginHandler(String pluginId, HandlerMethod handlerMethod){
+        ClassLoader classLoader = handlerMethod.getBeanType().getClassLoader();
+        return classLoader instanceof GenericClassLoader
+                && Objects.equals(pluginId, ((GenericClassLoader) classLoader).getName());
     }
 
     @Override
@@ -149,7 +199,13 @@ public class PluginControllerProcessor implements SpringPluginProcessor {
     private void unregister(ControllerWrapper controllerBeanWrapper) {
         Set<RequestMappingInfo> requestMappingInfoSet = controllerBeanWrapper.getRequestMappingInfo();
         if(requestMappingInfoSet != null && !requestMappingInfoSet.isEmpty()){
+            Map<RequestMappingInfo, HandlerMethod> handlerMethods = requestMappingHandlerMapping.getHandlerMethods();
             for (RequestMappingInfo requestMappingInfo : requestMappingInfoSet) {
+                HandlerMethod handlerMethod = handlerMethods.get(requestMappingInfo);
+                if(handlerMethod != null && handlerMethod.getBean() != controllerBeanWrapper.getHandler()){
+                    // 已被新版本插件替换
+                    continue;
+                }
                 requestMappingHandlerMapping.unregisterMapping(requestMappingInfo);
             }
         }
@@ -212,6 +268,11 @@ public class PluginControllerProcessor implements SpringPluginProcessor {
          */
         private Class<?> beanClass;
 
+        /**
+         * 注册接口的 controller bean
+         */
+        private Object handler;
+
         /**
          * controller 的 RequestMappingInfo 集合
          */
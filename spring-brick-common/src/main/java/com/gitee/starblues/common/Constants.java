@@ -19,7 +19,7 @@ package com.gitee.starblues.common;
 /**
  * 静态常量
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public abstract class Constants {
 
@@ -31,6 +31,11 @@ public abstract class Constants {
      */
     public final static String DISABLED_ALL_PLUGIN = "*";
 
+    /**
+     * 延迟启动所有插件标志
+     */
+    public final static String LAZY_START_ALL_PLUGIN = "*";
+
     /**
      * 允许所有版本的标志
      */
@@ -26,7 +26,7 @@ import java.util.regex.Matcher;
  * 插件打包结构
  *
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public abstract class PackageStructure {
 
@@ -57,6 +57,18 @@ public abstract class PackageStructure {
     public static final String RESOURCES_DEFINE_LOAD_MAIN_INCLUDES = "load.main.resources.includes";
     public static final String RESOURCES_DEFINE_LOAD_MAIN_EXCLUDES = "load.main.resources.excludes";
 
+    /**
+     * 依赖包的包名索引. 每行格式为: 依赖索引=包名1,包名2. 例如: lib/a.jar=com/a,com/a/b
+     */
+    public static final String RESOURCES_DEFINE_DEPENDENCIES_PACKAGES = "dependencies.packages";
+    /**
+     * 依赖包中根路径以及 META-INF 下的资源名称索引, 这些资源按名称查找, 不按包名查找.
+     * 每行格式为: 依赖索引=资源名称1,资源名称2. 例如: lib/a.jar=META-INF,META-INF/spring.factories
+     */
+    public static final String RESOURCES_DEFINE_DEPENDENCIES_RESOURCES = "dependencies.resources";
+    public static final String DEPENDENCIES_PACKAGES_INDEX_SPLIT = "=";
+    public static final String DEPENDENCIES_PACKAGES_SPLIT = ",";
+
     public static final String PROD_MANIFEST_PATH = META_INF_NAME + SEPARATOR + MANIFEST;
 
     public static final String PROD_RESOURCES_DEFINE_PATH = META_INF_NAME + SEPARATOR + RESOURCES_DEFINE_NAME;
@@ -30,15 +30,28 @@ import java.nio.file.Path;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 基本的 ClassLoader
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public class GenericClassLoader extends URLClassLoader {
 
+    /**
+     * 默认的未找到类缓存的最大数量
+     */
+    public static final int DEFAULT_NOT_FOUND_CACHE_SIZE = 10000;
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
     private final String name;
     private final ClassLoader parent;
 
@@ -46,6 +59,19 @@ public class GenericClassLoader extends URLClassLoader {
 
     private final Map<String, Class<?>> pluginClassCache = new ConcurrentHashMap<>();
 
+    /**
+     * 资源版本号, 每次添加资源后递增, 用于使未找到类缓存失效
+     */
+    private final AtomicLong resourceVersion = new AtomicLong();
+
+    private final NotFoundClassCache notFoundClassCache = new NotFoundClassCache(DEFAULT_NOT_FOUND_CACHE_SIZE);
+
+    /**
+     * 当前 ClassLoader 定义的类数量和读取的类字节数, 用于统计启动耗时
+     */
+    private final AtomicLong definedClassCount = new AtomicLong();
+    private final AtomicLong definedClassBytes = new AtomicLong();
+
     public GenericClassLoader(String name, ResourceLoaderFactory resourceLoaderFactory) {
         this(name, null, resourceLoaderFactory);
     }
@@ -65,22 +91,68 @@ public class GenericClassLoader extends URLClassLoader {
 
     public void addResource(String path) throws Exception {
         resourceLoaderFactory.addResource(path);
+        resourceChanged();
     }
 
     public void addResource(File file) throws Exception {
         resourceLoaderFactory.addResource(file);
+        resourceChanged();
     }
 
     public void addResource(Path path) throws Exception {
         resourceLoaderFactory.addResource(path);
+        resourceChanged();
     }
 
     public void addResource(URL url) throws Exception {
         resourceLoaderFactory.addResource(url);
+        resourceChanged();
     }
 
     public void addResource(ResourceLoader resourceLoader) throws Exception{
         resourceLoaderFactory.addResource(resourceLoader);
+        resourceChanged();
+    }
+
+    /**
+     * 设置未找到类缓存的最大数量. 小于等于0则不缓存
+     * @param maxSize 最大数量
+     */
+    public void setNotFoundCacheSize(int maxSize){
+        notFoundClassCache.setMaxSize(maxSize);
+    }
+
+    /**
+     * 得到当前 ClassLoader 已定义的类数量
+     * @return 类数量
+     */
+    public long getDefinedClassCount(){
+        return definedClassCount.get();
+    }
+
+    /**
+     * 得到当前 ClassLoader 定义类时读取的字节数
+     * @return 字节数
+     */
+    public long getDefinedClassBytes(){
+        return definedClassBytes.get();
+    }
+
+    /**
+     * 得到当前资源版本号. 包含父 GenericClassLoader 的资源版本号
+     * @return long
+     */
+    protected long getResourceVersion(){
+        long version = resourceVersion.get();
+        if(parent instanceof GenericClassLoader){
+            version = version + ((GenericClassLoader) parent).getResourceVersion();
+        }
+        return version;
+    }
+
+    protected void resourceChanged(){
+        resourceVersion.incrementAndGet();
+        notFoundClassCache.clear();
     }
 
     public ClassLoader getParentClassLoader(){
@@ -89,26 +161,40 @@ public class GenericClassLoader extends URLClassLoader {
 
     @Override
     public Class<?> loadClass(String className) throws ClassNotFoundException {
+        long version = getResourceVersion();
+        if(notFoundClassCache.contains(className, version)){
+            throw new CachedClassNotFoundException("ClassLoader[" + name  +"]:" + className);
+        }
+        // 已注册为并行加载, getClassLoadingLock 为每个类名单独的锁
         synchronized (getClassLoadingLock(className)) {
-            return findClass(className);
+            Class<?> loadedClass = findClassOrNull(className);
+            if(loadedClass != null){
+                return loadedClass;
+            }
         }
+        notFoundClassCache.add(className, version);
+        throw new ClassNotFoundException("ClassLoader[" + name  +"]:" + className);
     }
 
     @Override
     protected Class<?> findClass(String className) throws ClassNotFoundException {
-        Class<?> loadedClass = findClassFromParent(className);
+        Class<?> loadedClass = findClassOrNull(className);
         if (loadedClass != null) {
             return loadedClass;
         }
-        loadedClass = findLoadedClass(className);
+        throw new ClassNotFoundException("ClassLoader[" + name  +"]:" + className);
+    }
+
+    private Class<?> findClassOrNull(String className) throws ClassNotFoundException {
+        Class<?> loadedClass = findClassFromParent(className);
         if (loadedClass != null) {
             return loadedClass;
         }
-        loadedClass = findClassFromLocal(className);
+        loadedClass = findLoadedClass(className);
         if (loadedClass != null) {
             return loadedClass;
         }
-        throw new ClassNotFoundException("ClassLoader[" + name  +"]:" + className);
+        return findClassFromLocal(className);
     }
 
     protected Class<?> findClassFromParent(String className) throws ClassNotFoundException{
@@ -125,7 +211,7 @@ public class GenericClassLoader extends URLClassLoader {
     protected Class<?> findClassFromLocal(String name) {
         Class<?> aClass;
         String formatClassName = formatClassName(name);
-        aClass = pluginClassCache.get(formatClassName);
+        aClass = pluginClassCache.get(name);
         if (aClass != null) {
             return aClass;
         }
@@ -144,6 +230,8 @@ public class GenericClassLoader extends URLClassLoader {
         if(aClass == null) {
             return null;
         }
+        definedClassCount.incrementAndGet();
+        definedClassBytes.addAndGet(bytes.length);
         if (aClass.getPackage() == null) {
             int lastDotIndex = name.lastIndexOf( '.' );
             String packageName = (lastDotIndex >= 0) ? name.substring( 0, lastDotIndex) : "";
@@ -280,6 +368,7 @@ public class GenericClassLoader extends URLClassLoader {
     public void close() throws IOException {
         synchronized (pluginClassCache){
             pluginClassCache.clear();
+            notFoundClassCache.clear();
             IOUtils.closeQuietly(resourceLoaderFactory);
         }
     }
@@ -295,5 +384,67 @@ public class GenericClassLoader extends URLClassLoader {
         return className;
     }
 
+    /**
+     * 未找到类的缓存. 超过最大数量后, 按添加顺序淘汰最早的类名
+     */
+    private static class NotFoundClassCache {
+
+        private final Map<String, Long> notFoundMap = new ConcurrentHashMap<>();
+        private final Queue<String> addOrder = new ConcurrentLinkedQueue<>();
+
+        private volatile int maxSize;
+
+        private NotFoundClassCache(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            clear();
+        }
+
+        private boolean contains(String className, long version){
+            Long cacheVersion = notFoundMap.get(className);
+            return cacheVersion != null && cacheVersion == version;
+        }
+
+        private void add(String className, long version){
+            if(maxSize <= 0){
+                return;
+            }
+            if(notFoundMap.put(className, version) != null){
+                return;
+            }
+            addOrder.offer(className);
+            while (notFoundMap.size() > maxSize){
+                String eldest = addOrder.poll();
+                if(eldest == null){
+                    break;
+                }
+                notFoundMap.remove(eldest);
+            }
+        }
+
+        private void clear(){
+            notFoundMap.clear();
+            addOrder.clear();
+        }
+
+    }
+
+    /**
+     * 命中未找到类缓存时抛出的异常, 不填充异常栈以减少开销
+     */
+    private static class CachedClassNotFoundException extends ClassNotFoundException {
+
+        private CachedClassNotFoundException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
 
 }
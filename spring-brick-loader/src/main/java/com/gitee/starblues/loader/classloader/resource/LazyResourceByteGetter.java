@@ -0,0 +1,30 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gitee.starblues.loader.classloader.resource;
+
+/**
+ * 可延迟获取的资源 byte 得到者.
+ * 不依赖于资源加载时的上下文, 可在加载完成后的任意时刻多次调用 {@link #get()}
+ *
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+@FunctionalInterface
+public interface LazyResourceByteGetter extends ResourceByteGetter {
+
+}
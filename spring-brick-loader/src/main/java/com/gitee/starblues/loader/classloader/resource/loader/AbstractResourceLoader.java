@@ -27,7 +27,7 @@ import java.net.URL;
 /**
  * 抽象的资源加载者
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public abstract class AbstractResourceLoader implements ResourceLoader{
 
@@ -72,6 +72,9 @@ public abstract class AbstractResourceLoader implements ResourceLoader{
 
     protected byte[] getClassBytes(String path, InputStream inputStream, boolean isClose) throws Exception{
         if(!isClass(path)){
+            if(isClose){
+                IOUtils.closeQuietly(inputStream);
+            }
             return null;
         }
         final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
@@ -91,7 +94,7 @@ public abstract class AbstractResourceLoader implements ResourceLoader{
 
     }
 
-    private static boolean isClass(String path){
+    protected static boolean isClass(String path){
         if(path == null || "".equals(path)){
             return false;
         }
@@ -15,20 +15,33 @@
  */
 
 package com.gitee.starblues.loader.classloader.resource.loader;
+import com.gitee.starblues.loader.classloader.resource.LazyResourceByteGetter;
 import com.gitee.starblues.loader.classloader.resource.Resource;
 import com.gitee.starblues.loader.classloader.resource.storage.ResourceStorage;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * classpath 资源加载者
+ * classpath 资源加载者.
+ * 目录按子目录拆分后并行遍历, 遍历时只记录路径, 资源字节在使用时才读取
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public class ClassPathLoader extends AbstractResourceLoader {
 
@@ -50,50 +63,95 @@ public class ClassPathLoader extends AbstractResourceLoader {
 
     @Override
     protected void loadOfChild(ResourceStorage resourceStorage) throws Exception {
-        File file = new File(url.toURI());
-        load(resourceStorage, file, null);
+        Path root = Paths.get(url.toURI());
+        if(!Files.isDirectory(root)){
+            return;
+        }
+        Queue<PathResource> pathResources = new ConcurrentLinkedQueue<>();
+        try {
+            WalkPoolHolder.POOL.invoke(new WalkTask(root, "", pathResources));
+        } catch (UncheckedIOException e){
+            throw e.getCause();
+        }
+        // 存储者不要求线程安全, 遍历完成后在当前线程中添加
+        for (PathResource pathResource : pathResources) {
+            addResource(resourceStorage, pathResource);
+        }
     }
 
-    private void load(ResourceStorage resourceStorage, File file, String currentPackageName) throws Exception {
-        if(currentPackageName == null){
-            // 根目录
-            currentPackageName = "";
-        } else {
-            if("".equals(currentPackageName)){
-                currentPackageName = file.getName();
-            } else {
-                currentPackageName = currentPackageName + Resource.PACKAGE_SPLIT + file.getName();
-            }
-            loadResource(resourceStorage, file, currentPackageName);
+    private void addResource(ResourceStorage resourceStorage, PathResource pathResource) throws Exception {
+        String name = pathResource.name;
+        URL resourceUrl = new URL(url.toString() + name);
+        if(pathResource.directory){
+            resourceStorage.add(name, resourceUrl);
+            return;
         }
-        if(file.isDirectory()){
-            File[] listFiles = file.listFiles();
-            if(listFiles == null || listFiles.length == 0){
-                return;
-            }
-            for (File subFile : listFiles) {
-                load(resourceStorage, subFile, currentPackageName);
+        Path path = pathResource.path;
+        LazyResourceByteGetter byteGetter = ()->{
+            if(isClass(name) && Files.isRegularFile(path)){
+                return getClassBytes(name, Files.newInputStream(path), true);
+            } else {
+                return null;
             }
-        }
+        };
+        resourceStorage.add(name, resourceUrl, byteGetter);
     }
 
-    private void loadResource(ResourceStorage resourceStorage, File file, String packageName) throws Exception{
-        if(file.isDirectory()){
-            addResource(resourceStorage, file, packageName + Resource.PACKAGE_SPLIT);
-        } else {
-            addResource(resourceStorage, file, packageName);
+    private static class PathResource {
+
+        private final String name;
+        private final Path path;
+        private final boolean directory;
+
+        private PathResource(String name, Path path, boolean directory) {
+            this.name = name;
+            this.path = path;
+            this.directory = directory;
         }
     }
 
-    private void addResource(ResourceStorage resourceStorage, File file, String packageName) throws Exception {
-        resourceStorage.add(packageName, new URL(url.toString() + packageName), ()->{
-            if(file.exists() && file.isFile()){
-                return getClassBytes(file.getPath(), new FileInputStream(file), true);
-            } else {
-                return null;
+    /**
+     * 遍历一个目录, 每个子目录拆分为单独的任务并行遍历
+     */
+    private static class WalkTask extends RecursiveAction {
+
+        private final Path dir;
+        private final String packageName;
+        private final Queue<PathResource> pathResources;
+
+        private WalkTask(Path dir, String packageName, Queue<PathResource> pathResources) {
+            this.dir = dir;
+            this.packageName = packageName;
+            this.pathResources = pathResources;
+        }
+
+        @Override
+        protected void compute() {
+            List<WalkTask> subTasks = new ArrayList<>();
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dir)){
+                for (Path path : directoryStream) {
+                    String name = packageName + path.getFileName().toString();
+                    if(Files.isDirectory(path)){
+                        name = name + Resource.PACKAGE_SPLIT;
+                        pathResources.add(new PathResource(name, path, true));
+                        subTasks.add(new WalkTask(path, name, pathResources));
+                    } else {
+                        pathResources.add(new PathResource(name, path, false));
+                    }
+                }
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
             }
-        });
+            invokeAll(subTasks);
+        }
     }
 
+    private static class WalkPoolHolder {
+        /**
+         * 目录遍历以 IO 等待为主, 线程数不少于 4. 空闲线程会自动回收
+         */
+        private static final ForkJoinPool POOL = new ForkJoinPool(
+                Math.max(4, Runtime.getRuntime().availableProcessors()));
+    }
 
 }
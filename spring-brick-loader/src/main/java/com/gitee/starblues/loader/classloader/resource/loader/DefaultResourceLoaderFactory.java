@@ -17,6 +17,8 @@
 package com.gitee.starblues.loader.classloader.resource.loader;
 
 import com.gitee.starblues.loader.classloader.resource.Resource;
+import com.gitee.starblues.loader.classloader.resource.ResourceByteGetter;
+import com.gitee.starblues.loader.classloader.resource.storage.DefaultResourceStorage;
 import com.gitee.starblues.loader.classloader.resource.storage.ResourceStorage;
 import com.gitee.starblues.loader.classloader.resource.storage.SameRootResourceStorage;
 import com.gitee.starblues.loader.launcher.ResourceLoaderFactoryGetter;
@@ -35,6 +37,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -42,12 +45,33 @@ import java.util.function.Function;
  * 默认的资源加载工厂
  *
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public class DefaultResourceLoaderFactory implements ResourceLoaderFactory{
 
     private final Map<URL, SameRootResourceStorage> resourceLoaderMap = new ConcurrentHashMap<>();
 
+    /**
+     * 包名 -> 包含该包资源的存储者集合. 按添加顺序存储
+     */
+    private final Map<String, List<SameRootResourceStorage>> packageIndexMap = new ConcurrentHashMap<>();
+
+    /**
+     * 根路径以及 META-INF 下的资源名称 -> 包含该资源的存储者集合. 按添加顺序存储.
+     * 几乎每个依赖包都包含这些路径, 按资源名称建立索引, 避免查找时加载全部依赖包
+     */
+    private final Map<String, List<SameRootResourceStorage>> resourceIndexMap = new ConcurrentHashMap<>();
+
+    /**
+     * 已加载的资源加载者. 延迟加载模式下需持有 jar 文件直到关闭
+     */
+    private final List<ResourceLoader> resourceLoaders = new CopyOnWriteArrayList<>();
+
+    private static final String ROOT_NAME = ResourceUtils.PACKAGE_SPLIT;
+    private static final String META_INF_NAME = "META-INF";
+    private static final String META_INF_PACKAGE_PREFIX = META_INF_NAME + ResourceUtils.PACKAGE_SPLIT;
+
     private final String classLoaderName;
 
     public DefaultResourceLoaderFactory(String classLoaderName) {
@@ -85,14 +109,15 @@ public class DefaultResourceLoaderFactory implements ResourceLoaderFactory{
     @Override
     public void addResource(URL url) throws Exception{
         AbstractResourceLoader resourceLoader = null;
+        boolean lazyLoad = ResourceLoaderFactoryGetter.isLazyLoad();
         if(ResourceUtils.isJarFileUrl(url)) {
             if(ResourceUtils.isJarProtocolUrl(url)){
                 resourceLoader = new JarResourceLoader(url);
             } else {
-                resourceLoader = new JarResourceLoader(Paths.get(url.toURI()).toFile());
+                resourceLoader = new JarResourceLoader(Paths.get(url.toURI()).toFile(), lazyLoad);
             }
         } else if(ResourceUtils.isZipFileUrl(url)){
-            resourceLoader = new JarResourceLoader(Paths.get(url.toURI()).toFile());
+            resourceLoader = new JarResourceLoader(Paths.get(url.toURI()).toFile(), lazyLoad);
         } else if(ResourceUtils.isFileUrl(url)){
             resourceLoader = new ClassPathLoader(url);
         }
@@ -109,19 +134,68 @@ public class DefaultResourceLoaderFactory implements ResourceLoaderFactory{
         if (resourceLoaderMap.containsKey(resourceLoader.getBaseUrl())) {
             return;
         }
+        if(resourceLoader instanceof IndexedResourceLoader){
+            addIndexedResource((IndexedResourceLoader) resourceLoader);
+            return;
+        }
         SameRootResourceStorage resourceStorage = ResourceLoaderFactoryGetter.getResourceStorage(
                 classLoaderName,
                 resourceLoader.getBaseUrl());
         resourceLoader.load(resourceStorage);
-        if(!resourceStorage.isEmpty()){
-            resourceLoaderMap.put(resourceLoader.getBaseUrl(), resourceStorage);
+        if(resourceStorage.isEmpty()){
+            IOUtils.closeQuietly(resourceStorage);
+            IOUtils.closeQuietly(resourceLoader);
+            return;
+        }
+        if(resourceLoaderMap.putIfAbsent(resourceLoader.getBaseUrl(), resourceStorage) == null){
+            Set<String> packageNames = new HashSet<>();
+            Set<String> resourceNames = new HashSet<>();
+            for (Resource resource : resourceStorage.getAll()) {
+                String name = ResourceUtils.formatStandardName(resource.getName());
+                String packageName = getPackageName(name);
+                if(isResourceIndex(packageName)){
+                    resourceNames.add(name);
+                } else {
+                    packageNames.add(packageName);
+                }
+            }
+            addIndex(packageIndexMap, resourceStorage, packageNames);
+            addIndex(resourceIndexMap, resourceStorage, resourceNames);
+            resourceLoaders.add(resourceLoader);
+        } else {
+            // 并发添加了相同的资源, 释放当前的存储
+            IOUtils.closeQuietly(resourceStorage);
+            IOUtils.closeQuietly(resourceLoader);
+        }
+    }
+
+    /**
+     * 添加带有索引的资源. 只根据索引注册包名和资源名称, 资源在第一次访问所在包或者资源时才加载
+     * @param resourceLoader 带有索引的资源加载者
+     */
+    private void addIndexedResource(IndexedResourceLoader resourceLoader){
+        DeferredResourceStorage resourceStorage = new DeferredResourceStorage(resourceLoader);
+        if(resourceLoaderMap.putIfAbsent(resourceLoader.getBaseUrl(), resourceStorage) == null){
+            Set<String> packageNames = new HashSet<>();
+            for (String packageName : resourceLoader.getPackageNames()) {
+                if(!isResourceIndex(packageName)){
+                    packageNames.add(packageName);
+                }
+            }
+            Set<String> resourceNames = new HashSet<>(resourceLoader.getResourceNames());
+            // 根路径资源总是存在, 无需加载即可获取
+            resourceNames.add(ROOT_NAME);
+            addIndex(packageIndexMap, resourceStorage, packageNames);
+            addIndex(resourceIndexMap, resourceStorage, resourceNames);
+            resourceLoaders.add(resourceLoader);
+        } else {
+            IOUtils.closeQuietly(resourceLoader);
         }
     }
 
     @Override
     public Resource findResource(String name) {
-        for (Map.Entry<URL, SameRootResourceStorage> entry : resourceLoaderMap.entrySet()) {
-            ResourceStorage resourceStorage = entry.getValue();
+        for (SameRootResourceStorage resourceStorage : getIndexStorages(name)) {
             Resource resource = resourceStorage.get(name);
             if(resource != null){
                 return resource;
@@ -133,7 +207,7 @@ public class DefaultResourceLoaderFactory implements ResourceLoaderFactory{
     @Override
     public Enumeration<Resource> findResources(String name) {
         return new Enumeration<Resource>() {
-            private final List<SameRootResourceStorage> list  = new ArrayList<>(resourceLoaderMap.values());
+            private final List<SameRootResourceStorage> list = getIndexStorages(name);
             private int index = 0;
             private Resource resource = null;
 
@@ -180,8 +254,7 @@ public class DefaultResourceLoaderFactory implements ResourceLoaderFactory{
 
     @Override
     public InputStream getInputStream(String name) {
-        for (Map.Entry<URL, SameRootResourceStorage> entry : resourceLoaderMap.entrySet()) {
-            ResourceStorage resourceStorage = entry.getValue();
+        for (SameRootResourceStorage resourceStorage : getIndexStorages(name)) {
             InputStream inputStream = resourceStorage.getInputStream(name);
             if(inputStream != null){
                 return inputStream;
@@ -201,6 +274,163 @@ public class DefaultResourceLoaderFactory implements ResourceLoaderFactory{
             IOUtils.closeQuietly(resourceStorage);
         }
         resourceLoaderMap.clear();
+        packageIndexMap.clear();
+        resourceIndexMap.clear();
+        for (ResourceLoader resourceLoader : resourceLoaders) {
+            IOUtils.closeQuietly(resourceLoader);
+        }
+        resourceLoaders.clear();
+    }
+
+    /**
+     * 将存储者按包名或者资源名称建立索引
+     * @param indexMap 索引
+     * @param resourceStorage 资源存储者
+     * @param keys 存储者中资源所在的包名集合或者资源名称集合
+     */
+    private static void addIndex(Map<String, List<SameRootResourceStorage>> indexMap,
+                                 SameRootResourceStorage resourceStorage, Set<String> keys){
+        for (String key : keys) {
+            indexMap.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(resourceStorage);
+        }
+    }
+
+    /**
+     * 根据资源名称获取可能包含该资源的存储者. 根路径以及 META-INF 下的资源按名称查找, 其他资源按所在包查找
+     * @param name 资源名称
+     * @return 存储者集合, 不存在则返回空集合
+     */
+    private List<SameRootResourceStorage> getIndexStorages(String name){
+        String standardName = ResourceUtils.formatStandardName(name);
+        String packageName = getPackageName(standardName);
+        List<SameRootResourceStorage> resourceStorages;
+        if(isResourceIndex(packageName)){
+            resourceStorages = resourceIndexMap.get(standardName);
+        } else {
+            resourceStorages = packageIndexMap.get(packageName);
+        }
+        if(resourceStorages == null){
+            return Collections.emptyList();
+        }
+        return resourceStorages;
+    }
+
+    /**
+     * 获取标准资源名称的包名. 例如: a/b/c.class 的包名为 a/b
+     * @param standardName 标准资源名称
+     * @return 包名
+     */
+    private static String getPackageName(String standardName){
+        int index = standardName.lastIndexOf(ResourceUtils.PACKAGE_SPLIT);
+        if(index <= 0){
+            return "";
+        }
+        return standardName.substring(0, index);
+    }
+
+    /**
+     * 该包中的资源是否按资源名称建立索引. 根路径以及 META-INF 下的资源按名称建立索引
+     * @param packageName 包名
+     * @return boolean
+     */
+    private static boolean isResourceIndex(String packageName){
+        return "".equals(packageName) || META_INF_NAME.equals(packageName)
+                || packageName.startsWith(META_INF_PACKAGE_PREFIX);
+    }
+
+    /**
+     * 延迟加载的资源存储者. 第一次访问时才通过资源加载者将资源加载到真实的存储者中
+     */
+    private class DeferredResourceStorage extends SameRootResourceStorage {
+
+        private final ResourceLoader resourceLoader;
+        private volatile SameRootResourceStorage resourceStorage;
+        private boolean closed = false;
+
+        private DeferredResourceStorage(ResourceLoader resourceLoader) {
+            super(resourceLoader.getBaseUrl());
+            this.resourceLoader = resourceLoader;
+        }
+
+        @Override
+        public void add(String name, URL url, ResourceByteGetter byteGetter) throws Exception {
+            getResourceStorage().add(name, url, byteGetter);
+        }
+
+        @Override
+        public void add(String name, URL url) throws Exception {
+            getResourceStorage().add(name, url);
+        }
+
+        @Override
+        public boolean exist(String name) {
+            if(resourceStorage == null && isRoot(name)){
+                return true;
+            }
+            return getResourceStorage().exist(name);
+        }
+
+        @Override
+        public Resource get(String name) {
+            if(resourceStorage == null && isRoot(name)){
+                // 根路径资源无需加载依赖包
+                return new DefaultResource(ROOT_NAME, baseUrl, baseUrl);
+            }
+            return getResourceStorage().get(name);
+        }
+
+        private boolean isRoot(String name){
+            return name != null && ROOT_NAME.equals(ResourceUtils.formatStandardName(name));
+        }
+
+        @Override
+        public InputStream getInputStream(String name) {
+            return getResourceStorage().getInputStream(name);
+        }
+
+        @Override
+        public List<Resource> getAll() {
+            return getResourceStorage().getAll();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getResourceStorage().isEmpty();
+        }
+
+        @Override
+        public synchronized void close() throws Exception {
+            closed = true;
+            if(resourceStorage != null){
+                IOUtils.closeQuietly(resourceStorage);
+            }
+        }
+
+        private SameRootResourceStorage getResourceStorage(){
+            SameRootResourceStorage storage = resourceStorage;
+            if(storage != null){
+                return storage;
+            }
+            synchronized (this){
+                if(resourceStorage != null){
+                    return resourceStorage;
+                }
+                if(closed){
+                    return new DefaultResourceStorage(baseUrl);
+                }
+                storage = ResourceLoaderFactoryGetter.getResourceStorage(classLoaderName, baseUrl);
+                try {
+                    resourceLoader.load(storage);
+                    resourceStorage = storage;
+                    return storage;
+                } catch (Exception e){
+                    // 加载失败后不再重复加载
+                    IOUtils.closeQuietly(storage);
+                    resourceStorage = new DefaultResourceStorage(baseUrl);
+                    throw new IllegalStateException("加载资源失败: " + baseUrl, e);
+                }
+            }
+        }
     }
 
 }
@@ -0,0 +1,104 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gitee.starblues.loader.classloader.resource.loader;
+
+import com.gitee.starblues.loader.classloader.resource.storage.ResourceStorage;
+import com.gitee.starblues.loader.utils.Assert;
+import com.gitee.starblues.loader.utils.IOUtils;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 带有索引的资源加载者. 索引在打包时生成, 包含资源所在的包名, 以及根路径和 META-INF 下的资源名称.
+ * 资源加载工厂可根据索引延迟到第一次访问所在包或者资源时才加载资源, 不支持延迟加载的场景下直接加载资源
+ *
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class IndexedResourceLoader implements ResourceLoader{
+
+    private final URL baseUrl;
+    private final Set<String> packageNames;
+    private final Set<String> resourceNames;
+    private final ResourceLoaderCreator creator;
+
+    private ResourceLoader resourceLoader;
+
+    public IndexedResourceLoader(URL baseUrl, Set<String> packageNames, Set<String> resourceNames,
+                                 ResourceLoaderCreator creator) {
+        this.baseUrl = Assert.isNotNull(baseUrl, "baseUrl 不能为空");
+        this.packageNames = packageNames == null ? Collections.emptySet() : packageNames;
+        this.resourceNames = resourceNames == null ? Collections.emptySet() : resourceNames;
+        this.creator = Assert.isNotNull(creator, "creator 不能为空");
+    }
+
+    @Override
+    public URL getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * 获取资源所在的包名索引
+     * @return 包名集合, 不包含根路径
+     */
+    public Set<String> getPackageNames() {
+        return packageNames;
+    }
+
+    /**
+     * 获取根路径以及 META-INF 下的资源名称索引. 这些资源按名称建立索引, 不按包名建立索引
+     * @return 资源名称集合, 不包含根路径本身
+     */
+    public Set<String> getResourceNames() {
+        return resourceNames;
+    }
+
+    @Override
+    public synchronized void load(ResourceStorage resourceStorage) throws Exception {
+        if(resourceLoader != null){
+            throw new Exception(this.getClass().getName()+": 已经初始化了, 不能再初始化!");
+        }
+        resourceLoader = creator.create();
+        resourceLoader.load(resourceStorage);
+    }
+
+    @Override
+    public synchronized void close() throws Exception {
+        if(resourceLoader != null){
+            IOUtils.closeQuietly(resourceLoader);
+        }
+    }
+
+    /**
+     * 真实资源加载者的创建者
+     */
+    @FunctionalInterface
+    public interface ResourceLoaderCreator {
+
+        /**
+         * 创建资源加载者
+         * @return ResourceLoader
+         * @throws Exception 创建异常
+         */
+        ResourceLoader create() throws Exception;
+
+    }
+
+}
@@ -18,41 +18,83 @@ package com.gitee.starblues.loader.classloader.resource.loader;
 
 import com.gitee.starblues.loader.classloader.filter.ExcludeResource;
 import com.gitee.starblues.loader.classloader.filter.IncludeResource;
+import com.gitee.starblues.loader.classloader.resource.LazyResourceByteGetter;
 import com.gitee.starblues.loader.classloader.resource.storage.ResourceStorage;
+import com.gitee.starblues.loader.utils.IOUtils;
 
 import java.io.File;
 import java.net.URL;
+import java.util.Enumeration;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
 
 /**
  * jar 资源加载者
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public class JarResourceLoader extends AbstractResourceLoader {
 
     private final JarInputStream jarInputStream;
 
+    /**
+     * 延迟加载模式下的 jar 文件, 非延迟加载模式为 null
+     */
+    private final File lazyFile;
+    private JarFile jarFile;
+
     private ExcludeResource excludeResource = (jarEntry)->false;
     private IncludeResource includeResource = (jarEntry)->true;
 
     public JarResourceLoader(File file)  throws Exception{
+        this(file, false);
+    }
+
+    /**
+     * 根据文件创建 jar 资源加载者
+     * @param file jar 文件
+     * @param lazy 是否延迟加载. 延迟加载时只读取 jar 的中央目录, 资源字节在使用时才从 jar 中读取
+     * @throws Exception 创建异常
+     */
+    public JarResourceLoader(File file, boolean lazy)  throws Exception{
         super(new URL("jar:" + file.toURI().toURL() + "!/"));
-        URL url = file.toURI().toURL();
-        this.jarInputStream = new JarInputStream(url.openStream());
+        if(lazy){
+            this.lazyFile = file;
+            this.jarInputStream = null;
+        } else {
+            this.lazyFile = null;
+            URL url = file.toURI().toURL();
+            this.jarInputStream = new JarInputStream(url.openStream());
+        }
     }
 
     public JarResourceLoader(URL url)  throws Exception{
         super(url);
+        this.lazyFile = null;
         this.jarInputStream = new JarInputStream(url.openStream());
     }
 
     public JarResourceLoader(URL url, JarInputStream jarInputStream)  throws Exception{
         super(url);
+        this.lazyFile = null;
         this.jarInputStream = jarInputStream;
     }
 
+    /**
+     * 根据已打开的 jar 文件创建延迟加载的资源加载者, 例如插件包中嵌套的存储(STORED)依赖包. 关闭时同时关闭该 jar 文件
+     * @param url jar 的 url
+     * @param jarFile 已打开的 jar 文件
+     * @throws Exception 创建异常
+     */
+    public JarResourceLoader(URL url, JarFile jarFile)  throws Exception{
+        super(url);
+        this.lazyFile = null;
+        this.jarInputStream = null;
+        this.jarFile = jarFile;
+    }
+
     public void setExcludeResource(ExcludeResource excludeResource) {
         if(excludeResource == null){
             return;
@@ -69,6 +111,10 @@ public class JarResourceLoader extends AbstractResourceLoader {
 
     @Override
     protected void loadOfChild(ResourceStorage resourceStorage) throws Exception {
+        if(lazyFile != null || jarFile != null){
+            loadOfLazy(resourceStorage);
+            return;
+        }
         // 解析
         try {
             JarEntry jarEntry = null;
@@ -90,8 +136,52 @@ public class JarResourceLoader extends AbstractResourceLoader {
         }
     }
 
+    /**
+     * 延迟加载. 只读取 jar 中央目录中的条目, 资源字节在使用时才读取
+     * @param resourceStorage 资源存储者
+     * @throws Exception 加载异常
+     */
+    private void loadOfLazy(ResourceStorage resourceStorage) throws Exception {
+        final JarFile lazyJarFile = jarFile != null ? jarFile : new JarFile(lazyFile);
+        this.jarFile = lazyJarFile;
+        boolean success = false;
+        try {
+            Enumeration<JarEntry> entries = lazyJarFile.entries();
+            while (entries.hasMoreElements()){
+                JarEntry jarEntry = entries.nextElement();
+                if(excludeResource.exclude(jarEntry)){
+                    continue;
+                }
+                if(includeResource.include(jarEntry)){
+                    String name = resolveName(jarEntry.getName());
+                    URL url = new URL(baseUrl.toString() + name);
+                    LazyResourceByteGetter byteGetter = ()->{
+                        if(!isClass(name)){
+                            return null;
+                        }
+                        return getClassBytes(name, lazyJarFile.getInputStream(jarEntry), true);
+                    };
+                    resourceStorage.add(name, url, byteGetter);
+                }
+            }
+            success = true;
+        } finally {
+            if(!success){
+                close();
+            }
+        }
+    }
+
     protected String resolveName(String name){
         return name;
     }
 
+    @Override
+    public void close() throws Exception {
+        if(jarFile != null){
+            IOUtils.closeQuietly(jarFile);
+            jarFile = null;
+        }
+    }
+
 }
@@ -0,0 +1,225 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gitee.starblues.loader.classloader.resource.storage;
+
+import com.gitee.starblues.loader.classloader.resource.LazyResourceByteGetter;
+import com.gitee.starblues.loader.classloader.resource.ResourceByteGetter;
+import com.gitee.starblues.loader.classloader.resource.loader.DefaultResource;
+import com.gitee.starblues.loader.utils.IOUtils;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 限制大小的缓存资源存储者.
+ * 所有该类型的存储者共享一个字节预算, 超出预算时使用 CLOCK(二次机会)算法淘汰最近未使用的资源字节.
+ * 被淘汰的资源再次使用时, 从原始的 jar(延迟加载模式下的 JarFile 句柄)或者资源 URL 重新读取
+ *
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class BoundedCacheResourceStorage extends DefaultResourceStorage{
+
+    /**
+     * 默认的缓存字节预算: 64MB
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final AtomicLong MAX_BYTES = new AtomicLong(DEFAULT_MAX_BYTES);
+    private static final AtomicLong CURRENT_BYTES = new AtomicLong(0);
+    private static final Queue<BoundedResource> RESIDENT_QUEUE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger RESIDENT_QUEUE_SIZE = new AtomicInteger(0);
+
+    public BoundedCacheResourceStorage(URL baseUrl) {
+        super(baseUrl);
+    }
+
+    /**
+     * 设置所有存储者共享的缓存字节预算
+     * @param maxBytes 最大字节数
+     */
+    public static void setMaxBytes(long maxBytes){
+        if(maxBytes < 0){
+            maxBytes = 0;
+        }
+        MAX_BYTES.set(maxBytes);
+        evict();
+    }
+
+    /**
+     * 得到当前缓存的字节数
+     * @return 字节数
+     */
+    public static long getCurrentBytes(){
+        return CURRENT_BYTES.get();
+    }
+
+    @Override
+    public void add(String name, URL url, ResourceByteGetter byteGetter) throws Exception{
+        name = formatResourceName(name);
+        if(resourceStorage.containsKey(name)){
+            return;
+        }
+        BoundedResource boundedResource = new BoundedResource(name, baseUrl, url);
+        boundedResource.setBytes(byteGetter);
+        addResource(name, boundedResource);
+    }
+
+    /**
+     * 淘汰资源直到缓存字节数不超过预算. 最近被使用过的资源清除使用标记后获得二次机会
+     */
+    private static void evict(){
+        int chances = RESIDENT_QUEUE_SIZE.get() * 2 + 1;
+        while (CURRENT_BYTES.get() > MAX_BYTES.get() && chances-- > 0){
+            BoundedResource resource = RESIDENT_QUEUE.poll();
+            if(resource == null){
+                return;
+            }
+            RESIDENT_QUEUE_SIZE.decrementAndGet();
+            if(resource.bytes == null){
+                // 已被淘汰或者已关闭
+                continue;
+            }
+            if(resource.referenced){
+                resource.referenced = false;
+                offer(resource);
+            } else {
+                resource.evict();
+            }
+        }
+    }
+
+    private static void offer(BoundedResource resource){
+        RESIDENT_QUEUE_SIZE.incrementAndGet();
+        RESIDENT_QUEUE.offer(resource);
+    }
+
+    @Override
+    public void close() throws Exception {
+        super.close();
+        // 移除已关闭的资源
+        RESIDENT_QUEUE.removeIf(resource -> {
+            if(resource.closed){
+                RESIDENT_QUEUE_SIZE.decrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static class BoundedResource extends DefaultResource {
+
+        private volatile byte[] bytes;
+        private volatile boolean referenced;
+        private volatile ResourceByteGetter lazyByteGetter;
+        private volatile boolean closed;
+
+        public BoundedResource(String name, URL baseUrl, URL url) {
+            super(name, baseUrl, url);
+        }
+
+        @Override
+        public void setBytes(ResourceByteGetter byteGetter) throws Exception{
+            if(byteGetter == null){
+                return;
+            }
+            if(byteGetter instanceof LazyResourceByteGetter){
+                // 延迟到第一次使用时获取, 并保留用于淘汰后重新读取
+                lazyByteGetter = byteGetter;
+                return;
+            }
+            admit(byteGetter.get());
+        }
+
+        @Override
+        public byte[] getBytes() {
+            byte[] bytes = this.bytes;
+            if(bytes != null){
+                referenced = true;
+                return bytes;
+            }
+            synchronized (this){
+                bytes = this.bytes;
+                if(bytes != null){
+                    referenced = true;
+                    return bytes;
+                }
+                try {
+                    bytes = read();
+                } catch (Exception e){
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+            admit(bytes);
+            return bytes;
+        }
+
+        private byte[] read() throws Exception {
+            ResourceByteGetter byteGetter = lazyByteGetter;
+            if(byteGetter != null){
+                return byteGetter.get();
+            }
+            URL url = getUrl();
+            if(url == null){
+                return null;
+            }
+            try (InputStream inputStream = url.openStream()){
+                return IOUtils.read(inputStream);
+            }
+        }
+
+        private void admit(byte[] bytes){
+            if(bytes == null){
+                return;
+            }
+            synchronized (this){
+                if(closed || this.bytes != null){
+                    return;
+                }
+                this.bytes = bytes;
+                this.referenced = true;
+                CURRENT_BYTES.addAndGet(bytes.length);
+            }
+            offer(this);
+            BoundedCacheResourceStorage.evict();
+        }
+
+        private synchronized void evict(){
+            byte[] bytes = this.bytes;
+            if(bytes != null){
+                this.bytes = null;
+                CURRENT_BYTES.addAndGet(-bytes.length);
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            synchronized (this){
+                closed = true;
+                lazyByteGetter = null;
+            }
+            evict();
+        }
+    }
+
+}
@@ -17,6 +17,7 @@
 package com.gitee.starblues.loader.classloader.resource.storage;
 
 import com.gitee.starblues.loader.classloader.resource.loader.DefaultResource;
+import com.gitee.starblues.loader.classloader.resource.LazyResourceByteGetter;
 import com.gitee.starblues.loader.classloader.resource.Resource;
 import com.gitee.starblues.loader.classloader.resource.ResourceByteGetter;
 
@@ -28,7 +29,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * 可缓存的资源存储者
  *
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public class CacheResourceStorage extends DefaultResourceStorage{
 
@@ -51,7 +53,8 @@ public class CacheResourceStorage extends DefaultResourceStorage{
 
     private static class CacheResource extends DefaultResource {
 
-        private byte[] bytes;
+        private volatile byte[] bytes;
+        private volatile ResourceByteGetter lazyByteGetter;
 
         public CacheResource(String name, URL baseUrl, URL url) {
             super(name, baseUrl, url);
@@ -62,12 +65,30 @@ public class CacheResourceStorage extends DefaultResourceStorage{
             if(byteGetter == null){
                 return;
             }
-            // 忽略
+            if(byteGetter instanceof LazyResourceByteGetter){
+                // 延迟到第一次使用时获取
+                lazyByteGetter = byteGetter;
+                return;
+            }
             bytes = byteGetter.get();
         }
 
         @Override
         public byte[] getBytes() {
+            if(bytes == null && lazyByteGetter != null){
+                synchronized (this){
+                    ResourceByteGetter byteGetter = lazyByteGetter;
+                    if(bytes == null && byteGetter != null){
+                        try {
+                            bytes = byteGetter.get();
+                        } catch (Exception e){
+                            e.printStackTrace();
+                            return null;
+                        }
+                        lazyByteGetter = null;
+                    }
+                }
+            }
             return bytes;
         }
     }
@@ -0,0 +1,276 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gitee.starblues.loader.classloader.resource.storage;
+
+import com.gitee.starblues.loader.classloader.resource.LazyResourceByteGetter;
+import com.gitee.starblues.loader.classloader.resource.ResourceByteGetter;
+import com.gitee.starblues.loader.classloader.resource.loader.DefaultResource;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 堆外内存资源存储者. 资源字节存储在直接内存(DirectByteBuffer)的分块中, 不占用 java 堆,
+ * 获取时拷贝出新的字节数组. 直接内存不足时回退为堆内存储.
+ * 关闭时立即释放全部直接内存分块, 不等待 GC. 读取与释放互斥, 关闭后读取资源返回 null
+ *
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class OffHeapResourceStorage extends DefaultResourceStorage{
+
+    /**
+     * 每个直接内存分块的大小
+     */
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    private static final BufferCleaner BUFFER_CLEANER = BufferCleaner.create();
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer currentChunk;
+
+    /**
+     * 读取直接内存时持有读锁, 释放直接内存时持有写锁
+     */
+    private final ReadWriteLock releaseLock = new ReentrantReadWriteLock();
+    private volatile boolean closed = false;
+
+    public OffHeapResourceStorage(URL baseUrl) {
+        super(baseUrl);
+    }
+
+    @Override
+    public void add(String name, URL url, ResourceByteGetter byteGetter) throws Exception{
+        name = formatResourceName(name);
+        if(resourceStorage.containsKey(name)){
+            return;
+        }
+        OffHeapResource offHeapResource = new OffHeapResource(name, baseUrl, url, this);
+        offHeapResource.setBytes(byteGetter);
+        addResource(name, offHeapResource);
+    }
+
+    /**
+     * 将字节写入直接内存
+     * @param bytes 字节
+     * @return 存储字节的区域, 直接内存不足时返回 null
+     */
+    synchronized ByteBuffer store(byte[] bytes){
+        if(closed){
+            return null;
+        }
+        try {
+            ByteBuffer region;
+            if(bytes.length > CHUNK_SIZE / 4){
+                // 大资源单独分配
+                region = ByteBuffer.allocateDirect(bytes.length);
+                chunks.add(region);
+            } else {
+                if(currentChunk == null || currentChunk.remaining() < bytes.length){
+                    currentChunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+                    chunks.add(currentChunk);
+                }
+                region = currentChunk.slice();
+                region.limit(bytes.length);
+                currentChunk.position(currentChunk.position() + bytes.length);
+            }
+            region.put(bytes);
+            region.flip();
+            return region.asReadOnlyBuffer();
+        } catch (OutOfMemoryError e){
+            // 直接内存不足
+            return null;
+        }
+    }
+
+    /**
+     * 从直接内存中拷贝出字节
+     * @param region 存储字节的区域
+     * @return 字节, 已关闭时返回 null
+     */
+    byte[] read(ByteBuffer region){
+        releaseLock.readLock().lock();
+        try {
+            if(closed){
+                return null;
+            }
+            ByteBuffer duplicate = region.duplicate();
+            byte[] bytes = new byte[duplicate.remaining()];
+            duplicate.get(bytes);
+            return bytes;
+        } finally {
+            releaseLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        super.close();
+        List<ByteBuffer> releaseChunks;
+        synchronized (this){
+            releaseChunks = new ArrayList<>(chunks);
+            chunks.clear();
+            currentChunk = null;
+        }
+        releaseLock.writeLock().lock();
+        try {
+            closed = true;
+            for (ByteBuffer chunk : releaseChunks) {
+                BUFFER_CLEANER.clean(chunk);
+            }
+        } finally {
+            releaseLock.writeLock().unlock();
+        }
+    }
+
+    private static class OffHeapResource extends DefaultResource {
+
+        private final OffHeapResourceStorage storage;
+
+        private volatile ByteBuffer region;
+        private volatile byte[] heapBytes;
+        private volatile ResourceByteGetter lazyByteGetter;
+
+        public OffHeapResource(String name, URL baseUrl, URL url, OffHeapResourceStorage storage) {
+            super(name, baseUrl, url);
+            this.storage = storage;
+        }
+
+        @Override
+        public void setBytes(ResourceByteGetter byteGetter) throws Exception{
+            if(byteGetter == null){
+                return;
+            }
+            if(byteGetter instanceof LazyResourceByteGetter){
+                // 延迟到第一次使用时获取
+                lazyByteGetter = byteGetter;
+                return;
+            }
+            storeBytes(byteGetter.get());
+        }
+
+        private void storeBytes(byte[] bytes){
+            if(bytes == null){
+                return;
+            }
+            ByteBuffer region = storage.store(bytes);
+            if(region == null){
+                heapBytes = bytes;
+            } else {
+                this.region = region;
+            }
+        }
+
+        @Override
+        public byte[] getBytes() {
+            if(region == null && heapBytes == null && lazyByteGetter != null){
+                synchronized (this){
+                    ResourceByteGetter byteGetter = lazyByteGetter;
+                    if(region == null && heapBytes == null && byteGetter != null){
+                        try {
+                            byte[] bytes = byteGetter.get();
+                            lazyByteGetter = null;
+                            storeBytes(bytes);
+                            return bytes;
+                        } catch (Exception e){
+                            e.printStackTrace();
+                            return null;
+                        }
+                    }
+                }
+            }
+            ByteBuffer region = this.region;
+            if(region != null){
+                return storage.read(region);
+            }
+            return heapBytes;
+        }
+
+        @Override
+        public void close() throws Exception {
+            region = null;
+            heapBytes = null;
+            lazyByteGetter = null;
+        }
+    }
+
+    /**
+     * 立即释放直接内存. jdk9 及以上使用 Unsafe.invokeCleaner, jdk8 使用 DirectByteBuffer 的 Cleaner.
+     * 都不可用时不释放, 由 GC 回收
+     */
+    private static abstract class BufferCleaner {
+
+        abstract void clean(ByteBuffer buffer);
+
+        static BufferCleaner create(){
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                Object unsafe = theUnsafe.get(null);
+                return new BufferCleaner() {
+                    @Override
+                    void clean(ByteBuffer buffer) {
+                        try {
+                            invokeCleaner.invoke(unsafe, buffer);
+                        } catch (Exception e){
+                            // 忽略, 由 GC 回收
+                        }
+                    }
+                };
+            } catch (Exception e){
+                // jdk8 没有 invokeCleaner
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1);
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Method cleanMethod = cleanerMethod.getReturnType().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                return new BufferCleaner() {
+                    @Override
+                    void clean(ByteBuffer buffer) {
+                        try {
+                            Object cleaner = cleanerMethod.invoke(buffer);
+                            if(cleaner != null){
+                                cleanMethod.invoke(cleaner);
+                            }
+                        } catch (Exception e){
+                            // 忽略, 由 GC 回收
+                        }
+                    }
+                };
+            } catch (Exception e){
+                return new BufferCleaner() {
+                    @Override
+                    void clean(ByteBuffer buffer) {
+                        // 不支持时由 GC 回收
+                    }
+                };
+            }
+        }
+    }
+
+}
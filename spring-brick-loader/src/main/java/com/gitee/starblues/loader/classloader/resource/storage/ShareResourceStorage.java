@@ -17,23 +17,37 @@
 package com.gitee.starblues.loader.classloader.resource.storage;
 
 import com.gitee.starblues.loader.classloader.resource.loader.DefaultResource;
+import com.gitee.starblues.loader.classloader.resource.LazyResourceByteGetter;
 import com.gitee.starblues.loader.classloader.resource.ResourceByteGetter;
-import com.gitee.starblues.loader.utils.Assert;
 
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 共享资源存储者
+ * 共享资源存储者.
+ * 资源字节按内容摘要(SHA-256)全局共享存储, 不同插件中相同的资源只存储一份,
+ * 并进行引用计数, 最后一个引用的资源关闭时释放
  *
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public class ShareResourceStorage extends DefaultResourceStorage{
 
+    private final static Map<ContentKey, SharedBytes> CONTENT_MAP = new ConcurrentHashMap<>();
+
+    private final static ThreadLocal<MessageDigest> MESSAGE_DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     private final String key;
 
     public ShareResourceStorage(String key, URL baseUrl) {
@@ -41,25 +55,57 @@ public class ShareResourceStorage extends DefaultResourceStorage{
         this.key = key;
     }
 
+    public String getKey() {
+        return key;
+    }
+
     @Override
     public void add(String name, URL url, ResourceByteGetter byteGetter) throws Exception{
         name = formatResourceName(name);
         if(resourceStorage.containsKey(name)){
             return;
         }
-        ShareResource shareResource = new ShareResource(key, name, baseUrl, url);
+        ShareResource shareResource = new ShareResource(name, baseUrl, url);
         shareResource.setBytes(byteGetter);
         super.addResource(name, shareResource);
     }
 
+    /**
+     * 引用共享的字节. 相同内容已存在时引用计数加一, 否则存储当前字节
+     * @param contentKey 内容key
+     * @param bytes 字节
+     * @return 共享的字节
+     */
+    private static byte[] acquire(ContentKey contentKey, byte[] bytes){
+        SharedBytes sharedBytes = CONTENT_MAP.compute(contentKey, (k, v) -> {
+            if(v == null){
+                return new SharedBytes(bytes);
+            }
+            v.refCount++;
+            return v;
+        });
+        return sharedBytes.bytes;
+    }
+
+    /**
+     * 释放共享的字节. 引用计数为0时移除
+     * @param contentKey 内容key
+     */
+    private static void release(ContentKey contentKey){
+        CONTENT_MAP.computeIfPresent(contentKey, (k, v) -> {
+            v.refCount--;
+            return v.refCount <= 0 ? null : v;
+        });
+    }
+
     private static class ShareResource extends DefaultResource {
 
-        private final static Map<String, ByteStore> BYTE_STORE_MAP = new ConcurrentHashMap<>();
-        private final String key;
+        private volatile ResourceByteGetter lazyByteGetter;
+        private volatile byte[] bytes;
+        private ContentKey contentKey;
 
-        public ShareResource(String key, String name, URL baseUrl, URL url) {
+        public ShareResource(String name, URL baseUrl, URL url) {
             super(name, baseUrl, url);
-            this.key = key;
         }
 
         @Override
@@ -67,87 +113,102 @@ public class ShareResourceStorage extends DefaultResourceStorage{
             if(byteGetter == null){
                 return;
             }
-            byte[] bytes = byteGetter.get();
-            String name = getName();
-            ByteStore byteStore = BYTE_STORE_MAP.get(name);
-            if(byteStore == null){
-                byteStore = new ByteStore(name);
-                byteStore.addByte(key, bytes);
-                BYTE_STORE_MAP.put(getName(), byteStore);
-            } else {
-                byteStore.addByte(key, bytes);
+            if(byteGetter instanceof LazyResourceByteGetter){
+                // 延迟到第一次使用时获取
+                lazyByteGetter = byteGetter;
+                return;
+            }
+            storeBytes(byteGetter.get());
+        }
+
+        private synchronized void storeBytes(byte[] bytes){
+            if(bytes == null || bytes.length == 0 || contentKey != null){
+                this.bytes = bytes;
+                return;
             }
+            ContentKey contentKey = ContentKey.of(bytes);
+            this.bytes = acquire(contentKey, bytes);
+            this.contentKey = contentKey;
         }
 
         @Override
         public byte[] getBytes() {
-            String name = getName();
-            ByteStore byteStore = BYTE_STORE_MAP.get(name);
-            if(byteStore == null){
-                return null;
+            if(bytes == null && lazyByteGetter != null){
+                synchronized (this){
+                    ResourceByteGetter byteGetter = lazyByteGetter;
+                    if(bytes == null && byteGetter != null){
+                        try {
+                            storeBytes(byteGetter.get());
+                        } catch (Exception e){
+                            e.printStackTrace();
+                            return null;
+                        }
+                        lazyByteGetter = null;
+                    }
+                }
             }
-            return byteStore.getByte(key);
+            return bytes;
         }
 
         @Override
-        public void close() throws Exception {
-            String name = getName();
-            ByteStore byteStore = BYTE_STORE_MAP.get(name);
-            if(byteStore == null){
-                return;
-            }
-            if(byteStore.remove(key)){
-                BYTE_STORE_MAP.remove(name);
+        public synchronized void close() throws Exception {
+            lazyByteGetter = null;
+            bytes = null;
+            if(contentKey != null){
+                release(contentKey);
+                contentKey = null;
             }
         }
     }
 
-    private static class ByteStore{
-
-        private final String commonByteKey;
+    /**
+     * 共享的字节及其引用计数. 引用计数只在 CONTENT_MAP 的 compute 中修改
+     */
+    private static class SharedBytes {
+        private final byte[] bytes;
+        private int refCount;
 
-        private final Map<String, byte[]> bytesMap = new HashMap<>();
-
-        private ByteStore(String resourceName) {
-            this.commonByteKey = resourceName + "_ByteStoreCommon";
+        private SharedBytes(byte[] bytes) {
+            this.bytes = bytes;
+            this.refCount = 1;
         }
+    }
 
-        public synchronized void addByte(String key, byte[] bytes){
-            Assert.isNotEmpty(key, "classLoaderName 不能为空");
-            if(bytes == null || bytes.length == 0){
-                return;
-            }
-            byte[] bytesOfMap = bytesMap.get(commonByteKey);
-            if(bytesOfMap != null && bytesOfMap.length > 0){
-                if(Arrays.equals(bytesOfMap, bytes)){
-                    bytesMap.put(key, new byte[]{});
-                } else {
-                    bytesMap.put(key, bytes);
-                }
-                return;
-            }
-            // common 不存在, 则往 common 存储一份
-            bytesMap.put(commonByteKey, bytes);
-            bytesMap.put(key, new byte[]{});
+    /**
+     * 资源内容key. 由内容长度和 SHA-256 摘要组成
+     */
+    private static class ContentKey {
+        private final int length;
+        private final byte[] digest;
+        private final int hashCode;
+
+        private ContentKey(int length, byte[] digest) {
+            this.length = length;
+            this.digest = digest;
+            this.hashCode = 31 * length + Arrays.hashCode(digest);
         }
 
-        public synchronized byte[] getByte(String classLoaderName){
-            byte[] bytes = bytesMap.get(classLoaderName);
-            if(bytes == null || bytes.length == 0){
-                bytes = bytesMap.get(commonByteKey);
-            }
-            return bytes;
+        static ContentKey of(byte[] bytes){
+            MessageDigest messageDigest = MESSAGE_DIGEST.get();
+            messageDigest.reset();
+            return new ContentKey(bytes.length, messageDigest.digest(bytes));
         }
 
-        public boolean remove(String classLoaderName){
-            bytesMap.remove(classLoaderName);
-            if(bytesMap.size() == 1 && bytesMap.containsKey(commonByteKey)){
-                // 只存在一个common
-                bytesMap.clear();
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
                 return true;
-            } else {
+            }
+            if (!(o instanceof ContentKey)) {
                 return false;
             }
+            ContentKey that = (ContentKey) o;
+            return length == that.length && Arrays.equals(digest, that.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
         }
     }
 
@@ -17,11 +17,17 @@
 package com.gitee.starblues.loader.jar;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * copy from spring-boot-loader
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public class RandomAccessDataFile implements RandomAccessData{
 
@@ -195,13 +201,18 @@ public class RandomAccessDataFile implements RandomAccessData{
 
     }
 
+    /**
+     * 基于 FileChannel 位置读取的文件访问, 读取时不加锁, 可被多线程并发读取
+     */
     private static final class FileAccess {
 
         private final Object monitor = new Object();
 
         private final File file;
 
-        private RandomAccessFile randomAccessFile;
+        private volatile FileChannel fileChannel;
+
+        private volatile boolean closed = false;
 
         private FileAccess(File file) {
             this.file = file;
@@ -209,38 +220,79 @@ public class RandomAccessDataFile implements RandomAccessData{
         }
 
         private int read(byte[] bytes, long position, int offset, int length) throws IOException {
-            synchronized (this.monitor) {
-                openIfNecessary();
-                this.randomAccessFile.seek(position);
-                return this.randomAccessFile.read(bytes, offset, length);
+            return read(ByteBuffer.wrap(bytes, offset, length), position);
+        }
+
+        private int readByte(long position) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            int read = read(buffer, position);
+            if (read <= 0) {
+                return -1;
             }
+            return buffer.get(0) & 0xFF;
         }
 
-        private void openIfNecessary() {
-            if (this.randomAccessFile == null) {
+        private int read(ByteBuffer buffer, long position) throws IOException {
+            FileChannel channel = openIfNecessary();
+            try {
+                return channel.read(buffer, position);
+            } catch (ClosedByInterruptException ex) {
+                // 当前线程被中断会导致共享的 channel 被关闭, 重新打开后再读取, 并恢复中断状态
+                boolean interrupted = Thread.interrupted();
                 try {
-                    this.randomAccessFile = new RandomAccessFile(this.file, "r");
-                } catch (FileNotFoundException ex) {
-                    throw new IllegalArgumentException(
-                            String.format("File %s must exist", this.file.getAbsolutePath()));
+                    return reopen(channel).read(buffer, position);
+                } finally {
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            } catch (ClosedChannelException ex) {
+                if (this.closed) {
+                    throw ex;
                 }
+                return reopen(channel).read(buffer, position);
             }
         }
 
-        private void close() throws IOException {
+        private FileChannel openIfNecessary() {
+            FileChannel channel = this.fileChannel;
+            if (channel != null && channel.isOpen()) {
+                return channel;
+            }
             synchronized (this.monitor) {
-                if (this.randomAccessFile != null) {
-                    this.randomAccessFile.close();
-                    this.randomAccessFile = null;
+                if (this.fileChannel == null || !this.fileChannel.isOpen()) {
+                    this.fileChannel = open();
+                    this.closed = false;
                 }
+                return this.fileChannel;
             }
         }
 
-        private int readByte(long position) throws IOException {
+        private FileChannel reopen(FileChannel oldChannel) {
             synchronized (this.monitor) {
-                openIfNecessary();
-                this.randomAccessFile.seek(position);
-                return this.randomAccessFile.read();
+                if (this.fileChannel == oldChannel || this.fileChannel == null || !this.fileChannel.isOpen()) {
+                    this.fileChannel = open();
+                }
+                return this.fileChannel;
+            }
+        }
+
+        private FileChannel open() {
+            try {
+                return FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+            } catch (IOException ex) {
+                throw new IllegalArgumentException(
+                        String.format("File %s must exist", this.file.getAbsolutePath()));
+            }
+        }
+
+        private void close() throws IOException {
+            synchronized (this.monitor) {
+                this.closed = true;
+                if (this.fileChannel != null) {
+                    this.fileChannel.close();
+                    this.fileChannel = null;
+                }
             }
         }
 
@@ -27,12 +27,17 @@ import java.util.Objects;
  * 获取ResourceLoaderFactory
  *
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public class ResourceLoaderFactoryGetter {
 
     private static final String PARAMS_KEY = "--resource.store.mode";
 
+    private static final String LOAD_MODE_PARAMS_KEY = "--resource.load.mode";
+
+    private static final String STORE_MAX_BYTES_PARAMS_KEY = "--resource.store.max-bytes";
+
 
     /**
      * 资源模式--缓存隔离模式
@@ -51,23 +56,56 @@ public class ResourceLoaderFactoryGetter {
      */
     private static final String RESOURCE_MODE_NO_CACHE = "no-cache";
 
+
+    /**
+     * 资源模式--堆外缓存模式. 资源字节缓存在直接内存中, 不占用 java 堆
+     */
+    private static final String RESOURCE_MODE_OFF_HEAP = "off-heap";
+
+
+    /**
+     * 资源模式--限制大小的缓存模式. 缓存字节数由 --resource.store.max-bytes 指定, 超出时淘汰最近未使用的资源
+     */
+    private static final String RESOURCE_MODE_CACHE_BOUNDED = "cache-bounded";
+
+
+    /**
+     * 资源加载模式--延迟加载模式. jar 资源只读取中央目录, 资源字节在使用时才读取
+     */
+    private static final String RESOURCE_LOAD_MODE_LAZY = "lazy";
+
     private static volatile String resourceMode;
 
+    private static volatile String resourceLoadMode;
+
 
     static ResourceLoaderFactory get(String classLoaderName, String... args){
         if(resourceMode == null){
             synchronized (ResourceLoaderFactory.class){
                 if(resourceMode == null){
-                    resourceMode = parseArg(args);
+                    resourceLoadMode = parseArg(LOAD_MODE_PARAMS_KEY, args);
+                    String maxBytes = parseArg(STORE_MAX_BYTES_PARAMS_KEY, args);
+                    if(maxBytes != null){
+                        BoundedCacheResourceStorage.setMaxBytes(parseBytes(maxBytes));
+                    }
+                    resourceMode = parseArg(PARAMS_KEY, args);
                 }
             }
         }
         return new DefaultResourceLoaderFactory(classLoaderName);
     }
 
-    private static String parseArg(String... args){
+    /**
+     * 是否为延迟加载 jar 资源模式
+     * @return boolean
+     */
+    public static boolean isLazyLoad(){
+        return Objects.equals(resourceLoadMode, RESOURCE_LOAD_MODE_LAZY);
+    }
+
+    private static String parseArg(String key, String... args){
         for (String arg : args) {
-            if(arg.startsWith(PARAMS_KEY)){
+            if(arg.startsWith(key)){
                 String[] split = arg.split("=");
                 if(split.length != 2){
                     return null;
@@ -78,12 +116,42 @@ public class ResourceLoaderFactoryGetter {
         return null;
     }
 
+    /**
+     * 解析字节数, 支持 k/m/g 后缀
+     * @param value 值
+     * @return 字节数
+     */
+    private static long parseBytes(String value){
+        String trimValue = value.trim().toLowerCase();
+        long unit = 1;
+        char last = trimValue.charAt(trimValue.length() - 1);
+        if(last == 'k'){
+            unit = 1024L;
+        } else if(last == 'm'){
+            unit = 1024L * 1024;
+        } else if(last == 'g'){
+            unit = 1024L * 1024 * 1024;
+        }
+        if(unit != 1){
+            trimValue = trimValue.substring(0, trimValue.length() - 1);
+        }
+        try {
+            return Long.parseLong(trimValue) * unit;
+        } catch (NumberFormatException e){
+            throw new IllegalArgumentException(STORE_MAX_BYTES_PARAMS_KEY + " 参数格式错误: " + value);
+        }
+    }
+
     public static SameRootResourceStorage getResourceStorage(String key, URL baseUrl){
         SameRootResourceStorage resourceStorage = null;
         if(Objects.equals(resourceMode, RESOURCE_MODE_NO_CACHE)){
             resourceStorage = new DefaultResourceStorage(baseUrl);
         } else if(Objects.equals(resourceMode, RESOURCE_MODE_CACHE_SHARE)){
             resourceStorage = new ShareResourceStorage(key, baseUrl);
+        } else if(Objects.equals(resourceMode, RESOURCE_MODE_OFF_HEAP)){
+            resourceStorage = new OffHeapResourceStorage(baseUrl);
+        } else if(Objects.equals(resourceMode, RESOURCE_MODE_CACHE_BOUNDED)){
+            resourceStorage = new BoundedCacheResourceStorage(baseUrl);
         } else {
             resourceStorage = new CacheResourceStorage(baseUrl);
         }
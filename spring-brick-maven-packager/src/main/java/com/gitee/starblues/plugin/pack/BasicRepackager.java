@@ -44,7 +44,7 @@ import static com.gitee.starblues.common.PluginDescriptorKey.*;
 /**
  * 基础打包
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class BasicRepackager implements Repackager{
 
@@ -326,6 +326,38 @@ public class BasicRepackager implements Repackager{
         return libPaths;
     }
 
+    /**
+     * 获取依赖包的包名索引内容
+     * @param dependenciesPackages 依赖索引 -> 该依赖中的包名集合
+     * @return 包名索引内容, 为空时返回 null
+     */
+    protected String getDependenciesPackages(Map<String, Set<String>> dependenciesPackages){
+        return getDependenciesIndexContent(RESOURCES_DEFINE_DEPENDENCIES_PACKAGES, dependenciesPackages);
+    }
+
+    /**
+     * 获取依赖包中根路径以及 META-INF 下的资源名称索引内容
+     * @param dependenciesResources 依赖索引 -> 该依赖中根路径以及 META-INF 下的资源名称集合
+     * @return 资源名称索引内容, 为空时返回 null
+     */
+    protected String getDependenciesResources(Map<String, Set<String>> dependenciesResources){
+        return getDependenciesIndexContent(RESOURCES_DEFINE_DEPENDENCIES_RESOURCES, dependenciesResources);
+    }
+
+    private String getDependenciesIndexContent(String define, Map<String, Set<String>> dependenciesIndex){
+        if(ObjectUtils.isEmpty(dependenciesIndex)){
+            return null;
+        }
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(define).append("\n");
+        for (Map.Entry<String, Set<String>> entry : dependenciesIndex.entrySet()) {
+            stringBuilder.append(entry.getKey()).append(DEPENDENCIES_PACKAGES_INDEX_SPLIT)
+                    .append(String.join(DEPENDENCIES_PACKAGES_SPLIT, entry.getValue()))
+                    .append("\n");
+        }
+        return stringBuilder.toString();
+    }
+
     protected String getLibIndex(Artifact artifact){
         return artifact.getFile().getPath() + repackageMojo.resolveLoadToMain(artifact);
     }
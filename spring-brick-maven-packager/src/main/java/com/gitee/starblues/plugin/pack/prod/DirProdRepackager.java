@@ -29,9 +29,7 @@ import org.apache.maven.plugin.MojoFailureException;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Properties;
-import java.util.Set;
+import java.util.*;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 
@@ -40,12 +38,21 @@ import static com.gitee.starblues.common.PackageStructure.*;
 /**
  * 文件夹包生成
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class DirProdRepackager extends DevRepackager {
 
     protected final ProdConfig prodConfig;
 
+    /**
+     * 依赖索引 -> 该依赖中的包名集合
+     */
+    protected final Map<String, Set<String>> dependenciesPackages = new LinkedHashMap<>();
+
+    /**
+     * 依赖索引 -> 该依赖中根路径以及 META-INF 下的资源名称集合
+     */
+    protected final Map<String, Set<String>> dependenciesResources = new LinkedHashMap<>();
 
     public DirProdRepackager(RepackageMojo repackageMojo, ProdConfig prodConfig) {
         super(repackageMojo);
@@ -131,11 +138,36 @@ public class DirProdRepackager extends DevRepackager {
             }
             File artifactFile = artifact.getFile();
             FileUtils.copyFile(artifactFile, new File(FilesUtils.joiningFilePath(libDir, artifactFile.getName())));
-            dependencyIndexNames.add(artifactFile.getName() + repackageMojo.resolveLoadToMain(artifact));
+            String loadToMain = repackageMojo.resolveLoadToMain(artifact);
+            dependencyIndexNames.add(artifactFile.getName() + loadToMain);
+            if(ObjectUtils.isEmpty(loadToMain)){
+                dependenciesPackages.put(artifactFile.getName(), CommonUtils.getJarPackageNames(artifactFile));
+                Set<String> resourceNames = CommonUtils.getJarIndexResourceNames(artifactFile);
+                if(resourceNames != null){
+                    dependenciesResources.put(artifactFile.getName(), resourceNames);
+                }
+            }
         }
         return dependencyIndexNames;
     }
 
+    @Override
+    protected String getResourcesDefineContent() throws Exception {
+        String content = super.getResourcesDefineContent();
+        String packages = getDependenciesPackages(dependenciesPackages);
+        if(ObjectUtils.isEmpty(packages)){
+            return content;
+        }
+        String resources = getDependenciesResources(dependenciesResources);
+        if(!ObjectUtils.isEmpty(resources)){
+            packages = packages + resources;
+        }
+        if(ObjectUtils.isEmpty(content)){
+            return packages;
+        }
+        return content + "\n" + packages;
+    }
+
     protected String createLibDir() throws IOException {
         String dir = FilesUtils.joiningFilePath(getRootDir(), PackageStructure.LIB_NAME);
         File file = new File(dir);
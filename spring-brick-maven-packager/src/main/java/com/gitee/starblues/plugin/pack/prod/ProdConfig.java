@@ -23,7 +23,7 @@ import org.apache.maven.plugins.annotations.Parameter;
 /**
  * 生产环境打包配置
  * @author starBlues
- * @version 3.0.2
+ * @version 3.0.4
  */
 @Data
 public class ProdConfig {
@@ -55,4 +55,10 @@ public class ProdConfig {
      */
     private String libDir;
 
+    /**
+     * jar、zip 类型是否压缩依赖包. 默认不压缩(STORED).
+     * 压缩后插件包体积更小, 但加载时需将依赖包解压到临时目录, 且需要 3.0.4 及以上版本的框架才能加载
+     */
+    private boolean libCompress = false;
+
 }
@@ -48,7 +48,7 @@ import static com.gitee.starblues.common.PackageStructure.*;
 /**
  * zip 打包
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class ZipProdRepackager extends DevRepackager {
 
@@ -57,6 +57,16 @@ public class ZipProdRepackager extends DevRepackager {
 
     protected PackageZip packageZip;
 
+    /**
+     * 依赖索引 -> 该依赖中的包名集合
+     */
+    protected final Map<String, Set<String>> dependenciesPackages = new LinkedHashMap<>();
+
+    /**
+     * 依赖索引 -> 该依赖中根路径以及 META-INF 下的资源名称集合
+     */
+    protected final Map<String, Set<String>> dependenciesResources = new LinkedHashMap<>();
+
     public ZipProdRepackager(RepackageMojo repackageMojo, ProdConfig prodConfig) {
         super(repackageMojo);
         this.prodConfig = prodConfig;
@@ -160,6 +170,14 @@ public class ZipProdRepackager extends DevRepackager {
         if(!ObjectUtils.isEmpty(loadMainResources)){
             content.append(loadMainResources).append("\n");
         }
+        String packages = getDependenciesPackages(dependenciesPackages);
+        if(!ObjectUtils.isEmpty(packages)){
+            content.append(packages);
+        }
+        String resources = getDependenciesResources(dependenciesResources);
+        if(!ObjectUtils.isEmpty(resources)){
+            content.append(resources);
+        }
         final byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
         try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes)){
             packageZip.putInputStreamEntry(PROD_RESOURCES_DEFINE_PATH, byteArrayInputStream);
@@ -174,8 +192,14 @@ public class ZipProdRepackager extends DevRepackager {
             if(filterArtifact(artifact)){
                 continue;
             }
-            String dependencyIndexName = packageZip.writeDependency(artifact.getFile(), libDirEntryName);
+            String dependencyIndexName = packageZip.writeDependency(artifact.getFile(), libDirEntryName,
+                    prodConfig.isLibCompress());
             dependencyIndexNames.add(dependencyIndexName);
+            dependenciesPackages.put(dependencyIndexName, CommonUtils.getJarPackageNames(artifact.getFile()));
+            Set<String> resourceNames = CommonUtils.getJarIndexResourceNames(artifact.getFile());
+            if(resourceNames != null){
+                dependenciesResources.put(dependencyIndexName, resourceNames);
+            }
         }
         return dependencyIndexNames;
     }
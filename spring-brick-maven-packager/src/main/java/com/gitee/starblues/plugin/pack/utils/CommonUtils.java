@@ -22,12 +22,20 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoFailureException;
 
 import java.io.File;
+import java.util.Enumeration;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.gitee.starblues.common.PackageStructure.DEPENDENCIES_PACKAGES_SPLIT;
+import static com.gitee.starblues.common.PackageStructure.META_INF_NAME;
 
 /**
  * Object 工具类
  * @author starBlues
- * @version 3.0.1
+ * @version 3.0.4
  */
 public class CommonUtils {
 
@@ -52,6 +60,80 @@ public class CommonUtils {
                 && Objects.equals(artifact.getArtifactId(), PLUGIN_FRAMEWORK_LOADER_ARTIFACT_ID);
     }
 
+    /**
+     * 获取 jar 包中全部资源所在的包名. 包名的计算方式与插件运行时建立包索引的方式一致:
+     * 去除空路径段后取最后一个 '/' 之前的部分, 根路径的资源不计入
+     * @param jarFile jar 文件
+     * @return 包名集合
+     * @throws Exception 读取 jar 异常
+     */
+    public static Set<String> getJarPackageNames(File jarFile) throws Exception {
+        Set<String> packageNames = new TreeSet<>();
+        try (ZipFile zipFile = new ZipFile(jarFile)){
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()){
+                String packageName = getPackageName(entries.nextElement().getName());
+                if(!"".equals(packageName)){
+                    packageNames.add(packageName);
+                }
+            }
+        }
+        return packageNames;
+    }
+
+    /**
+     * 获取 jar 包中根路径以及 META-INF 下的资源名称. 这些资源在插件运行时按名称建立索引,
+     * 资源名称的计算方式与运行时一致: 去除空路径段
+     * @param jarFile jar 文件
+     * @return 资源名称集合. 存在包含索引分隔符的资源名称时返回 null, 表示不建立索引
+     * @throws Exception 读取 jar 异常
+     */
+    public static Set<String> getJarIndexResourceNames(File jarFile) throws Exception {
+        Set<String> resourceNames = new TreeSet<>();
+        try (ZipFile zipFile = new ZipFile(jarFile)){
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()){
+                String entryName = entries.nextElement().getName();
+                String packageName = getPackageName(entryName);
+                if(!"".equals(packageName) && !META_INF_NAME.equals(packageName)
+                        && !packageName.startsWith(META_INF_NAME + "/")){
+                    continue;
+                }
+                String standardName = getStandardName(entryName);
+                if(standardName.contains(DEPENDENCIES_PACKAGES_SPLIT)){
+                    return null;
+                }
+                if(!"".equals(standardName)){
+                    resourceNames.add(standardName);
+                }
+            }
+        }
+        return resourceNames;
+    }
+
+    private static String getPackageName(String entryName){
+        String standardName = getStandardName(entryName);
+        int index = standardName.lastIndexOf("/");
+        if(index <= 0){
+            return "";
+        }
+        return standardName.substring(0, index);
+    }
+
+    private static String getStandardName(String entryName){
+        StringBuilder standardName = new StringBuilder();
+        for (String s : entryName.split("/")) {
+            if("".equals(s)){
+                continue;
+            }
+            if(standardName.length() > 0){
+                standardName.append("/");
+            }
+            standardName.append(s);
+        }
+        return standardName.toString();
+    }
+
     public static void deleteFile(File rootFile) throws MojoFailureException {
         try {
             if(rootFile == null){
@@ -16,19 +16,20 @@
 
 package com.gitee.starblues.plugin.pack.utils;
 
+import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.jar.JarArchiveEntry;
-import org.apache.commons.compress.archivers.jar.JarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.JarMarker;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.nio.file.Files;
+import java.io.IOException;
 
 /**
  * jar 打包工具
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class PackageJar extends PackageZip{
     public PackageJar(File file) throws Exception {
@@ -46,11 +47,33 @@ public class PackageJar extends PackageZip{
 
     @Override
     protected ArchiveOutputStream getOutputStream(File packFile) throws Exception {
-        return new JarArchiveOutputStream(Files.newOutputStream(packFile.toPath()));
+        return new FileJarArchiveOutputStream(packFile);
     }
 
     @Override
     protected ZipArchiveEntry getArchiveEntry(String name) {
         return new JarArchiveEntry(name);
     }
+
+    /**
+     * 基于文件的 jar 输出流. 与 JarArchiveOutputStream 一样为第一个条目添加 JarMarker,
+     * 基于文件创建是为了写入 STORED 条目时无需预先计算 CRC
+     */
+    private static class FileJarArchiveOutputStream extends ZipArchiveOutputStream {
+
+        private boolean jarMarkerAdded = false;
+
+        FileJarArchiveOutputStream(File file) throws IOException {
+            super(file);
+        }
+
+        @Override
+        public void putArchiveEntry(ArchiveEntry archiveEntry) throws IOException {
+            if (!jarMarkerAdded) {
+                ((ZipArchiveEntry) archiveEntry).addAsFirstExtraField(JarMarker.getInstance());
+                jarMarkerAdded = true;
+            }
+            super.putArchiveEntry(archiveEntry);
+        }
+    }
 }
@@ -20,26 +20,28 @@ import com.gitee.starblues.common.PackageStructure;
 import com.gitee.starblues.utils.FilesUtils;
 import com.gitee.starblues.utils.ObjectUtils;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
 import org.apache.commons.compress.archivers.zip.UnixStat;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipFile;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Enumeration;
 import java.util.jar.Manifest;
-import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 
 import static com.gitee.starblues.common.PackageStructure.*;
 
 /**
- * zip 打包工具
+ * zip 打包工具.
+ * 文件条目使用多线程并行压缩, 在关闭时统一写入包中; 从其他 zip 中拷贝的条目直接拷贝压缩后的数据;
+ * 依赖包默认以 STORED 方式写入, 写入的同时计算 CRC; 也可指定压缩依赖包, 与文件条目一起并行压缩
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class PackageZip implements Closeable{
 
@@ -51,6 +53,8 @@ public class PackageZip implements Closeable{
     private final File file;
     private final ArchiveOutputStream outputStream;
 
+    private ParallelScatterZipCreator scatterZipCreator;
+
 
     public PackageZip(File file) throws Exception {
         this.file = file;
@@ -86,7 +90,8 @@ public class PackageZip implements Closeable{
     }
 
     protected ArchiveOutputStream getOutputStream(File packFile) throws Exception {
-        return new ZipArchiveOutputStream(Files.newOutputStream(packFile.toPath()));
+        // 基于文件创建, 写入 STORED 条目时无需预先计算 CRC
+        return new ZipArchiveOutputStream(packFile);
     }
 
     public void copyDirToPackage(File rootDir, String packageDir) throws Exception {
@@ -127,6 +132,11 @@ public class PackageZip implements Closeable{
                 }
                 if(zipArchiveEntry.isDirectory()){
                     putDirEntry(name);
+                } else if(outputStream instanceof ZipArchiveOutputStream && zipFile.canReadEntryData(zipArchiveEntry)){
+                    // 直接拷贝压缩后的数据, 无需解压再压缩
+                    try (InputStream inputStream = zipFile.getRawInputStream(zipArchiveEntry)){
+                        ((ZipArchiveOutputStream) outputStream).addRawArchiveEntry(zipArchiveEntry, inputStream);
+                    }
                 } else {
                     try (InputStream inputStream = zipFile.getInputStream(zipArchiveEntry)){
                         putInputStreamEntry(name, inputStream);
@@ -142,9 +152,8 @@ public class PackageZip implements Closeable{
         entry.setTime(System.currentTimeMillis());
         entry.setUnixMode(indexName.endsWith("/") ? UNIX_DIR_MODE : UNIX_FILE_MODE);
         entry.getGeneralPurposeBit().useUTF8ForNames(true);
-        try(FileInputStream inputStream = new FileInputStream(dependencyFile)){
-            new CrcAndSize(inputStream).setupStoredEntry(entry);
-        }
+        // 嵌套的依赖包不压缩. 输出流基于文件, CRC 和大小在拷贝的同时计算, 写完后回写条目头
+        entry.setMethod(ZipEntry.STORED);
         try (FileInputStream inputStream = new FileInputStream(dependencyFile)){
             outputStream.putArchiveEntry(entry);
             IOUtils.copy(inputStream, outputStream);
@@ -153,13 +162,28 @@ public class PackageZip implements Closeable{
         return indexName;
     }
 
+    /**
+     * 写入依赖包
+     * @param dependencyFile 依赖包文件
+     * @param libDirEntryName 依赖包目录条目名称
+     * @param compress 是否压缩依赖包. 不压缩时以 STORED 方式写入
+     * @return 依赖包条目名称
+     * @throws Exception 写入异常
+     */
+    public String writeDependency(File dependencyFile, String libDirEntryName, boolean compress) throws Exception {
+        if(!compress){
+            return writeDependency(dependencyFile, libDirEntryName);
+        }
+        String indexName = libDirEntryName + dependencyFile.getName();
+        putParallelEntry(indexName, dependencyFile);
+        return indexName;
+    }
+
     public void putFileEntry(File destFile, String rootDir) throws Exception {
         if(!destFile.exists()){
             throw new FileNotFoundException("Not found file : " + destFile.getPath());
         }
-        outputStream.putArchiveEntry(getArchiveEntry(rootDir));
-        FileUtils.copyFile(destFile, outputStream);
-        outputStream.closeArchiveEntry();
+        putParallelEntry(rootDir, destFile);
     }
 
     public void putInputStreamEntry(String name, InputStream inputStream) throws Exception {
@@ -181,11 +205,7 @@ public class PackageZip implements Closeable{
     }
 
     public void write(String name, File file) throws Exception {
-        outputStream.putArchiveEntry(getArchiveEntry(name));
-        try (FileInputStream fileInputStream = new FileInputStream(file)){
-            IOUtils.copy(fileInputStream, outputStream);
-            outputStream.closeArchiveEntry();
-        }
+        putParallelEntry(name, file);
     }
 
     public void writeManifest(Manifest manifest) throws Exception {
@@ -202,41 +222,58 @@ public class PackageZip implements Closeable{
         return new ZipArchiveEntry(name);
     }
 
-
-    @Override
-    public void close() throws IOException {
-        outputStream.finish();
-        outputStream.close();
+    /**
+     * 添加并行压缩的文件条目. 条目在关闭时按压缩完成的顺序写入包中
+     * @param name 条目名称
+     * @param file 文件
+     * @throws Exception 添加异常
+     */
+    protected void putParallelEntry(String name, File file) throws Exception {
+        if(!(outputStream instanceof ZipArchiveOutputStream)){
+            outputStream.putArchiveEntry(getArchiveEntry(name));
+            try (FileInputStream fileInputStream = new FileInputStream(file)){
+                IOUtils.copy(fileInputStream, outputStream);
+            }
+            outputStream.closeArchiveEntry();
+            return;
+        }
+        ZipArchiveEntry entry = getArchiveEntry(name);
+        entry.setMethod(ZipEntry.DEFLATED);
+        entry.setTime(file.lastModified());
+        Path path = file.toPath();
+        getScatterZipCreator().addArchiveEntry(entry, () -> {
+            try {
+                return Files.newInputStream(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
-    private static class CrcAndSize {
-
-        private static final int BUFFER_SIZE = 32 * 1024;
-
-        private final CRC32 crc = new CRC32();
-
-        private long size;
-
-        CrcAndSize(InputStream inputStream) throws IOException {
-            load(inputStream);
+    private ParallelScatterZipCreator getScatterZipCreator(){
+        if(scatterZipCreator == null){
+            scatterZipCreator = new ParallelScatterZipCreator();
         }
+        return scatterZipCreator;
+    }
 
-        private void load(InputStream inputStream) throws IOException {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                this.crc.update(buffer, 0, bytesRead);
-                this.size += bytesRead;
+    @Override
+    public void close() throws IOException {
+        try {
+            if(scatterZipCreator != null){
+                scatterZipCreator.writeTo((ZipArchiveOutputStream) outputStream);
             }
+            outputStream.finish();
+        } catch (IOException e){
+            throw e;
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (Exception e){
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            outputStream.close();
         }
-
-        void setupStoredEntry(ZipArchiveEntry entry) {
-            entry.setSize(this.size);
-            entry.setCompressedSize(this.size);
-            entry.setCrc(this.crc.getValue());
-            entry.setMethod(ZipEntry.STORED);
-        }
-
     }
 
     @FunctionalInterface
@@ -25,6 +25,7 @@ import com.gitee.starblues.core.descriptor.PluginDescriptor;
 import com.gitee.starblues.core.descriptor.PluginDescriptorLoader;
 import com.gitee.starblues.core.exception.PluginDisabledException;
 import com.gitee.starblues.core.exception.PluginException;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupPhase;
 import com.gitee.starblues.core.scanner.ComposePathResolve;
 import com.gitee.starblues.core.scanner.DevPathResolve;
 import com.gitee.starblues.core.scanner.PathResolve;
@@ -37,21 +38,26 @@ import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
- * 抽象的插件管理者
+ * 抽象的插件管理者.
+ * 插件的操作按插件id加锁: 同一插件的操作串行执行, 不同插件的操作之间以及插件信息的查询互不阻塞
  * @author starBlues
- * @version 3.0.3
+ * @version 3.0.4
  */
-public class DefaultPluginManager implements PluginManager{
+public class DefaultPluginManager implements PluginManager, Closeable {
 
     private final Logger log = LoggerFactory.getLogger(DefaultPluginManager.class);
 
@@ -69,6 +75,23 @@ public class DefaultPluginManager implements PluginManager{
     private final Map<String, PluginInsideInfo> startedPlugins = new ConcurrentHashMap<>();
     private final Map<String, PluginInsideInfo> resolvedPlugins = new ConcurrentHashMap<>();
 
+    /**
+     * 插件id -> 插件操作锁
+     */
+    private final Map<String, Lock> pluginLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 插件在 startedPlugins 和 resolvedPlugins 之间迁移时的全局锁, 只保护迁移本身
+     */
+    private final Object pluginMapLock = new Object();
+
+    /**
+     * 正在拷贝或者已拷贝到插件根目录的插件路径 -> 拷贝完成时的修改时间, 正在拷贝时为 {@link #COPYING}.
+     * 插件目录监听忽略这些由插件管理者自身产生的变化
+     */
+    private final Map<Path, Long> copiedPluginPaths = new ConcurrentHashMap<>();
+    private static final long COPYING = -1L;
+
     protected PluginListenerFactory pluginListenerFactory;
 
 
@@ -183,12 +206,28 @@ public class DefaultPluginManager implements PluginManager{
     }
 
     @Override
-    public synchronized PluginInfo load(Path pluginPath, boolean unpackPlugin) throws PluginException {
+    public PluginInfo load(Path pluginPath, boolean unpackPlugin) throws PluginException {
         Assert.isNotNull(pluginPath, "参数pluginPath不能为空");
+        PluginInfo pluginInfo = parseOfLoad(pluginPath);
+        Lock lock = lockPlugin(pluginInfo.getPluginId());
+        try {
+            return load(pluginPath, unpackPlugin, pluginInfo);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 加载已解析的插件. 调用者需持有该插件的锁
+     * @param pluginPath 插件路径
+     * @param unpackPlugin 是否解压插件包
+     * @param pluginInfo 已解析的插件信息
+     * @return 加载后的插件信息
+     * @throws PluginException 加载异常
+     */
+    protected PluginInfo load(Path pluginPath, boolean unpackPlugin, PluginInfo pluginInfo) throws PluginException {
         String sourcePluginPath = pluginPath.toString();
         try {
-            // 解析插件
-            PluginInfo pluginInfo = parse(pluginPath);
             // 检查是否存在当前插件
             PluginInsideInfo plugin = getPlugin(pluginInfo.getPluginId());
             if(plugin != null){
@@ -211,30 +250,60 @@ public class DefaultPluginManager implements PluginManager{
                 return null;
             }
         } catch (Throwable e) {
-            PluginException pluginException = PluginException.getPluginException(e, () -> {
-                throw new PluginException("插件包加载失败: " + sourcePluginPath, e);
-            });
-            pluginListenerFactory.loadFailure(pluginPath, pluginException);
-            throw pluginException;
+            throw loadFailure(pluginPath, sourcePluginPath, e);
+        }
+    }
+
+    /**
+     * 加载前解析插件
+     * @param pluginPath 插件路径
+     * @return 插件信息
+     */
+    private PluginInfo parseOfLoad(Path pluginPath){
+        try {
+            return parse(pluginPath);
+        } catch (Throwable e){
+            throw loadFailure(pluginPath, pluginPath.toString(), e);
         }
     }
 
+    private PluginException loadFailure(Path pluginPath, String sourcePluginPath, Throwable e){
+        PluginException pluginException = PluginException.getPluginException(e, () ->
+                new PluginException("插件包加载失败: " + sourcePluginPath, e));
+        pluginListenerFactory.loadFailure(pluginPath, pluginException);
+        return pluginException;
+    }
+
     @Override
-    public synchronized void unLoad(String pluginId) {
+    public void unLoad(String pluginId) {
         Assert.isNotNull(pluginId, "参数pluginId不能为空");
-        PluginInsideInfo pluginInsideInfo = resolvedPlugins.get(pluginId);
-        if(!resolvedPlugins.containsKey(pluginId)){
-            throw new PluginException("没有发现插件: " + pluginId);
+        Lock lock = lockPlugin(pluginId);
+        try {
+            PluginInsideInfo pluginInsideInfo = resolvedPlugins.remove(pluginId);
+            if(pluginInsideInfo == null){
+                throw new PluginException("没有发现插件: " + pluginId);
+            }
+            pluginListenerFactory.unLoadSuccess(pluginInsideInfo.toPluginInfo());
+            LogUtils.info(log, pluginInsideInfo.getPluginDescriptor(), "卸载成功");
+        } finally {
+            lock.unlock();
         }
-        resolvedPlugins.remove(pluginId);
-        pluginListenerFactory.unLoadSuccess(pluginInsideInfo.toPluginInfo());
-        LogUtils.info(log, pluginInsideInfo.getPluginDescriptor(), "卸载成功");
     }
 
     @Override
-    public synchronized PluginInfo install(Path pluginPath, boolean unpackPlugin) throws PluginException {
+    public PluginInfo install(Path pluginPath, boolean unpackPlugin) throws PluginException {
         Assert.isNotNull(pluginPath, "参数pluginPath不能为空");
-        PluginInfo loadPluginInfo = load(pluginPath, unpackPlugin);
+        PluginInfo parsePluginInfo = parseOfLoad(pluginPath);
+        Lock lock = lockPlugin(parsePluginInfo.getPluginId());
+        try {
+            return install(pluginPath, unpackPlugin, parsePluginInfo);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PluginInfo install(Path pluginPath, boolean unpackPlugin, PluginInfo parsePluginInfo) throws PluginException {
+        PluginInfo loadPluginInfo = load(pluginPath, unpackPlugin, parsePluginInfo);
         if(loadPluginInfo == null){
             throw new PluginException("插件包安装失败: " + pluginPath);
         }
@@ -259,31 +328,36 @@ public class DefaultPluginManager implements PluginManager{
     }
 
     @Override
-    public synchronized void uninstall(String pluginId) throws PluginException {
+    public void uninstall(String pluginId) throws PluginException {
         Assert.isNotNull(pluginId, "参数pluginId不能为空");
-        PluginInsideInfo wrapperInside = getPlugin(pluginId);
-        if(wrapperInside == null){
-            throw new PluginException("没有发现插件: " + pluginId);
-        }
-        PluginInfo pluginInfo = wrapperInside.toPluginInfo();
-        if(wrapperInside.getPluginState() == PluginState.STARTED){
-            try {
-                stop(wrapperInside);
-                pluginListenerFactory.stopSuccess(pluginInfo);
-            } catch (Throwable e) {
-                PluginException pluginException = PluginException.getPluginException(e,
-                        ()-> new PluginException("停止", pluginId, e));
-                pluginListenerFactory.stopFailure(pluginInfo, pluginException);
-                throw pluginException;
+        Lock lock = lockPlugin(pluginId);
+        try {
+            PluginInsideInfo wrapperInside = getPlugin(pluginId);
+            if(wrapperInside == null){
+                throw new PluginException("没有发现插件: " + pluginId);
             }
+            PluginInfo pluginInfo = wrapperInside.toPluginInfo();
+            if(wrapperInside.getPluginState() == PluginState.STARTED){
+                try {
+                    stop(wrapperInside);
+                    pluginListenerFactory.stopSuccess(pluginInfo);
+                } catch (Throwable e) {
+                    PluginException pluginException = PluginException.getPluginException(e,
+                            ()-> new PluginException("停止", pluginId, e));
+                    pluginListenerFactory.stopFailure(pluginInfo, pluginException);
+                    throw pluginException;
+                }
+            }
+            startedPlugins.remove(pluginId);
+            unLoad(pluginId);
+            LogUtils.info(log, wrapperInside.getPluginDescriptor(), "卸载成功");
+        } finally {
+            lock.unlock();
         }
-        startedPlugins.remove(pluginId);
-        unLoad(pluginId);
-        LogUtils.info(log, wrapperInside.getPluginDescriptor(), "卸载成功");
     }
 
     @Override
-    public synchronized PluginInfo upgrade(Path pluginPath, boolean unpackPlugin) throws PluginException {
+    public PluginInfo upgrade(Path pluginPath, boolean unpackPlugin) throws PluginException {
         Assert.isNotNull(pluginPath, "参数pluginPath不能为空");
         // 解析插件包
         PluginInfo upgradePlugin = parse(pluginPath);
@@ -293,15 +367,116 @@ public class DefaultPluginManager implements PluginManager{
         // 检查插件是否被禁用
         PluginDisabledException.checkDisabled(upgradePlugin, configuration, "更新");
         String pluginId = upgradePlugin.getPluginId();
-        // 得到旧插件
-        PluginInsideInfo oldPlugin = getPlugin(pluginId);
-        if(oldPlugin == null){
-            // 旧插件为空, 则直接安装新插件
-            return install(pluginPath, unpackPlugin);
-        }
-        // 检查插件版本
-        PluginDescriptor upgradePluginDescriptor = upgradePlugin.getPluginDescriptor();
-        checkVersion(oldPlugin.getPluginDescriptor(), upgradePluginDescriptor);
+        Lock lock = lockPlugin(pluginId);
+        try {
+            // 得到旧插件
+            PluginInsideInfo oldPlugin = getPlugin(pluginId);
+            if(oldPlugin == null){
+                // 旧插件为空, 则直接安装新插件
+                return install(pluginPath, unpackPlugin);
+            }
+            // 检查插件版本
+            PluginDescriptor upgradePluginDescriptor = upgradePlugin.getPluginDescriptor();
+            checkVersion(oldPlugin.getPluginDescriptor(), upgradePluginDescriptor);
+            try {
+                upgrade(oldPlugin, pluginPath, unpackPlugin, upgradePlugin);
+                log.info("更新插件[{}]成功", MsgUtils.getPluginUnique(upgradePluginDescriptor));
+                return upgradePlugin;
+            } catch (Throwable e){
+                throw PluginException.getPluginException(e, ()->
+                        new PluginException(upgradePluginDescriptor, "更新", e));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PluginInfo upgradeOfChanged(Path pluginPath) throws PluginException {
+        Assert.isNotNull(pluginPath, "参数pluginPath不能为空");
+        if(isCopiedPlugin(pluginPath)){
+            return null;
+        }
+        PluginInfo changedPlugin = parse(pluginPath);
+        if(changedPlugin == null){
+            return null;
+        }
+        String pluginId = changedPlugin.getPluginId();
+        Lock lock = lockPlugin(pluginId);
+        try {
+            // 持有插件锁后再次检查, 上传安装、更新过程中拷贝的插件包不会被再次更新
+            if(isCopiedPlugin(pluginPath)){
+                return null;
+            }
+            PluginInsideInfo oldPlugin = getPlugin(pluginId);
+            if(oldPlugin != null){
+                PluginDescriptor oldDescriptor = oldPlugin.getPluginDescriptor();
+                int compareVersion = provider.getVersionInspector().compareTo(oldDescriptor.getPluginVersion(),
+                        changedPlugin.getPluginDescriptor().getPluginVersion());
+                if(compareVersion >= 0){
+                    // 已安装相同或者更高版本的插件
+                    log.debug("插件包[{}]的版本不高于已安装的插件[{}], 忽略", pluginPath,
+                            MsgUtils.getPluginUnique(oldDescriptor));
+                    return null;
+                }
+            }
+            return upgrade(pluginPath, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 是否为插件管理者正在拷贝或者已拷贝并且之后没有被修改的插件路径
+     * @param pluginPath 插件路径
+     * @return boolean
+     */
+    protected boolean isCopiedPlugin(Path pluginPath){
+        Path path = pluginPath.toAbsolutePath().normalize();
+        Long copiedTime = copiedPluginPaths.get(path);
+        if(copiedTime == null){
+            return false;
+        }
+        if(copiedTime == COPYING){
+            return true;
+        }
+        try {
+            if(Files.getLastModifiedTime(path).toMillis() == copiedTime){
+                return true;
+            }
+        } catch (IOException e){
+            // 已被删除
+        }
+        copiedPluginPaths.remove(path, copiedTime);
+        return false;
+    }
+
+    private Path copyStart(Path targetPath){
+        Path path = targetPath.toAbsolutePath().normalize();
+        copiedPluginPaths.put(path, COPYING);
+        return path;
+    }
+
+    private void copyFinish(Path targetPath){
+        try {
+            copiedPluginPaths.put(targetPath, Files.getLastModifiedTime(targetPath).toMillis());
+        } catch (IOException e){
+            copiedPluginPaths.remove(targetPath);
+        }
+    }
+
+    /**
+     * 使用新插件包更新已存在的插件. 调用者需持有该插件的锁.
+     * 默认先卸载旧插件, 再安装新插件
+     * @param oldPlugin 旧插件
+     * @param pluginPath 新插件路径
+     * @param unpackPlugin 是否解压插件包
+     * @param upgradePlugin 已解析的新插件信息
+     * @throws Exception 更新异常
+     */
+    protected void upgrade(PluginInsideInfo oldPlugin, Path pluginPath, boolean unpackPlugin,
+                           PluginInfo upgradePlugin) throws Exception {
+        String pluginId = oldPlugin.getPluginId();
         if(oldPlugin.getPluginState() == PluginState.STARTED){
             // 如果插件被启动, 则卸载旧的插件
             uninstall(pluginId);
@@ -309,65 +484,112 @@ public class DefaultPluginManager implements PluginManager{
             // 如果插件被load
             unLoad(pluginId);
         }
+        // 安装新插件
+        install(pluginPath, unpackPlugin, upgradePlugin);
+    }
+
+    /**
+     * 加载用于更新的新插件. 新插件不会加入已加载的插件中, 由调用者决定何时替换旧插件
+     * @param pluginPath 新插件路径
+     * @param unpackPlugin 是否解压插件包
+     * @return 新插件信息
+     * @throws Exception 加载异常
+     */
+    protected PluginInsideInfo loadUpgradePlugin(Path pluginPath, boolean unpackPlugin) throws Exception {
+        Path sourcePluginPath = pluginPath;
+        if(configuration.isProd()){
+            // 如果为生产环境, 则拷贝插件
+            pluginPath = copyPlugin(pluginPath, unpackPlugin);
+        }
         try {
-            // 安装新插件
-            install(pluginPath, unpackPlugin);
-            log.info("更新插件[{}]成功", MsgUtils.getPluginUnique(upgradePluginDescriptor));
-            return upgradePlugin;
+            PluginInsideInfo pluginInsideInfo = resolvePlugin(pluginPath, true);
+            if(pluginInsideInfo == null){
+                throw new PluginException("非法插件包: " + pluginPath);
+            }
+            return pluginInsideInfo;
         } catch (Throwable e){
-            throw PluginException.getPluginException(e, ()->
-                    new PluginException(upgradePluginDescriptor, "更新", e));
+            deleteCopiedPlugin(sourcePluginPath, pluginPath);
+            throw e;
+        }
+    }
+
+    /**
+     * 删除更新失败时拷贝到插件根目录中的新插件. 源插件已不存在(例如在插件根目录中解压后被删除)时保留拷贝的插件
+     * @param sourcePluginPath 源插件路径
+     * @param copiedPluginPath 拷贝后的插件路径
+     */
+    protected void deleteCopiedPlugin(Path sourcePluginPath, Path copiedPluginPath){
+        if(sourcePluginPath == null || copiedPluginPath == null || sourcePluginPath.equals(copiedPluginPath)){
+            return;
+        }
+        if(!Files.exists(sourcePluginPath)){
+            return;
+        }
+        try {
+            PluginFileUtils.deleteFile(copiedPluginPath.toFile());
+        } catch (Exception e){
+            log.warn("删除更新失败的插件[{}]失败. {}", copiedPluginPath, e.getMessage());
         }
     }
 
     @Override
-    public synchronized PluginInfo start(String pluginId) throws PluginException {
+    public PluginInfo start(String pluginId) throws PluginException {
         if(ObjectUtils.isEmpty(pluginId)){
             return null;
         }
-        PluginInsideInfo pluginInsideInfo = getPlugin(pluginId);
-        if(pluginInsideInfo == null){
-            throw new PluginException("没有发现插件: " + pluginId);
-        }
-        PluginInfo pluginInfo = pluginInsideInfo.toPluginInfo();
+        Lock lock = lockPlugin(pluginId);
         try {
-            start(pluginInsideInfo);
-            log.info("插件[{}]启动成功", MsgUtils.getPluginUnique(pluginInsideInfo.getPluginDescriptor()));
-            pluginListenerFactory.startSuccess(pluginInfo);
-            return pluginInfo;
-        } catch (Throwable e){
-            PluginException pluginException = PluginException.getPluginException(e,
-                    ()-> new PluginException(pluginInsideInfo.getPluginDescriptor(), "启动", e));
-            pluginListenerFactory.startFailure(pluginInfo, pluginException);
-            throw pluginException;
+            PluginInsideInfo pluginInsideInfo = getPlugin(pluginId);
+            if(pluginInsideInfo == null){
+                throw new PluginException("没有发现插件: " + pluginId);
+            }
+            PluginInfo pluginInfo = pluginInsideInfo.toPluginInfo();
+            try {
+                start(pluginInsideInfo);
+                log.info("插件[{}]启动成功", MsgUtils.getPluginUnique(pluginInsideInfo.getPluginDescriptor()));
+                pluginListenerFactory.startSuccess(pluginInfo);
+                return pluginInfo;
+            } catch (Throwable e){
+                PluginException pluginException = PluginException.getPluginException(e,
+                        ()-> new PluginException(pluginInsideInfo.getPluginDescriptor(), "启动", e));
+                pluginListenerFactory.startFailure(pluginInfo, pluginException);
+                throw pluginException;
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized PluginInfo stop(String pluginId) throws PluginException {
+    public PluginInfo stop(String pluginId) throws PluginException {
         if(ObjectUtils.isEmpty(pluginId)){
             return null;
         }
-        PluginInsideInfo pluginInsideInfo = startedPlugins.get(pluginId);
-        if(pluginInsideInfo == null){
-            throw new PluginException("没有发现插件: " + pluginId);
-        }
-        PluginInfo pluginInfo = pluginInsideInfo.toPluginInfo();
+        Lock lock = lockPlugin(pluginId);
         try {
-            stop(pluginInsideInfo);
-            log.info("停止插件[{}]成功", MsgUtils.getPluginUnique(pluginInsideInfo.getPluginDescriptor()));
-            pluginListenerFactory.stopSuccess(pluginInfo);
-            return pluginInfo;
-        } catch (Throwable e) {
-            PluginException pluginException = PluginException.getPluginException(e,
-                    () -> new PluginException(pluginInsideInfo.getPluginDescriptor(), "停止", e));
-            pluginListenerFactory.stopFailure(pluginInfo, pluginException);
-            throw pluginException;
+            PluginInsideInfo pluginInsideInfo = startedPlugins.get(pluginId);
+            if(pluginInsideInfo == null){
+                throw new PluginException("没有发现插件: " + pluginId);
+            }
+            PluginInfo pluginInfo = pluginInsideInfo.toPluginInfo();
+            try {
+                stop(pluginInsideInfo);
+                log.info("停止插件[{}]成功", MsgUtils.getPluginUnique(pluginInsideInfo.getPluginDescriptor()));
+                pluginListenerFactory.stopSuccess(pluginInfo);
+                return pluginInfo;
+            } catch (Throwable e) {
+                PluginException pluginException = PluginException.getPluginException(e,
+                        () -> new PluginException(pluginInsideInfo.getPluginDescriptor(), "停止", e));
+                pluginListenerFactory.stopFailure(pluginInfo, pluginException);
+                throw pluginException;
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized PluginInfo getPluginInfo(String pluginId) {
+    public PluginInfo getPluginInfo(String pluginId) {
         if(ObjectUtils.isEmpty(pluginId)){
             return null;
         }
@@ -383,19 +605,47 @@ public class DefaultPluginManager implements PluginManager{
     }
 
     @Override
-    public synchronized List<PluginInfo> getPluginInfos() {
-        List<PluginInfo> pluginDescriptors = new ArrayList<>(
-                resolvedPlugins.size() + startedPlugins.size());
-        for (PluginInsideInfo wrapperInside : startedPlugins.values()) {
-            pluginDescriptors.add(wrapperInside.toPluginInfo());
+    public List<PluginInfo> getPluginInfos() {
+        Map<String, PluginInsideInfo> plugins;
+        synchronized (pluginMapLock){
+            plugins = new LinkedHashMap<>(resolvedPlugins.size() + startedPlugins.size());
+            plugins.putAll(startedPlugins);
+            for (PluginInsideInfo wrapperInside : resolvedPlugins.values()) {
+                plugins.putIfAbsent(wrapperInside.getPluginId(), wrapperInside);
+            }
         }
-        for (PluginInsideInfo wrapperInside : resolvedPlugins.values()) {
+        List<PluginInfo> pluginDescriptors = new ArrayList<>(plugins.size());
+        for (PluginInsideInfo wrapperInside : plugins.values()) {
             pluginDescriptors.add(wrapperInside.toPluginInfo());
         }
         return pluginDescriptors;
     }
 
+    @Override
+    public List<PluginStartupPhase> getStartupPhases(String pluginId) {
+        return Collections.emptyList();
+    }
+
     protected PluginInsideInfo loadPlugin(Path pluginPath, boolean resolvePath) {
+        PluginInsideInfo pluginInsideInfo = resolvePlugin(pluginPath, resolvePath);
+        if(pluginInsideInfo == null){
+            return null;
+        }
+        String pluginId = pluginInsideInfo.getPluginId();
+        if(resolvedPlugins.putIfAbsent(pluginId, pluginInsideInfo) != null){
+            throw new PluginException(pluginInsideInfo.getPluginDescriptor(), "已经被加载");
+        }
+        LogUtils.info(log, pluginInsideInfo.getPluginDescriptor(), "加载成功");
+        return pluginInsideInfo;
+    }
+
+    /**
+     * 解析插件路径并加载插件信息, 同时检查插件版本号. 不会加入已加载的插件中
+     * @param pluginPath 插件路径
+     * @param resolvePath 是否解析插件路径
+     * @return 插件信息
+     */
+    protected PluginInsideInfo resolvePlugin(Path pluginPath, boolean resolvePath) {
         if(resolvePath){
             Path sourcePluginPath = pluginPath;
             pluginPath = pathResolve.resolve(pluginPath);
@@ -407,14 +657,8 @@ public class DefaultPluginManager implements PluginManager{
         if(pluginInsideInfo == null){
             return null;
         }
-        String pluginId = pluginInsideInfo.getPluginId();
-        if(resolvedPlugins.containsKey(pluginId)){
-            throw new PluginException(pluginInsideInfo.getPluginDescriptor(), "已经被加载");
-        }
         // 检查当前插件版本号是否合法
         provider.getVersionInspector().check(pluginInsideInfo.getPluginDescriptor().getPluginVersion());
-        resolvedPlugins.put(pluginId, pluginInsideInfo);
-        LogUtils.info(log, pluginInsideInfo.getPluginDescriptor(), "加载成功");
         return pluginInsideInfo;
     }
 
@@ -478,7 +722,12 @@ public class DefaultPluginManager implements PluginManager{
                 // 需要解压, 检查解压后的文件名称是否存在同名文件
                 checkExistFile(pluginRootDir, resolvePluginFileName);
                 String unpackPluginPath = FilesUtils.joiningFilePath(pluginRootDir.getPath(), resolvePluginFileName);
-                PluginFileUtils.decompressZip(targetFile.getPath(), unpackPluginPath);
+                Path copyPath = copyStart(Paths.get(unpackPluginPath));
+                try {
+                    PluginFileUtils.decompressZip(targetFile.getPath(), unpackPluginPath);
+                } finally {
+                    copyFinish(copyPath);
+                }
                 resultPath = Paths.get(unpackPluginPath);
                 PluginFileUtils.deleteFile(targetFile);
             } else {
@@ -491,19 +740,24 @@ public class DefaultPluginManager implements PluginManager{
             // 检查是否存在同名文件
             checkExistFile(pluginRootDirFile, resolvePluginFileName);
             targetFile = Paths.get(FilesUtils.joiningFilePath(pluginRootDir.getPath(), resolvePluginFileName)).toFile();
-            if(pluginFile.isFile()){
-                if(unpackPlugin){
-                    // 需要解压
-                    String unpackPluginPath = FilesUtils.joiningFilePath(pluginRootDir.getPath(), resolvePluginFileName);
-                    PluginFileUtils.decompressZip(pluginFile.getPath(), unpackPluginPath);
-                    resultPath = Paths.get(unpackPluginPath);
+            Path copyPath = copyStart(targetFile.toPath());
+            try {
+                if(pluginFile.isFile()){
+                    if(unpackPlugin){
+                        // 需要解压
+                        String unpackPluginPath = FilesUtils.joiningFilePath(pluginRootDir.getPath(), resolvePluginFileName);
+                        PluginFileUtils.decompressZip(pluginFile.getPath(), unpackPluginPath);
+                        resultPath = Paths.get(unpackPluginPath);
+                    } else {
+                        FileUtils.copyFile(pluginFile, targetFile);
+                        resultPath = targetFile.toPath();
+                    }
                 } else {
-                    FileUtils.copyFile(pluginFile, targetFile);
+                    FileUtils.copyDirectory(pluginFile, targetFile);
                     resultPath = targetFile.toPath();
                 }
-            } else {
-                FileUtils.copyDirectory(pluginFile, targetFile);
-                resultPath = targetFile.toPath();
+            } finally {
+                copyFinish(copyPath);
             }
         }
         return resultPath;
@@ -528,8 +782,10 @@ public class DefaultPluginManager implements PluginManager{
      */
     protected void startFinish(PluginInsideInfo pluginInsideInfo){
         String pluginId = pluginInsideInfo.getPluginId();
-        startedPlugins.put(pluginId, pluginInsideInfo);
-        resolvedPlugins.remove(pluginId);
+        synchronized (pluginMapLock){
+            startedPlugins.put(pluginId, pluginInsideInfo);
+            resolvedPlugins.remove(pluginId);
+        }
     }
 
 
@@ -550,8 +806,10 @@ public class DefaultPluginManager implements PluginManager{
      */
     protected void stopFinish(PluginInsideInfo pluginInsideInfo){
         String pluginId = pluginInsideInfo.getPluginId();
-        resolvedPlugins.put(pluginId, pluginInsideInfo);
-        startedPlugins.remove(pluginId);
+        synchronized (pluginMapLock){
+            resolvedPlugins.put(pluginId, pluginInsideInfo);
+            startedPlugins.remove(pluginId);
+        }
     }
 
     /**
@@ -579,6 +837,17 @@ public class DefaultPluginManager implements PluginManager{
     }
 
 
+    /**
+     * 获取插件操作锁并加锁. 锁可重入, 调用者需在 finally 中释放
+     * @param pluginId 插件id
+     * @return 已加锁的锁
+     */
+    protected Lock lockPlugin(String pluginId){
+        Lock lock = pluginLocks.computeIfAbsent(pluginId, k -> new ReentrantLock());
+        lock.lock();
+        return lock;
+    }
+
     protected PluginInsideInfo getPlugin(String pluginId){
         PluginInsideInfo wrapperInside = startedPlugins.get(pluginId);
         if(wrapperInside == null){
@@ -617,6 +886,21 @@ public class DefaultPluginManager implements PluginManager{
         }
     }
 
+    /**
+     * 关闭插件管理者, 释放插件监听工厂的线程. 不会停止已启动的插件
+     */
+    @Override
+    public void close() {
+        PluginListenerFactory pluginListenerFactory = this.pluginListenerFactory;
+        if(pluginListenerFactory instanceof Closeable){
+            try {
+                ((Closeable) pluginListenerFactory).close();
+            } catch (Exception e){
+                log.warn("关闭插件监听工厂失败. {}", e.getMessage(), e);
+            }
+        }
+    }
+
     private List<String> resolvePath(List<String> path){
         if(ObjectUtils.isEmpty(path)){
             return Collections.emptyList();
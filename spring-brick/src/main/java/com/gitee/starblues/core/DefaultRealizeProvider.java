@@ -27,6 +27,7 @@ import com.gitee.starblues.core.scanner.BasePluginScanner;
 import com.gitee.starblues.core.scanner.DevPathResolve;
 import com.gitee.starblues.core.scanner.PluginScanner;
 import com.gitee.starblues.core.scanner.ProdPathResolve;
+import com.gitee.starblues.core.scanner.WatchPluginScanner;
 import com.gitee.starblues.core.version.SemverVersionInspector;
 import com.gitee.starblues.core.version.VersionInspector;
 import com.gitee.starblues.integration.IntegrationConfiguration;
@@ -37,7 +38,7 @@ import org.springframework.context.ApplicationContext;
  * 默认的RealizeProvider实现
  *
  * @author starBlues
- * @version 3.0.1
+ * @version 3.0.4
  */
 public class DefaultRealizeProvider implements RealizeProvider {
 
@@ -57,10 +58,16 @@ public class DefaultRealizeProvider implements RealizeProvider {
 
     @Override
     public void init() {
-        BasePluginScanner basePluginScanner = new BasePluginScanner();
+        BasePluginScanner basePluginScanner;
         if(configuration.environment() == RuntimeMode.DEV){
+            basePluginScanner = new BasePluginScanner();
             basePluginScanner.setPathResolve(new DevPathResolve());
         } else {
+            if(configuration.watchPluginPath()){
+                basePluginScanner = new WatchPluginScanner(configuration.watchDebounceTime());
+            } else {
+                basePluginScanner = new BasePluginScanner();
+            }
             basePluginScanner.setPathResolve(new ProdPathResolve());
         }
         setPluginScanner(basePluginScanner);
@@ -21,9 +21,12 @@ import com.gitee.starblues.core.descriptor.InsidePluginDescriptor;
 import com.gitee.starblues.core.descriptor.PluginDescriptor;
 import com.gitee.starblues.core.exception.PluginException;
 import com.gitee.starblues.core.exception.PluginProhibitStopException;
-import com.gitee.starblues.core.launcher.plugin.DefaultPluginInteractive;
-import com.gitee.starblues.core.launcher.plugin.PluginInteractive;
+import com.gitee.starblues.core.launcher.plugin.LazyPluginActivator;
+import com.gitee.starblues.core.launcher.plugin.LazyPluginReserver;
 import com.gitee.starblues.core.launcher.plugin.PluginLauncher;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupPhase;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupTrace;
+import com.gitee.starblues.core.launcher.plugin.SwitchablePluginInteractive;
 import com.gitee.starblues.core.launcher.plugin.involved.PluginLaunchInvolved;
 import com.gitee.starblues.core.launcher.plugin.involved.PluginLaunchInvolvedFactory;
 import com.gitee.starblues.integration.IntegrationConfiguration;
@@ -32,24 +35,37 @@ import com.gitee.starblues.integration.listener.PluginListenerFactory;
 import com.gitee.starblues.spring.MainApplicationContext;
 import com.gitee.starblues.spring.MainApplicationContextProxy;
 import com.gitee.starblues.spring.SpringPluginHook;
+import com.gitee.starblues.spring.extract.DefaultExtractFactory;
+import com.gitee.starblues.spring.extract.ExtractFactory;
 import com.gitee.starblues.spring.invoke.DefaultInvokeSupperCache;
 import com.gitee.starblues.spring.invoke.InvokeSupperCache;
+import com.gitee.starblues.utils.MsgUtils;
 import com.gitee.starblues.utils.SpringBeanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.support.GenericApplicationContext;
 
-import java.util.List;
-import java.util.Map;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 /**
- * 可引导启动的插件管理者
+ * 可引导启动的插件管理者.
+ * 更新已启动的插件时, 新版本在旧版本旁完整启动后再整体切换注册信息, 之后停止旧版本, 更新期间插件持续可用.
+ * 延迟启动的插件在启动时只预留访问入口, 第一次被访问(http请求、指定插件id的扩展查找或者插件间调用)时才真正启动
  * @author starBlues
  * @since 3.0.0
- * @version 3.0.3
+ * @version 3.0.4
  */
 public class PluginLauncherManager extends DefaultPluginManager{
 
+    private final Logger log = LoggerFactory.getLogger(PluginLauncherManager.class);
+
     private final Map<String, RegistryPluginInfo> registryInfo = new ConcurrentHashMap<>();
+    private final Map<String, PluginInsideInfo> pendingPlugins = new ConcurrentHashMap<>();
+    private final Map<String, PluginStartupTrace> startupTraces = new ConcurrentHashMap<>();
 
 
     private final MainApplicationContext mainApplicationContext;
@@ -57,6 +73,9 @@ public class PluginLauncherManager extends DefaultPluginManager{
     private final IntegrationConfiguration configuration;
     private final InvokeSupperCache invokeSupperCache;
     private final PluginLaunchInvolved pluginLaunchInvolved;
+    private final LazyPluginActivator lazyPluginActivator;
+
+    private List<LazyPluginReserver> lazyPluginReservers = Collections.emptyList();
 
     public PluginLauncherManager(RealizeProvider realizeProvider,
                                  GenericApplicationContext applicationContext,
@@ -65,8 +84,15 @@ public class PluginLauncherManager extends DefaultPluginManager{
         this.mainApplicationContext = new MainApplicationContextProxy(applicationContext, applicationContext);
         this.mainGenericApplicationContext = applicationContext;
         this.configuration = configuration;
-        this.invokeSupperCache = new DefaultInvokeSupperCache();
         this.pluginLaunchInvolved = new PluginLaunchInvolvedFactory();
+        this.lazyPluginActivator = new PendingPluginActivator();
+        DefaultInvokeSupperCache defaultInvokeSupperCache = new DefaultInvokeSupperCache();
+        defaultInvokeSupperCache.setLazyPluginActivator(lazyPluginActivator);
+        this.invokeSupperCache = defaultInvokeSupperCache;
+        ExtractFactory extractFactory = ExtractFactory.getInstant();
+        if(extractFactory instanceof DefaultExtractFactory){
+            ((DefaultExtractFactory) extractFactory).setLazyPluginActivator(lazyPluginActivator);
+        }
         addCustomPluginChecker();
     }
 
@@ -86,19 +112,42 @@ public class PluginLauncherManager extends DefaultPluginManager{
     @Override
     public synchronized List<PluginInfo> loadPlugins() {
         this.pluginLaunchInvolved.initialize(mainGenericApplicationContext, configuration);
+        this.lazyPluginReservers = SpringBeanUtils.getBeans(mainGenericApplicationContext,
+                LazyPluginReserver.class);
         return super.loadPlugins();
     }
 
     @Override
     protected void start(PluginInsideInfo pluginInsideInfo) throws Exception {
         launcherChecker.checkCanStart(pluginInsideInfo);
+        if(configuration.isLazyStart(pluginInsideInfo.getPluginId()) && reserve(pluginInsideInfo)){
+            // 只预留访问入口, 第一次被访问时再启动
+            pluginInsideInfo.setPluginState(PluginState.STARTED);
+            super.startFinish(pluginInsideInfo);
+            log.info("插件[{}]延迟到第一次被访问时启动",
+                    MsgUtils.getPluginUnique(pluginInsideInfo.getPluginDescriptor()));
+            return;
+        }
+        launch(pluginInsideInfo);
+    }
+
+    /**
+     * 启动插件的 ApplicationContext
+     * @param pluginInsideInfo 插件信息
+     * @throws Exception 启动异常
+     */
+    private void launch(PluginInsideInfo pluginInsideInfo) throws Exception {
         try {
             InsidePluginDescriptor pluginDescriptor = pluginInsideInfo.getPluginDescriptor();
-            PluginInteractive pluginInteractive = new DefaultPluginInteractive(pluginDescriptor,
-                    mainApplicationContext, configuration, invokeSupperCache);
+            SwitchablePluginInteractive pluginInteractive = new SwitchablePluginInteractive(pluginDescriptor,
+                    mainApplicationContext, configuration, invokeSupperCache, false);
+            // 启动失败时也保留耗时记录, 用于排查
+            startupTraces.put(pluginDescriptor.getPluginId(), pluginInteractive.getStartupTrace());
             PluginLauncher pluginLauncher = new PluginLauncher(pluginInteractive, pluginLaunchInvolved);
             SpringPluginHook springPluginHook = pluginLauncher.run();
-            RegistryPluginInfo registryPluginInfo = new RegistryPluginInfo(pluginDescriptor, springPluginHook);
+            logStartupTrace(pluginDescriptor, pluginInteractive.getStartupTrace());
+            RegistryPluginInfo registryPluginInfo = new RegistryPluginInfo(pluginDescriptor, springPluginHook,
+                    pluginInteractive);
             registryInfo.put(pluginDescriptor.getPluginId(), registryPluginInfo);
             pluginInsideInfo.setPluginState(PluginState.STARTED);
             super.startFinish(pluginInsideInfo);
@@ -113,6 +162,12 @@ public class PluginLauncherManager extends DefaultPluginManager{
     @Override
     protected void stop(PluginInsideInfo pluginInsideInfo) throws Exception {
         String pluginId = pluginInsideInfo.getPluginId();
+        if(pendingPlugins.remove(pluginId) != null){
+            // 还未激活的插件, 只释放预留的访问入口
+            release(pluginInsideInfo.getPluginDescriptor(), lazyPluginReservers);
+            super.stop(pluginInsideInfo);
+            return;
+        }
         RegistryPluginInfo registryPluginInfo = registryInfo.get(pluginId);
         if(registryPluginInfo == null){
             throw new PluginException("没有发现插件 '" + pluginId +  "' 信息");
@@ -123,6 +178,7 @@ public class PluginLauncherManager extends DefaultPluginManager{
             springPluginHook.close();
             invokeSupperCache.remove(pluginId);
             registryInfo.remove(pluginId);
+            startupTraces.remove(pluginId);
             super.stop(pluginInsideInfo);
         } catch (Exception e){
             if(e instanceof PluginProhibitStopException){
@@ -135,13 +191,208 @@ public class PluginLauncherManager extends DefaultPluginManager{
     }
 
 
+    @Override
+    protected void upgrade(PluginInsideInfo oldPlugin, Path pluginPath, boolean unpackPlugin,
+                           PluginInfo upgradePlugin) throws Exception {
+        String pluginId = oldPlugin.getPluginId();
+        RegistryPluginInfo oldRegistryInfo = registryInfo.get(pluginId);
+        if(oldPlugin.getPluginState() != PluginState.STARTED || oldRegistryInfo == null){
+            super.upgrade(oldPlugin, pluginPath, unpackPlugin, upgradePlugin);
+            return;
+        }
+        // 旧插件必须可以停止
+        launcherChecker.checkCanStop(oldPlugin);
+        SpringPluginHook oldSpringPluginHook = oldRegistryInfo.getSpringPluginHook();
+        oldSpringPluginHook.stopVerify();
+
+        // 在旧插件旁启动新插件, 新插件使用自己的 classloader 和 ApplicationContext. 注册信息暂不生效
+        PluginInsideInfo newPlugin = loadUpgradePlugin(pluginPath, unpackPlugin);
+        pluginListenerFactory.loadSuccess(newPlugin.toPluginInfo());
+        InsidePluginDescriptor newDescriptor = newPlugin.getPluginDescriptor();
+        SwitchablePluginInteractive newInteractive = new SwitchablePluginInteractive(newDescriptor,
+                mainApplicationContext, configuration, invokeSupperCache, true);
+        SpringPluginHook newSpringPluginHook;
+        try {
+            launcherChecker.checkCanStart(newPlugin);
+            newSpringPluginHook = new PluginLauncher(newInteractive, pluginLaunchInvolved).run();
+        } catch (Throwable e){
+            // 新插件启动失败, 旧插件继续提供服务. 删除拷贝到插件根目录中的新插件, 避免下次启动时与旧插件冲突
+            newPlugin.setPluginState(PluginState.STARTED_FAILURE);
+            PluginException pluginException = PluginException.getPluginException(e,
+                    ()-> new PluginException(newDescriptor, "启动", e));
+            pluginListenerFactory.startFailure(newPlugin.toPluginInfo(), pluginException);
+            deleteCopiedPlugin(pluginPath, Paths.get(newDescriptor.getPluginPath()));
+            throw pluginException;
+        }
+
+        // 切换: 新插件的扩展、调用提供者整体替换旧插件的注册信息, 旧插件的注册、移除不再生效
+        newInteractive.switchOver();
+        oldRegistryInfo.getPluginInteractive().detach();
+        // 新版本的耗时记录替换旧版本的记录, 旧版本的记录不再保留
+        startupTraces.put(pluginId, newInteractive.getStartupTrace());
+        logStartupTrace(newDescriptor, newInteractive.getStartupTrace());
+        registryInfo.put(pluginId, new RegistryPluginInfo(newDescriptor, newSpringPluginHook, newInteractive));
+        newPlugin.setPluginState(PluginState.STARTED);
+        super.startFinish(newPlugin);
+        pluginListenerFactory.startSuccess(newPlugin.toPluginInfo());
+        log.info("插件[{}]已切换到[{}]", MsgUtils.getPluginUnique(oldPlugin.getPluginDescriptor()),
+                MsgUtils.getPluginUnique(newDescriptor));
+
+        // 等待旧插件处理中的请求完成后, 停止旧插件
+        drain(oldPlugin);
+        PluginInfo oldPluginInfo = oldPlugin.toPluginInfo();
+        try {
+            oldSpringPluginHook.close();
+            oldPlugin.setPluginState(PluginState.STOPPED);
+            pluginListenerFactory.stopSuccess(oldPluginInfo);
+        } catch (Throwable e){
+            // 新插件已生效, 旧插件停止失败不影响更新结果
+            oldPlugin.setPluginState(PluginState.STOPPED_FAILURE);
+            PluginException pluginException = PluginException.getPluginException(e,
+                    ()-> new PluginException(oldPlugin.getPluginDescriptor(), "停止", e));
+            pluginListenerFactory.stopFailure(oldPluginInfo, pluginException);
+            log.error("停止旧插件[{}]失败. {}", MsgUtils.getPluginUnique(oldPlugin.getPluginDescriptor()),
+                    e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void unLoad(String pluginId) {
+        super.unLoad(pluginId);
+        // 启动失败的插件保留的耗时记录, 卸载时移除
+        startupTraces.remove(pluginId);
+    }
+
+    @Override
+    public List<PluginStartupPhase> getStartupPhases(String pluginId) {
+        PluginStartupTrace startupTrace = startupTraces.get(pluginId);
+        if(startupTrace == null){
+            return Collections.emptyList();
+        }
+        return startupTrace.getPhases();
+    }
+
+    private void logStartupTrace(InsidePluginDescriptor descriptor, PluginStartupTrace startupTrace){
+        if(log.isDebugEnabled()){
+            log.debug("插件[{}]启动耗时:\n{}", MsgUtils.getPluginUnique(descriptor), startupTrace);
+        }
+    }
+
+    /**
+     * 新插件切换生效后, 等待旧插件处理中的请求完成
+     * @param oldPlugin 旧插件
+     */
+    protected void drain(PluginInsideInfo oldPlugin){
+        long drainTime = configuration.upgradeDrainTime();
+        if(drainTime <= 0){
+            return;
+        }
+        try {
+            Thread.sleep(drainTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * 为延迟启动的插件预留访问入口
+     * @param pluginInsideInfo 插件信息
+     * @return 是否预留成功. 预留失败时插件直接启动
+     */
+    private boolean reserve(PluginInsideInfo pluginInsideInfo){
+        InsidePluginDescriptor descriptor = pluginInsideInfo.getPluginDescriptor();
+        pendingPlugins.put(pluginInsideInfo.getPluginId(), pluginInsideInfo);
+        List<LazyPluginReserver> reserved = new ArrayList<>(lazyPluginReservers.size());
+        for (LazyPluginReserver reserver : lazyPluginReservers) {
+            boolean success;
+            try {
+                success = reserver.reserve(descriptor, lazyPluginActivator);
+            } catch (Exception e){
+                log.error("为插件[{}]预留访问入口失败. {}", MsgUtils.getPluginUnique(descriptor), e.getMessage(), e);
+                success = false;
+            }
+            if(!success){
+                pendingPlugins.remove(pluginInsideInfo.getPluginId());
+                release(descriptor, reserved);
+                log.info("插件[{}]无法预留访问入口, 直接启动", MsgUtils.getPluginUnique(descriptor));
+                return false;
+            }
+            reserved.add(reserver);
+        }
+        return true;
+    }
+
+    private void release(InsidePluginDescriptor descriptor, List<LazyPluginReserver> reservers){
+        for (LazyPluginReserver reserver : reservers) {
+            try {
+                reserver.release(descriptor);
+            } catch (Exception e){
+                log.error("释放插件[{}]预留的访问入口失败. {}", MsgUtils.getPluginUnique(descriptor),
+                        e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 激活延迟启动的插件
+     */
+    private class PendingPluginActivator implements LazyPluginActivator{
+
+        @Override
+        public boolean isPending(String pluginId) {
+            return pluginId != null && pendingPlugins.containsKey(pluginId);
+        }
+
+        @Override
+        public Set<String> getPendingPluginIds() {
+            return new HashSet<>(pendingPlugins.keySet());
+        }
+
+        @Override
+        public void activate(String pluginId) throws PluginException {
+            if(!isPending(pluginId)){
+                return;
+            }
+            Lock lock = lockPlugin(pluginId);
+            try {
+                PluginInsideInfo pluginInsideInfo = pendingPlugins.get(pluginId);
+                if(pluginInsideInfo == null){
+                    // 已被其他线程激活或者已停止
+                    return;
+                }
+                InsidePluginDescriptor descriptor = pluginInsideInfo.getPluginDescriptor();
+                try {
+                    launch(pluginInsideInfo);
+                    log.info("插件[{}]已激活", MsgUtils.getPluginUnique(descriptor));
+                    pluginListenerFactory.activateSuccess(pluginInsideInfo.toPluginInfo());
+                } catch (Throwable e){
+                    stopFinish(pluginInsideInfo);
+                    PluginException pluginException = PluginException.getPluginException(e,
+                            ()-> new PluginException(descriptor, "启动", e));
+                    pluginListenerFactory.startFailure(pluginInsideInfo.toPluginInfo(), pluginException);
+                    throw pluginException;
+                } finally {
+                    // 插件的访问入口已注册后, 再释放预留的入口
+                    pendingPlugins.remove(pluginId);
+                    release(descriptor, lazyPluginReservers);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
     static class RegistryPluginInfo{
         private final PluginDescriptor descriptor;
         private final SpringPluginHook springPluginHook;
+        private final SwitchablePluginInteractive pluginInteractive;
 
-        private RegistryPluginInfo(PluginDescriptor descriptor, SpringPluginHook springPluginHook) {
+        private RegistryPluginInfo(PluginDescriptor descriptor, SpringPluginHook springPluginHook,
+                                   SwitchablePluginInteractive pluginInteractive) {
             this.descriptor = descriptor;
             this.springPluginHook = springPluginHook;
+            this.pluginInteractive = pluginInteractive;
         }
 
         public PluginDescriptor getDescriptor() {
@@ -151,5 +402,9 @@ public class PluginLauncherManager extends DefaultPluginManager{
         public SpringPluginHook getSpringPluginHook() {
             return springPluginHook;
         }
+
+        public SwitchablePluginInteractive getPluginInteractive() {
+            return pluginInteractive;
+        }
     }
 }
@@ -17,14 +17,17 @@
 package com.gitee.starblues.core;
 
 import com.gitee.starblues.core.exception.PluginException;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupPhase;
 
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * 插件管理者
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public interface PluginManager {
 
@@ -103,6 +106,27 @@ public interface PluginManager {
      */
     PluginInfo upgrade(Path pluginPath, boolean unpackPlugin) throws PluginException;
 
+    /**
+     * 插件目录中的插件包发生变化时安装或者更新插件.
+     * 已安装相同版本的插件时忽略, 例如通过上传安装后拷贝到插件目录的插件包
+     * @param pluginPath 发生变化的插件包路径
+     * @return 安装或更新后的插件信息, 忽略时返回 null
+     * @throws PluginException 插件异常
+     * @since 3.0.4
+     */
+    default PluginInfo upgradeOfChanged(Path pluginPath) throws PluginException{
+        PluginInfo newPluginInfo = parse(pluginPath);
+        if(newPluginInfo == null){
+            return null;
+        }
+        PluginInfo oldPluginInfo = getPluginInfo(newPluginInfo.getPluginId());
+        if(oldPluginInfo != null && Objects.equals(oldPluginInfo.getPluginDescriptor().getPluginVersion(),
+                newPluginInfo.getPluginDescriptor().getPluginVersion())){
+            return null;
+        }
+        return upgrade(pluginPath, false);
+    }
+
     /**
      * 启动处于 RESOLVED 状态的插件
      * @param pluginId 插件id
@@ -132,4 +156,14 @@ public interface PluginManager {
      */
     List<PluginInfo> getPluginInfos();
 
+    /**
+     * 得到插件最近一次启动各个阶段的耗时信息
+     * @param pluginId 插件id
+     * @return 按开始顺序排序的阶段信息. 插件未启动过时返回空集合
+     * @since 3.0.4
+     */
+    default List<PluginStartupPhase> getStartupPhases(String pluginId){
+        return Collections.emptyList();
+    }
+
 }
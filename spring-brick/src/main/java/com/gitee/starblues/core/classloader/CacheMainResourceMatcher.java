@@ -17,38 +17,173 @@
 package com.gitee.starblues.core.classloader;
 
 
+import lombok.extern.slf4j.Slf4j;
+
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * 可缓存的 ResourceMatcher
+ * 可缓存的 ResourceMatcher.
+ * 缓存条目数有上限, 超出上限时使用带访问频率的 CLOCK 算法淘汰: 每次命中增加条目的访问频率(最大为 3),
+ * 淘汰扫描时频率不为 0 的条目减少频率后获得再次机会. 只被查询一次的资源名称(例如动态生成的代理类、lambda 类)会被优先淘汰
  * @author starBlues
  * @since 3.0.0
- * @version 3.0.3
+ * @version 3.0.4
  */
+@Slf4j
 public class CacheMainResourceMatcher extends DefaultMainResourceMatcher implements AutoCloseable {
 
     public static final String TYPE = "CacheMainResourceMatcher";
 
-    private final Map<String, Boolean> resourceUrlMatchCache = new ConcurrentHashMap<>();
+    /**
+     * 默认的最大缓存条目数
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private static final int MAX_FREQUENCY = 3;
+
+    private final int maxSize;
+    private final Map<String, CacheEntry> resourceUrlMatchCache = new ConcurrentHashMap<>();
+    private final Queue<CacheEntry> clockQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger clockQueueSize = new AtomicInteger(0);
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
 
     public CacheMainResourceMatcher(MainResourcePatternDefiner mainResourcePatternDefiner) {
+        this(mainResourcePatternDefiner, DEFAULT_MAX_SIZE);
+    }
+
+    public CacheMainResourceMatcher(MainResourcePatternDefiner mainResourcePatternDefiner, int maxSize) {
         super(mainResourcePatternDefiner);
+        this.maxSize = Math.max(maxSize, 0);
     }
 
     @Override
     public Boolean match(String resourceUrl) {
-        Boolean match = resourceUrlMatchCache.get(resourceUrl);
-        if(match == null){
-            match = super.match(resourceUrl);
-            resourceUrlMatchCache.put(resourceUrl, match);
+        if(resourceUrl == null){
+            return super.match(null);
+        }
+        CacheEntry entry = resourceUrlMatchCache.get(resourceUrl);
+        if(entry != null){
+            hitCount.increment();
+            entry.touch();
+            return entry.match;
+        }
+        missCount.increment();
+        Boolean match = super.match(resourceUrl);
+        if(maxSize == 0){
+            return match;
+        }
+        CacheEntry newEntry = new CacheEntry(resourceUrl, match);
+        if(resourceUrlMatchCache.putIfAbsent(resourceUrl, newEntry) == null){
+            clockQueueSize.incrementAndGet();
+            clockQueue.offer(newEntry);
+            evict();
         }
         return match;
     }
 
+    /**
+     * 得到缓存命中次数
+     * @return long
+     */
+    public long getHitCount(){
+        return hitCount.sum();
+    }
+
+    /**
+     * 得到缓存未命中次数
+     * @return long
+     */
+    public long getMissCount(){
+        return missCount.sum();
+    }
+
+    /**
+     * 得到缓存淘汰次数
+     * @return long
+     */
+    public long getEvictionCount(){
+        return evictionCount.sum();
+    }
+
+    /**
+     * 得到当前缓存的条目数
+     * @return int
+     */
+    public int getSize(){
+        return resourceUrlMatchCache.size();
+    }
+
+    /**
+     * 得到缓存的最大条目数
+     * @return int
+     */
+    public int getMaxSize(){
+        return maxSize;
+    }
+
+    /**
+     * 得到缓存命中率
+     * @return 0 ~ 1 之间的命中率, 没有查询时返回 0
+     */
+    public double getHitRate(){
+        long hit = getHitCount();
+        long total = hit + getMissCount();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    private void evict(){
+        int chances = clockQueueSize.get() * (MAX_FREQUENCY + 1) + 1;
+        while (clockQueueSize.get() > maxSize && chances-- > 0){
+            CacheEntry entry = clockQueue.poll();
+            if(entry == null){
+                return;
+            }
+            if(entry.frequency > 0){
+                entry.frequency--;
+                clockQueue.offer(entry);
+                continue;
+            }
+            clockQueueSize.decrementAndGet();
+            if(resourceUrlMatchCache.remove(entry.resourceUrl, entry)){
+                evictionCount.increment();
+            }
+        }
+    }
 
     @Override
     public void close() throws Exception {
+        log.debug("{} 关闭. 命中: {}, 未命中: {}, 淘汰: {}, 当前条目数: {}",
+                TYPE, getHitCount(), getMissCount(), getEvictionCount(), getSize());
         resourceUrlMatchCache.clear();
+        clockQueue.clear();
+        clockQueueSize.set(0);
+    }
+
+    private static class CacheEntry {
+
+        private final String resourceUrl;
+        private final Boolean match;
+        private volatile int frequency;
+
+        private CacheEntry(String resourceUrl, Boolean match) {
+            this.resourceUrl = resourceUrl;
+            this.match = match;
+        }
+
+        private void touch(){
+            // 允许并发下的少量计数丢失
+            int f = frequency;
+            if(f < MAX_FREQUENCY){
+                frequency = f + 1;
+            }
+        }
     }
 }
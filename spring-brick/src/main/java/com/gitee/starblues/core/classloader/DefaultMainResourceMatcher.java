@@ -21,61 +21,184 @@ import com.gitee.starblues.utils.UrlUtils;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.PathMatcher;
 
-import java.util.Collection;
-import java.util.Set;
+import java.util.*;
 
 /**
- * 默认的主程序资源匹配者
+ * 默认的主程序资源匹配者.
+ * 创建时将 include/exclude 规则编译为按路径段组织的前缀树, 匹配时只需沿资源路径走一遍前缀树.
+ * 形如 a/b/** 和不含通配符的规则直接由前缀树判断, 其余规则挂在其最长的字面前缀节点上,
+ * 只有资源路径经过该节点时才使用 AntPathMatcher 匹配
  * @author starBlues
  * @since 3.0.0
- * @version 3.0.3
+ * @version 3.0.4
  */
 public class DefaultMainResourceMatcher implements MainResourceMatcher{
 
-    private final Set<String> includePatterns;
-    private final Set<String> excludePatterns;
-
-    private final PathMatcher pathMatcher;
+    private final PatternTrie includePatterns;
+    private final PatternTrie excludePatterns;
 
     public DefaultMainResourceMatcher(MainResourcePatternDefiner mainResourcePatternDefiner) {
-        this.includePatterns = mainResourcePatternDefiner.getIncludePatterns();
-        this.excludePatterns = mainResourcePatternDefiner.getExcludePatterns();
-        this.pathMatcher = new AntPathMatcher();
+        PathMatcher pathMatcher = new AntPathMatcher();
+        this.includePatterns = new PatternTrie(mainResourcePatternDefiner.getIncludePatterns(), pathMatcher);
+        this.excludePatterns = new PatternTrie(mainResourcePatternDefiner.getExcludePatterns(), pathMatcher);
     }
 
     @Override
     public Boolean match(String resourceUrl) {
-        return match(includePatterns, resourceUrl);
+        if(includePatterns.isEmpty() || ObjectUtils.isEmpty(resourceUrl)){
+            return Boolean.FALSE;
+        }
+        String url = UrlUtils.formatMatchUrl(resourceUrl);
+        if(!includePatterns.match(url)){
+            return Boolean.FALSE;
+        }
+        return !excludePatterns.match(url);
     }
 
-    private Boolean match(Collection<String> patterns, String url){
-        if(ObjectUtils.isEmpty(patterns) || ObjectUtils.isEmpty(url)){
-            return Boolean.FALSE;
+    /**
+     * 按路径段组织的规则前缀树. 匹配语义与 AntPathMatcher 一致
+     */
+    private static class PatternTrie {
+
+        private static final String SEPARATOR = "/";
+        private static final String MATCH_ALL = "**";
+
+        private final Node root = new Node();
+        private final PathMatcher pathMatcher;
+        private final boolean empty;
+
+        private PatternTrie(Collection<String> patterns, PathMatcher pathMatcher) {
+            this.pathMatcher = pathMatcher;
+            this.empty = ObjectUtils.isEmpty(patterns);
+            if(!empty){
+                for (String pattern : patterns) {
+                    add(pattern);
+                }
+            }
+        }
+
+        boolean isEmpty(){
+            return empty;
         }
-        url = UrlUtils.formatMatchUrl(url);
-        for (String pattern : patterns) {
-            boolean match = pathMatcher.match(pattern, url);
-            if(match){
-                return !excludeMatch(excludePatterns, url);
+
+        private void add(String pattern){
+            if(ObjectUtils.isEmpty(pattern)){
+                return;
+            }
+            if(pattern.startsWith(SEPARATOR)){
+                // 资源路径已去除开头的 '/', 保持原有的匹配语义
+                root.addPattern(pattern);
+                return;
+            }
+            List<String> segments = tokenize(pattern);
+            Node node = root;
+            for (int i = 0; i < segments.size(); i++) {
+                String segment = segments.get(i);
+                if(MATCH_ALL.equals(segment) && i == segments.size() - 1){
+                    // a/b/** 匹配 a/b 及其下的全部路径
+                    node.matchAll = true;
+                    return;
+                }
+                if(isWildcard(segment)){
+                    node.addPattern(pattern);
+                    return;
+                }
+                node = node.children.computeIfAbsent(segment, k -> new Node());
+            }
+            if(pattern.endsWith(SEPARATOR)){
+                node.exactWithSeparator = true;
+            } else {
+                node.exact = true;
             }
         }
-        return Boolean.FALSE;
-    }
 
-    private Boolean excludeMatch(Collection<String> patterns, String url){
-        if(ObjectUtils.isEmpty(patterns) || ObjectUtils.isEmpty(url)){
-            return Boolean.FALSE;
+        boolean match(String url){
+            if(empty){
+                return false;
+            }
+            if(url.startsWith(SEPARATOR)){
+                // 与 AntPathMatcher 一致: 以 '/' 开头的路径只能被以 '/' 开头的规则匹配
+                return root.matchPatterns(pathMatcher, url);
+            }
+            Node node = root;
+            int length = url.length();
+            int start = 0;
+            while (true) {
+                if(node.matchAll || node.matchPatterns(pathMatcher, url)){
+                    return true;
+                }
+                while (start < length && url.charAt(start) == '/'){
+                    start++;
+                }
+                if(start >= length){
+                    break;
+                }
+                int end = url.indexOf('/', start);
+                if(end < 0){
+                    end = length;
+                }
+                node = node.children.get(url.substring(start, end));
+                if(node == null){
+                    return false;
+                }
+                start = end;
+            }
+            return url.endsWith(SEPARATOR) ? node.exactWithSeparator : node.exact;
         }
-        url = UrlUtils.formatMatchUrl(url);
-        for (String pattern : patterns) {
-            boolean match = pathMatcher.match(pattern, url);
-            if(match){
-                return Boolean.TRUE;
+
+        private static List<String> tokenize(String pattern){
+            List<String> segments = new ArrayList<>();
+            for (String segment : pattern.split(SEPARATOR)) {
+                if(!segment.isEmpty()){
+                    segments.add(segment);
+                }
             }
+            return segments;
+        }
+
+        private static boolean isWildcard(String segment){
+            return segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0 || segment.indexOf('{') >= 0;
         }
-        return Boolean.FALSE;
     }
 
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        /**
+         * 匹配当前节点及其下的全部路径
+         */
+        private boolean matchAll;
+
+        /**
+         * 精确匹配当前节点
+         */
+        private boolean exact;
+        private boolean exactWithSeparator;
 
+        /**
+         * 需要使用 AntPathMatcher 匹配的规则
+         */
+        private List<String> patterns;
+
+        private void addPattern(String pattern){
+            if(patterns == null){
+                patterns = new ArrayList<>(2);
+            }
+            patterns.add(pattern);
+        }
+
+        private boolean matchPatterns(PathMatcher pathMatcher, String url){
+            if(patterns == null){
+                return false;
+            }
+            for (String pattern : patterns) {
+                if(pathMatcher.match(pattern, url)){
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 
 }
@@ -18,7 +18,6 @@ package com.gitee.starblues.core.classloader;
 
 
 import com.gitee.starblues.core.descriptor.PluginLibInfo;
-import com.gitee.starblues.core.exception.PluginException;
 import com.gitee.starblues.core.descriptor.InsidePluginDescriptor;
 import com.gitee.starblues.loader.classloader.*;
 import com.gitee.starblues.loader.classloader.resource.loader.*;
@@ -27,19 +26,28 @@ import com.gitee.starblues.loader.launcher.ResourceLoaderFactoryGetter;
 import com.gitee.starblues.utils.MsgUtils;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
 import java.util.zip.ZipEntry;
 
 /**
- * 嵌套插件jar加载者
+ * 嵌套插件jar加载者. 依赖包可以是存储(STORED)或者压缩(DEFLATED)方式.
+ * 延迟加载时存储的依赖包直接在插件包中随机访问, 压缩的依赖包解压到临时目录后随机访问
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 @Slf4j
 public class NestedPluginJarResourceLoader extends AbstractResourceLoader {
@@ -48,6 +56,16 @@ public class NestedPluginJarResourceLoader extends AbstractResourceLoader {
     private final GenericClassLoader parentClassLoader;
     private final ResourceLoaderFactory resourceLoaderFactory;
 
+    /**
+     * 压缩的依赖包解压后的临时文件
+     */
+    private final List<File> spoolFiles = new CopyOnWriteArrayList<>();
+    private File spoolDir;
+
+    /**
+     * 临时目录中是否存在加载到主程序中的依赖包. 存在时临时目录只能在退出时删除
+     */
+    private boolean deleteSpoolDirOnExit = false;
 
     public NestedPluginJarResourceLoader(InsidePluginDescriptor pluginDescriptor,
                                          GenericClassLoader parentClassLoader,
@@ -92,20 +110,204 @@ public class NestedPluginJarResourceLoader extends AbstractResourceLoader {
                 log.debug("Not found: " + pluginLibInfo.getPath());
                 continue;
             }
-            if (jarEntry.getMethod() != ZipEntry.STORED) {
-                throw new PluginException("插件依赖压缩方式错误, 必须是: 存储(stored)压缩方式");
-            }
-            InputStream jarFileInputStream = jarFile.getInputStream(jarEntry);
-            URL url = new URL(baseUrl.toString() + pluginLibInfo.getPath() + "!/");
+            URL url = getLibUrl(jarEntry);
             if(pluginLibInfo.isLoadToMain()){
-                parentClassLoader.addResource(new JarResourceLoader(url, new JarInputStream(jarFileInputStream)));
+                if(jarEntry.getMethod() != ZipEntry.STORED){
+                    deleteOnExit(jarEntry);
+                }
+                parentClassLoader.addResource(createLibResourceLoader(jarFile, jarEntry, url, true));
                 log.debug("插件[{}]依赖被加载到主程序中: {}", pluginUnique, pluginLibInfo.getPath());
+                continue;
+            }
+            if(jarEntry.getMethod() != ZipEntry.STORED){
+                spoolFiles.add(getSpoolFile(jarEntry));
+            }
+            if(pluginLibInfo.isIndexed()){
+                // 存在打包时生成的索引, 第一次访问时才打开依赖包
+                resourceLoaderFactory.addResource(new IndexedResourceLoader(url, pluginLibInfo.getPackageNames(),
+                        pluginLibInfo.getResourceNames(),
+                        ()-> new NestedLibResourceLoader(url, pluginLibInfo.getPath())));
+                log.debug("插件[{}]依赖按索引注册: {}", pluginUnique, pluginLibInfo.getPath());
             } else {
-                JarResourceLoader jarResourceLoader = new JarResourceLoader(url, new JarInputStream(jarFileInputStream));
-                resourceLoaderFactory.addResource(jarResourceLoader);
+                resourceLoaderFactory.addResource(createLibResourceLoader(jarFile, jarEntry, url, false));
                 log.debug("插件[{}]依赖被加载: {}", pluginUnique, pluginLibInfo.getPath());
             }
         }
     }
 
+    /**
+     * 获取依赖包的 url. 压缩的依赖包无法在插件包中直接访问, 使用解压后的临时文件的 url
+     * @param jarEntry 依赖包条目
+     * @return URL
+     * @throws Exception 获取异常
+     */
+    private URL getLibUrl(JarEntry jarEntry) throws Exception {
+        if(jarEntry.getMethod() == ZipEntry.STORED){
+            return new URL(baseUrl.toString() + jarEntry.getName() + "!/");
+        }
+        return new URL("jar:" + getSpoolFile(jarEntry).toURI().toURL() + "!/");
+    }
+
+    /**
+     * 创建依赖包的资源加载者. 存储(STORED)的依赖包在延迟加载时作为插件包中的嵌套 jar 随机访问, 否则直接顺序读取;
+     * 压缩的依赖包先解压到临时目录, 再按 jar 文件随机访问.
+     * 加载到主程序中的存储依赖包总是顺序读取, 避免插件卸载后仍占用插件包
+     * @param jarFile 插件包
+     * @param jarEntry 依赖包条目
+     * @param url 依赖包 url
+     * @param loadToMain 是否加载到主程序中
+     * @return 资源加载者
+     * @throws Exception 创建异常
+     */
+    private AbstractResourceLoader createLibResourceLoader(JarFile jarFile, JarEntry jarEntry, URL url,
+                                                           boolean loadToMain) throws Exception {
+        if(jarEntry.getMethod() == ZipEntry.STORED){
+            if(!loadToMain && ResourceLoaderFactoryGetter.isLazyLoad()){
+                return createNestedLibResourceLoader(jarEntry, url);
+            }
+            InputStream jarFileInputStream = jarFile.getInputStream(jarEntry);
+            return new JarResourceLoader(url, new JarInputStream(jarFileInputStream));
+        }
+        File spoolFile = spool(jarFile, jarEntry);
+        return new JarResourceLoader(spoolFile, ResourceLoaderFactoryGetter.isLazyLoad());
+    }
+
+    /**
+     * 将存储(STORED)的依赖包作为插件包中的嵌套 jar 打开, 按中央目录随机访问. 资源加载者关闭时关闭插件包
+     * @param jarEntry 依赖包条目
+     * @param url 依赖包 url
+     * @return 资源加载者
+     * @throws Exception 创建异常
+     */
+    private AbstractResourceLoader createNestedLibResourceLoader(JarEntry jarEntry, URL url) throws Exception {
+        com.gitee.starblues.loader.jar.JarFile rootJarFile =
+                new com.gitee.starblues.loader.jar.JarFile(pluginDescriptor.getInsidePluginPath().toFile());
+        try {
+            ZipEntry libEntry = rootJarFile.getEntry(jarEntry.getName());
+            if(libEntry == null){
+                throw new IOException("Not found: " + jarEntry.getName());
+            }
+            JarFile libJarFile = rootJarFile.getNestedJarFile(libEntry);
+            return new JarResourceLoader(url, libJarFile){
+                @Override
+                public void close() throws Exception {
+                    try {
+                        super.close();
+                    } finally {
+                        rootJarFile.close();
+                    }
+                }
+            };
+        } catch (Exception e){
+            rootJarFile.close();
+            throw e;
+        }
+    }
+
+    private File spool(JarFile jarFile, JarEntry jarEntry) throws IOException {
+        File spoolFile = getSpoolFile(jarEntry);
+        synchronized (this){
+            if(spoolFile.exists() && spoolFile.length() == jarEntry.getSize()){
+                return spoolFile;
+            }
+            try (InputStream inputStream = jarFile.getInputStream(jarEntry)){
+                Files.copy(inputStream, spoolFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return spoolFile;
+        }
+    }
+
+    /**
+     * 获取依赖包解压后的临时文件. 文件名包含依赖包完整路径的散列值, 不同目录中的同名依赖包不会相互覆盖
+     * @param jarEntry 依赖包条目
+     * @return 临时文件
+     * @throws IOException 创建临时目录异常
+     */
+    private File getSpoolFile(JarEntry jarEntry) throws IOException {
+        String path = jarEntry.getName();
+        String name = path;
+        if(name.lastIndexOf('/') != -1){
+            name = name.substring(name.lastIndexOf('/') + 1);
+        }
+        UUID pathHash = UUID.nameUUIDFromBytes(path.getBytes(StandardCharsets.UTF_8));
+        return new File(getSpoolDir(), Long.toHexString(pathHash.getMostSignificantBits()) + "-" + name);
+    }
+
+    private synchronized File getSpoolDir() throws IOException {
+        if(spoolDir == null){
+            String fileName = pluginDescriptor.getInsidePluginPath().getFileName().toString();
+            spoolDir = Files.createTempDirectory(fileName + "-spring-brick-libs-").toFile();
+        }
+        return spoolDir;
+    }
+
+    /**
+     * 加载到主程序中的依赖包在插件关闭后仍被使用, 其临时文件以及临时目录只在退出时删除
+     * @param jarEntry 依赖包条目
+     * @throws IOException 获取临时文件异常
+     */
+    private synchronized void deleteOnExit(JarEntry jarEntry) throws IOException {
+        if(!deleteSpoolDirOnExit){
+            // 退出时按注册的逆序删除, 目录需先于文件注册
+            getSpoolDir().deleteOnExit();
+            deleteSpoolDirOnExit = true;
+        }
+        getSpoolFile(jarEntry).deleteOnExit();
+    }
+
+    @Override
+    public synchronized void close() throws Exception {
+        // 依赖包的资源加载者先于当前加载者关闭
+        for (File spoolFile : spoolFiles) {
+            try {
+                Files.deleteIfExists(spoolFile.toPath());
+            } catch (IOException e){
+                log.debug("删除依赖包临时文件失败: {}", spoolFile.getPath());
+            }
+        }
+        spoolFiles.clear();
+        if(spoolDir != null && !deleteSpoolDirOnExit){
+            try {
+                Files.deleteIfExists(spoolDir.toPath());
+            } catch (IOException e){
+                log.debug("删除依赖包临时目录失败: {}", spoolDir.getPath());
+            }
+            spoolDir = null;
+        }
+    }
+
+    /**
+     * 嵌套依赖包的加载者. 加载时才打开插件包, 加载完成后关闭
+     */
+    private class NestedLibResourceLoader extends AbstractResourceLoader {
+
+        private final String libPath;
+        private AbstractResourceLoader libResourceLoader;
+
+        private NestedLibResourceLoader(URL baseUrl, String libPath) {
+            super(baseUrl);
+            this.libPath = libPath;
+        }
+
+        @Override
+        protected void loadOfChild(ResourceStorage resourceStorage) throws Exception {
+            try (JarFile jarFile = new JarFile(pluginDescriptor.getInsidePluginPath().toFile())) {
+                JarEntry jarEntry = jarFile.getJarEntry(libPath);
+                if(jarEntry == null){
+                    log.debug("Not found: " + libPath);
+                    return;
+                }
+                libResourceLoader = createLibResourceLoader(jarFile, jarEntry, baseUrl, false);
+                libResourceLoader.load(resourceStorage);
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            if(libResourceLoader != null){
+                libResourceLoader.close();
+            }
+        }
+    }
+
 }
@@ -21,7 +21,10 @@ import com.gitee.starblues.core.descriptor.PluginLibInfo;
 import com.gitee.starblues.core.descriptor.PluginType;
 import com.gitee.starblues.core.exception.PluginException;
 import com.gitee.starblues.loader.classloader.*;
+import com.gitee.starblues.loader.classloader.resource.loader.IndexedResourceLoader;
+import com.gitee.starblues.loader.classloader.resource.loader.JarResourceLoader;
 import com.gitee.starblues.loader.classloader.resource.loader.ResourceLoaderFactory;
+import com.gitee.starblues.loader.launcher.ResourceLoaderFactoryGetter;
 import com.gitee.starblues.utils.Assert;
 import com.gitee.starblues.utils.FilesUtils;
 import com.gitee.starblues.utils.MsgUtils;
@@ -38,11 +41,15 @@ import java.util.Set;
 /**
  * 插件 classLoader
  * @author starBlues
- * @version 3.0.3
+ * @version 3.0.4
  */
 @Slf4j
 public class PluginClassLoader extends GenericClassLoader {
 
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
     private final GenericClassLoader parentClassLoader;
     private final MainResourceMatcher mainResourceMatcher;
 
@@ -71,6 +78,7 @@ public class PluginClassLoader extends GenericClassLoader {
             addDirPluginClasspath(descriptor);
             addLibFile(descriptor);
         }
+        resourceChanged();
     }
 
     private void addOuterPluginClasspath(InsidePluginDescriptor descriptor) throws Exception{
@@ -114,6 +122,12 @@ public class PluginClassLoader extends GenericClassLoader {
                     // 加载到主程序中
                     parentClassLoader.addResource(existFile);
                     log.debug("插件[{}]依赖被加载到主程序中: {}", pluginUnique, existFile.getPath());
+                } else if(pluginLibInfo.isIndexed() && existFile.isFile()){
+                    // 存在打包时生成的索引, 第一次访问时才打开依赖包
+                    addResource(new IndexedResourceLoader(new URL("jar:" + existFile.toURI().toURL() + "!/"),
+                            pluginLibInfo.getPackageNames(), pluginLibInfo.getResourceNames(),
+                            ()-> new JarResourceLoader(existFile, ResourceLoaderFactoryGetter.isLazyLoad())));
+                    log.debug("插件[{}]依赖按索引注册: {}", pluginUnique, existFile.getPath());
                 } else {
                     addResource(existFile);
                     log.debug("插件[{}]依赖被加载: {}", pluginUnique, existFile.getPath());
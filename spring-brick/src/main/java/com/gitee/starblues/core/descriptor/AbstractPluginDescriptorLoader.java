@@ -48,7 +48,7 @@ import static com.gitee.starblues.utils.PropertiesUtils.getValue;
 /**
  * 抽象的 PluginDescriptorLoader
  * @author starBlues
- * @version 3.0.2
+ * @version 3.0.4
  */
 @Slf4j
 public abstract class AbstractPluginDescriptorLoader implements PluginDescriptorLoader{
@@ -107,7 +107,8 @@ public abstract class AbstractPluginDescriptorLoader implements PluginDescriptor
 
         String pluginLibDir = getValue(properties, PLUGIN_LIB_DIR, false);
         descriptor.setPluginLibDir(pluginLibDir);
-        descriptor.setPluginLibInfo(getPluginLibInfo(descriptor, resourcesConfig.getDependenciesIndex()));
+        descriptor.setPluginLibInfo(getPluginLibInfo(descriptor, resourcesConfig.getDependenciesIndex(),
+                resourcesConfig.getDependenciesPackages(), resourcesConfig.getDependenciesResources()));
         descriptor.setIncludeMainResourcePatterns(resourcesConfig.getLoadMainResourceIncludes());
         descriptor.setExcludeMainResourcePatterns(resourcesConfig.getLoadMainResourceExcludes());
 
@@ -155,6 +156,12 @@ public abstract class AbstractPluginDescriptorLoader implements PluginDescriptor
     }
 
     protected Set<PluginLibInfo> getPluginLibInfo(DefaultInsidePluginDescriptor descriptor, Set<String> dependenciesIndex){
+        return getPluginLibInfo(descriptor, dependenciesIndex, null, null);
+    }
+
+    protected Set<PluginLibInfo> getPluginLibInfo(DefaultInsidePluginDescriptor descriptor, Set<String> dependenciesIndex,
+                                                  Map<String, Set<String>> dependenciesPackages,
+                                                  Map<String, Set<String>> dependenciesResources){
         String pluginLibDir = descriptor.getPluginLibDir();
         boolean configPluginLibDir = false;
         if(!ObjectUtils.isEmpty(pluginLibDir)){
@@ -177,7 +184,14 @@ public abstract class AbstractPluginDescriptorLoader implements PluginDescriptor
             if(configPluginLibDir){
                 libPath = getLibPath(descriptor, index);
             }
-            pluginLibInfos.add(new PluginLibInfo(libPath, loadToMain));
+            PluginLibInfo pluginLibInfo = new PluginLibInfo(libPath, loadToMain);
+            if(dependenciesPackages != null){
+                pluginLibInfo.setPackageNames(dependenciesPackages.get(index));
+            }
+            if(dependenciesResources != null){
+                pluginLibInfo.setResourceNames(dependenciesResources.get(index));
+            }
+            pluginLibInfos.add(pluginLibInfo);
         }
         return pluginLibInfos;
     }
@@ -211,10 +225,31 @@ public abstract class AbstractPluginDescriptorLoader implements PluginDescriptor
     }
 
     protected Properties getDecryptProperties(InputStream inputStream) throws Exception{
+        return decryptProperties(getProperties(inputStream));
+    }
+
+    /**
+     * 读取未解密的插件元信息
+     * @param inputStream 插件元信息输入流
+     * @return Properties
+     * @throws Exception 读取异常
+     * @since 3.0.4
+     */
+    protected Properties getProperties(InputStream inputStream) throws Exception{
         Properties properties = new Properties();
         try (InputStreamReader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);){
             properties.load(reader);
         }
+        return properties;
+    }
+
+    /**
+     * 解密插件元信息
+     * @param properties 未解密的插件元信息
+     * @return 解密后的插件元信息
+     * @since 3.0.4
+     */
+    protected Properties decryptProperties(Properties properties){
         String pluginId = getValue(properties, PLUGIN_ID);
         return pluginDescriptorDecrypt.decrypt(pluginId, properties);
     }
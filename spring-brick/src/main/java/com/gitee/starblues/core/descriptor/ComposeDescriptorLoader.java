@@ -20,17 +20,20 @@ import com.gitee.starblues.core.checker.PluginBasicChecker;
 import com.gitee.starblues.core.descriptor.decrypt.EmptyPluginDescriptorDecrypt;
 import com.gitee.starblues.core.descriptor.decrypt.PluginDescriptorDecrypt;
 import com.gitee.starblues.core.exception.PluginException;
+import com.gitee.starblues.integration.IntegrationConfiguration;
+import com.gitee.starblues.utils.ObjectUtils;
 import com.gitee.starblues.utils.SpringBeanUtils;
 import org.springframework.context.ApplicationContext;
 
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 组合插件描述加载者
  * @author starBlues
- * @version 3.0.1
+ * @version 3.0.4
  */
 public class ComposeDescriptorLoader implements PluginDescriptorLoader{
     
@@ -49,7 +52,16 @@ public class ComposeDescriptorLoader implements PluginDescriptorLoader{
     protected void addDefaultLoader(){
         PluginDescriptorDecrypt pluginDescriptorDecrypt = getPluginDescriptorDecrypt(applicationContext);
         addLoader(new DevPluginDescriptorLoader(pluginDescriptorDecrypt));
-        addLoader(new ProdPluginDescriptorLoader(pluginDescriptorDecrypt));
+        addLoader(new ProdPluginDescriptorLoader(pluginDescriptorDecrypt, getPluginMetaCache(applicationContext)));
+    }
+
+    protected PluginMetaCache getPluginMetaCache(ApplicationContext applicationContext){
+        IntegrationConfiguration configuration = SpringBeanUtils.getExistBean(applicationContext,
+                IntegrationConfiguration.class);
+        if(configuration == null || ObjectUtils.isEmpty(configuration.descriptorCachePath())){
+            return new PluginMetaCache(null);
+        }
+        return new PluginMetaCache(Paths.get(configuration.descriptorCachePath()).toAbsolutePath());
     }
 
     protected PluginDescriptorDecrypt getPluginDescriptorDecrypt(ApplicationContext applicationContext){
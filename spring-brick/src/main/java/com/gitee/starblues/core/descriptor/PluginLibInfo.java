@@ -16,17 +16,17 @@
 
 package com.gitee.starblues.core.descriptor;
 
-import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.Set;
+
 /**
  * 插件依赖包信息
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
-@AllArgsConstructor
 @Getter
 @EqualsAndHashCode
 @ToString
@@ -42,4 +42,39 @@ public class PluginLibInfo {
      */
     private final boolean loadToMain;
 
+    /**
+     * 打包时生成的该依赖中的包名索引. 为 null 表示不存在索引, 需加载依赖后才能得知其包含的包
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Set<String> packageNames;
+
+    /**
+     * 打包时生成的该依赖中根路径以及 META-INF 下的资源名称索引. 为 null 表示不存在索引
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Set<String> resourceNames;
+
+    public PluginLibInfo(String path, boolean loadToMain) {
+        this.path = path;
+        this.loadToMain = loadToMain;
+    }
+
+    public void setPackageNames(Set<String> packageNames) {
+        this.packageNames = packageNames;
+    }
+
+    public void setResourceNames(Set<String> resourceNames) {
+        this.resourceNames = resourceNames;
+    }
+
+    /**
+     * 是否存在打包时生成的完整索引. 存在时可延迟到第一次访问时才加载该依赖
+     * @return boolean
+     */
+    public boolean isIndexed() {
+        return packageNames != null && resourceNames != null;
+    }
+
 }
@@ -0,0 +1,547 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.gitee.starblues.core.descriptor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 插件包元信息缓存.
+ * 根据插件包路径、大小、修改时间和内容摘要缓存解析出的元信息, 插件包未变化时无需重新打开插件包解析.
+ * 内容摘要只计算 zip 的中央目录和目录结束记录(记录了每个文件的名称、大小和 crc), 避免读取整个插件包.
+ * 设置了持久化目录时, 未解密的元信息同时写入该目录, 重启后仍可使用; 解密后的信息只缓存在内存中.
+ * 插件包不存在后, 其缓存在创建缓存、写入新缓存或者读取该插件包指纹失败时移除
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class PluginMetaCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PluginMetaCache.class);
+
+    /**
+     * 无法解析 zip 目录结束记录时, 计算内容摘要读取的插件包尾部字节数
+     */
+    private static final int DIGEST_TAIL_SIZE = 64 * 1024;
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int EOCD_MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int ZIP64_EOCD_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_EOCD_SIZE = 56;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private static final String CACHE_FILE_SUFFIX = ".properties";
+
+    private static final String KEY_PATH = "cache.path";
+    private static final String KEY_SIZE = "cache.size";
+    private static final String KEY_LAST_MODIFIED = "cache.lastModified";
+    private static final String KEY_DIGEST = "cache.digest";
+    private static final String KEY_PACKAGE_TYPE = "cache.packageType";
+    private static final String KEY_RESOURCES_CONFIG = "cache.resourcesConfig";
+    private static final String META_KEY_PREFIX = "meta.";
+
+    private final Path cacheDir;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 创建缓存
+     * @param cacheDir 持久化目录. 为空时只在内存中缓存
+     */
+    public PluginMetaCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+        removeMissingCacheFiles();
+    }
+
+    /**
+     * 得到插件包的指纹
+     * @param location 插件包路径
+     * @return Fingerprint
+     * @throws IOException 读取异常
+     */
+    public Fingerprint fingerprint(Path location) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(location, BasicFileAttributes.class);
+        } catch (NoSuchFileException e){
+            remove(location);
+            throw e;
+        }
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        return new Fingerprint(location.toAbsolutePath().normalize().toString(), size, lastModified,
+                digestCentralDirectory(location, size));
+    }
+
+    /**
+     * 根据指纹获取缓存
+     * @param fingerprint 插件包指纹
+     * @return 缓存的元信息. 不存在或者插件包已变化时返回 null
+     */
+    public Entry get(Fingerprint fingerprint){
+        Entry entry = entries.get(fingerprint.getPath());
+        if(entry != null && entry.getFingerprint().equals(fingerprint)){
+            return entry;
+        }
+        entry = readCacheFile(fingerprint);
+        if(entry != null){
+            entries.put(fingerprint.getPath(), entry);
+        }
+        return entry;
+    }
+
+    /**
+     * 缓存插件包元信息
+     * @param fingerprint 插件包指纹
+     * @param packageType 插件包类型
+     * @param rawProperties 未解密的插件元信息
+     * @param resourcesConfigLines 插件资源配置文件内容
+     * @return 缓存的元信息
+     */
+    public Entry put(Fingerprint fingerprint, String packageType, Properties rawProperties,
+                     List<String> resourcesConfigLines){
+        Entry entry = new Entry(fingerprint, packageType, copy(rawProperties), resourcesConfigLines);
+        entries.put(fingerprint.getPath(), entry);
+        writeCacheFile(entry);
+        // 新的插件包一般伴随着旧插件包被删除, 例如更新插件
+        removeMissingEntries();
+        return entry;
+    }
+
+    /**
+     * 移除插件包的缓存以及持久化文件
+     * @param location 插件包路径
+     */
+    public void remove(Path location){
+        if(location == null){
+            return;
+        }
+        remove(location.toAbsolutePath().normalize().toString());
+    }
+
+    private void remove(String path){
+        entries.remove(path);
+        Path cacheFile = getCacheFile(path);
+        if(cacheFile == null){
+            return;
+        }
+        try {
+            Files.deleteIfExists(cacheFile);
+        } catch (IOException e){
+            LOG.debug("删除插件元信息缓存[{}]失败. {}", cacheFile, e.getMessage());
+        }
+    }
+
+    /**
+     * 移除插件包已不存在的缓存
+     */
+    private void removeMissingEntries(){
+        for (String path : entries.keySet()) {
+            if(!Files.exists(Paths.get(path))){
+                remove(path);
+            }
+        }
+    }
+
+    /**
+     * 删除持久化目录中插件包已不存在的缓存文件
+     */
+    private void removeMissingCacheFiles(){
+        if(cacheDir == null || !Files.isDirectory(cacheDir)){
+            return;
+        }
+        try (DirectoryStream<Path> cacheFiles = Files.newDirectoryStream(cacheDir, "*" + CACHE_FILE_SUFFIX)){
+            for (Path cacheFile : cacheFiles) {
+                try {
+                    Properties cache = new Properties();
+                    try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)){
+                        cache.load(reader);
+                    }
+                    String path = cache.getProperty(KEY_PATH);
+                    if(path == null || !Files.exists(Paths.get(path))){
+                        Files.deleteIfExists(cacheFile);
+                    }
+                } catch (Exception e){
+                    LOG.debug("清理插件元信息缓存[{}]失败. {}", cacheFile, e.getMessage());
+                }
+            }
+        } catch (Exception e){
+            LOG.debug("清理插件元信息缓存目录[{}]失败. {}", cacheDir, e.getMessage());
+        }
+    }
+
+    private Entry readCacheFile(Fingerprint fingerprint){
+        Path cacheFile = getCacheFile(fingerprint);
+        if(cacheFile == null || !Files.exists(cacheFile)){
+            return null;
+        }
+        Properties cache = new Properties();
+        try (Reader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)){
+            cache.load(reader);
+        } catch (Exception e){
+            LOG.debug("读取插件元信息缓存[{}]失败. {}", cacheFile, e.getMessage());
+            return null;
+        }
+        Fingerprint cacheFingerprint;
+        try {
+            cacheFingerprint = new Fingerprint(cache.getProperty(KEY_PATH),
+                    Long.parseLong(cache.getProperty(KEY_SIZE)),
+                    Long.parseLong(cache.getProperty(KEY_LAST_MODIFIED)),
+                    cache.getProperty(KEY_DIGEST));
+        } catch (Exception e){
+            return null;
+        }
+        if(!fingerprint.equals(cacheFingerprint)){
+            return null;
+        }
+        Properties rawProperties = new Properties();
+        for (String key : cache.stringPropertyNames()) {
+            if(key.startsWith(META_KEY_PREFIX)){
+                rawProperties.setProperty(key.substring(META_KEY_PREFIX.length()), cache.getProperty(key));
+            }
+        }
+        List<String> resourcesConfigLines = null;
+        String resourcesConfig = cache.getProperty(KEY_RESOURCES_CONFIG);
+        if(resourcesConfig != null){
+            resourcesConfigLines = Arrays.asList(resourcesConfig.split("\n", -1));
+        }
+        return new Entry(fingerprint, cache.getProperty(KEY_PACKAGE_TYPE), rawProperties, resourcesConfigLines);
+    }
+
+    private void writeCacheFile(Entry entry){
+        Fingerprint fingerprint = entry.getFingerprint();
+        Path cacheFile = getCacheFile(fingerprint);
+        if(cacheFile == null){
+            return;
+        }
+        Properties cache = new Properties();
+        cache.setProperty(KEY_PATH, fingerprint.getPath());
+        cache.setProperty(KEY_SIZE, String.valueOf(fingerprint.getSize()));
+        cache.setProperty(KEY_LAST_MODIFIED, String.valueOf(fingerprint.getLastModified()));
+        cache.setProperty(KEY_DIGEST, fingerprint.getDigest());
+        cache.setProperty(KEY_PACKAGE_TYPE, entry.getPackageType());
+        if(entry.getResourcesConfigLines() != null){
+            cache.setProperty(KEY_RESOURCES_CONFIG, String.join("\n", entry.getResourcesConfigLines()));
+        }
+        Properties rawProperties = entry.getRawProperties();
+        for (String key : rawProperties.stringPropertyNames()) {
+            cache.setProperty(META_KEY_PREFIX + key, rawProperties.getProperty(key));
+        }
+        Path tempFile = null;
+        try {
+            Files.createDirectories(cacheDir);
+            tempFile = Files.createTempFile(cacheDir, "meta", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)){
+                cache.store(writer, null);
+            }
+            try {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e){
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Exception e){
+            LOG.warn("写入插件元信息缓存[{}]失败. {}", cacheFile, e.getMessage());
+            if(tempFile != null){
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignore){
+                    // 忽略
+                }
+            }
+        }
+    }
+
+    private Path getCacheFile(Fingerprint fingerprint){
+        return getCacheFile(fingerprint.getPath());
+    }
+
+    private Path getCacheFile(String path){
+        if(cacheDir == null){
+            return null;
+        }
+        return cacheDir.resolve(toHex(digest(path.getBytes(StandardCharsets.UTF_8))) + CACHE_FILE_SUFFIX);
+    }
+
+    /**
+     * 计算 zip 中央目录以及目录结束记录的摘要. 不是合法的 zip 时, 计算尾部数据的摘要
+     * @param location 插件包路径
+     * @param size 插件包大小
+     * @return 摘要
+     * @throws IOException 读取异常
+     */
+    private static String digestCentralDirectory(Path location, long size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(location.toFile(), "r")){
+            MessageDigest messageDigest = newDigest();
+            long centralDirectoryStart = findCentralDirectory(file, size);
+            if(centralDirectoryStart < 0){
+                long length = Math.min(size, DIGEST_TAIL_SIZE);
+                update(messageDigest, file, size - length, length);
+            } else {
+                // 中央目录之后依次为 zip64 目录结束记录、定位符、目录结束记录, 一并计算
+                update(messageDigest, file, centralDirectoryStart, size - centralDirectoryStart);
+            }
+            return toHex(messageDigest.digest());
+        }
+    }
+
+    /**
+     * 根据目录结束记录查找中央目录的起始位置
+     * @param file 插件包
+     * @param size 插件包大小
+     * @return 起始位置, 不是合法的 zip 时返回 -1
+     * @throws IOException 读取异常
+     */
+    private static long findCentralDirectory(RandomAccessFile file, long size) throws IOException {
+        if(size < EOCD_SIZE){
+            return -1;
+        }
+        int tailLength = (int) Math.min(size, EOCD_SIZE + EOCD_MAX_COMMENT_SIZE);
+        byte[] tail = new byte[tailLength];
+        file.seek(size - tailLength);
+        file.readFully(tail);
+        // 从后向前查找目录结束记录, 记录后紧跟注释
+        for (int i = tailLength - EOCD_SIZE; i >= 0; i--) {
+            if(readInt(tail, i) != EOCD_SIGNATURE
+                    || i + EOCD_SIZE + readShort(tail, i + 20) != tailLength){
+                continue;
+            }
+            long eocdPosition = size - tailLength + i;
+            long centralDirectorySize = readInt(tail, i + 12) & ZIP64_MAGIC;
+            long centralDirectoryEnd = eocdPosition;
+            if(centralDirectorySize == ZIP64_MAGIC || (readInt(tail, i + 16) & ZIP64_MAGIC) == ZIP64_MAGIC){
+                long[] zip64 = readZip64CentralDirectory(file, eocdPosition);
+                if(zip64 == null){
+                    return -1;
+                }
+                centralDirectorySize = zip64[0];
+                centralDirectoryEnd = zip64[1];
+            }
+            // 按中央目录紧邻目录结束记录计算起始位置, 兼容 zip 前有附加数据的情况
+            long centralDirectoryStart = centralDirectoryEnd - centralDirectorySize;
+            return centralDirectoryStart < 0 ? -1 : centralDirectoryStart;
+        }
+        return -1;
+    }
+
+    /**
+     * 读取 zip64 目录结束记录
+     * @param file 插件包
+     * @param eocdPosition 目录结束记录的位置
+     * @return [中央目录大小, zip64 目录结束记录的位置], 不存在时返回 null
+     * @throws IOException 读取异常
+     */
+    private static long[] readZip64CentralDirectory(RandomAccessFile file, long eocdPosition) throws IOException {
+        long locatorPosition = eocdPosition - ZIP64_EOCD_LOCATOR_SIZE;
+        if(locatorPosition < ZIP64_EOCD_SIZE){
+            return null;
+        }
+        byte[] locator = new byte[ZIP64_EOCD_LOCATOR_SIZE];
+        file.seek(locatorPosition);
+        file.readFully(locator);
+        if(readInt(locator, 0) != ZIP64_EOCD_LOCATOR_SIGNATURE){
+            return null;
+        }
+        // 按 zip64 目录结束记录紧邻定位符计算位置, 兼容 zip 前有附加数据的情况
+        long zip64EocdPosition = locatorPosition - ZIP64_EOCD_SIZE;
+        byte[] zip64Eocd = new byte[ZIP64_EOCD_SIZE];
+        file.seek(zip64EocdPosition);
+        file.readFully(zip64Eocd);
+        if(readInt(zip64Eocd, 0) != ZIP64_EOCD_SIGNATURE){
+            return null;
+        }
+        return new long[]{ readLong(zip64Eocd, 40), zip64EocdPosition };
+    }
+
+    private static void update(MessageDigest messageDigest, RandomAccessFile file,
+                               long position, long length) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(length, 8192)];
+        file.seek(position);
+        long remaining = length;
+        while (remaining > 0){
+            int read = file.read(buffer, 0, (int) Math.min(remaining, buffer.length));
+            if(read < 0){
+                throw new EOFException();
+            }
+            messageDigest.update(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static int readShort(byte[] bytes, int offset){
+        return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8);
+    }
+
+    private static int readInt(byte[] bytes, int offset){
+        return readShort(bytes, offset) | (readShort(bytes, offset + 2) << 16);
+    }
+
+    private static long readLong(byte[] bytes, int offset){
+        return (readInt(bytes, offset) & ZIP64_MAGIC) | ((long) readInt(bytes, offset + 4) << 32);
+    }
+
+    private static byte[] digest(byte[] bytes){
+        return newDigest().digest(bytes);
+    }
+
+    private static MessageDigest newDigest(){
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (Exception e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes){
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    private static Properties copy(Properties properties){
+        Properties copy = new Properties();
+        for (String key : properties.stringPropertyNames()) {
+            copy.setProperty(key, properties.getProperty(key));
+        }
+        return copy;
+    }
+
+    /**
+     * 插件包指纹
+     */
+    public static class Fingerprint {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String digest;
+
+        public Fingerprint(String path, long size, long lastModified, String digest) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getDigest() {
+            return digest;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Fingerprint that = (Fingerprint) o;
+            return size == that.size && lastModified == that.lastModified
+                    && Objects.equals(path, that.path) && Objects.equals(digest, that.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, size, lastModified, digest);
+        }
+    }
+
+    /**
+     * 缓存的插件包元信息
+     */
+    public static class Entry {
+        private final Fingerprint fingerprint;
+        private final String packageType;
+        private final Properties rawProperties;
+        private final List<String> resourcesConfigLines;
+
+        private volatile Properties decryptedProperties;
+
+        private Entry(Fingerprint fingerprint, String packageType, Properties rawProperties,
+                      List<String> resourcesConfigLines) {
+            this.fingerprint = fingerprint;
+            this.packageType = packageType;
+            this.rawProperties = rawProperties;
+            this.resourcesConfigLines = resourcesConfigLines;
+        }
+
+        public Fingerprint getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getPackageType() {
+            return packageType;
+        }
+
+        /**
+         * 得到未解密的插件元信息副本
+         * @return Properties
+         */
+        public Properties getRawProperties() {
+            return copy(rawProperties);
+        }
+
+        public List<String> getResourcesConfigLines() {
+            return resourcesConfigLines;
+        }
+
+        /**
+         * 得到解密后的插件元信息副本. 未解密过时返回 null
+         * @return Properties
+         */
+        public Properties getDecryptedProperties() {
+            Properties properties = this.decryptedProperties;
+            if(properties == null){
+                return null;
+            }
+            return copy(properties);
+        }
+
+        /**
+         * 设置解密后的插件元信息, 只缓存在内存中
+         * @param decryptedProperties 解密后的插件元信息
+         */
+        public void setDecryptedProperties(Properties decryptedProperties) {
+            this.decryptedProperties = copy(decryptedProperties);
+        }
+    }
+
+}
@@ -19,21 +19,20 @@ package com.gitee.starblues.core.descriptor;
 import com.gitee.starblues.common.PackageStructure;
 import com.gitee.starblues.utils.ObjectUtils;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 
 /**
  * 插件 ResourcesDefine 文件定义
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class PluginResourcesConfig {
 
     private Set<String> dependenciesIndex;
     private Set<String> loadMainResourceIncludes;
     private Set<String> loadMainResourceExcludes;
+    private Map<String, Set<String>> dependenciesPackages;
+    private Map<String, Set<String>> dependenciesResources;
 
     public static PluginResourcesConfig parse(List<String> fileLines){
         final PluginResourcesConfig pluginResourcesConfig = new PluginResourcesConfig();
@@ -44,6 +43,8 @@ public class PluginResourcesConfig {
         Set<String> dependenciesIndex = new HashSet<>();
         Set<String> loadMainResourceIncludes = new HashSet<>();
         Set<String> loadMainResourceExcludes = new HashSet<>();
+        Map<String, Set<String>> dependenciesPackages = new HashMap<>();
+        Map<String, Set<String>> dependenciesResources = new HashMap<>();
 
         int i = 0;
 
@@ -60,6 +61,12 @@ public class PluginResourcesConfig {
             } else if(Objects.equals(fileLine, PackageStructure.RESOURCES_DEFINE_LOAD_MAIN_EXCLUDES)){
                 i = 3;
                 continue;
+            } else if(Objects.equals(fileLine, PackageStructure.RESOURCES_DEFINE_DEPENDENCIES_PACKAGES)){
+                i = 4;
+                continue;
+            } else if(Objects.equals(fileLine, PackageStructure.RESOURCES_DEFINE_DEPENDENCIES_RESOURCES)){
+                i = 5;
+                continue;
             }
             if(i == 1){
                 dependenciesIndex.add(fileLine);
@@ -67,14 +74,35 @@ public class PluginResourcesConfig {
                 loadMainResourceIncludes.add(fileLine);
             } else if(i == 3){
                 loadMainResourceExcludes.add(fileLine);
+            } else if(i == 4){
+                addDependencyNames(dependenciesPackages, fileLine);
+            } else if(i == 5){
+                addDependencyNames(dependenciesResources, fileLine);
             }
         }
         pluginResourcesConfig.setDependenciesIndex(dependenciesIndex);
         pluginResourcesConfig.setLoadMainResourceIncludes(loadMainResourceIncludes);
         pluginResourcesConfig.setLoadMainResourceExcludes(loadMainResourceExcludes);
+        pluginResourcesConfig.setDependenciesPackages(dependenciesPackages);
+        pluginResourcesConfig.setDependenciesResources(dependenciesResources);
         return pluginResourcesConfig;
     }
 
+    private static void addDependencyNames(Map<String, Set<String>> dependenciesNames, String fileLine){
+        int index = fileLine.indexOf(PackageStructure.DEPENDENCIES_PACKAGES_INDEX_SPLIT);
+        if(index <= 0){
+            return;
+        }
+        String dependencyIndex = fileLine.substring(0, index);
+        Set<String> names = new HashSet<>();
+        for (String name : fileLine.substring(index + 1).split(PackageStructure.DEPENDENCIES_PACKAGES_SPLIT)) {
+            if(!ObjectUtils.isEmpty(name)){
+                names.add(name);
+            }
+        }
+        dependenciesNames.put(dependencyIndex, names);
+    }
+
 
     public Set<String> getDependenciesIndex() {
         return dependenciesIndex;
@@ -100,6 +128,30 @@ public class PluginResourcesConfig {
         this.loadMainResourceExcludes = loadMainResourceExcludes;
     }
 
+    /**
+     * 获取打包时生成的依赖包名索引
+     * @return 依赖索引 -> 该依赖中的包名集合. 旧版本的插件包中不存在, 返回 null 或空集合
+     */
+    public Map<String, Set<String>> getDependenciesPackages() {
+        return dependenciesPackages;
+    }
+
+    public void setDependenciesPackages(Map<String, Set<String>> dependenciesPackages) {
+        this.dependenciesPackages = dependenciesPackages;
+    }
+
+    /**
+     * 获取打包时生成的依赖中根路径以及 META-INF 下的资源名称索引
+     * @return 依赖索引 -> 该依赖中根路径以及 META-INF 下的资源名称集合. 旧版本的插件包中不存在, 返回 null 或空集合
+     */
+    public Map<String, Set<String>> getDependenciesResources() {
+        return dependenciesResources;
+    }
+
+    public void setDependenciesResources(Map<String, Set<String>> dependenciesResources) {
+        this.dependenciesResources = dependenciesResources;
+    }
+
 
 
 }
@@ -40,20 +40,54 @@ import static com.gitee.starblues.common.PluginDescriptorKey.PLUGIN_RESOURCES_CO
 
 /**
  * 生产环境打包好的插件 PluginDescriptorLoader 加载者
- * 解析 jar、zip
+ * 解析 jar、zip. 设置了 PluginMetaCache 时, 插件包未变化则直接使用缓存的元信息, 不再打开插件包
+ * 加载时会保存插件包的资源配置, 不能被并发调用, 每次加载需使用新的实例
  * @author starBlues
- * @version 3.0.2
+ * @version 3.0.4
  */
 public class ProdPackagePluginDescriptorLoader extends AbstractPluginDescriptorLoader{
 
+    private final PluginMetaCache pluginMetaCache;
+
     private PluginResourcesConfig pluginResourcesConfig;
 
     public ProdPackagePluginDescriptorLoader(PluginDescriptorDecrypt pluginDescriptorDecrypt) {
+        this(pluginDescriptorDecrypt, null);
+    }
+
+    public ProdPackagePluginDescriptorLoader(PluginDescriptorDecrypt pluginDescriptorDecrypt,
+                                             PluginMetaCache pluginMetaCache) {
         super(pluginDescriptorDecrypt);
+        this.pluginMetaCache = pluginMetaCache;
     }
 
     @Override
     protected PluginMeta getPluginMetaInfo(Path location) throws Exception {
+        if(pluginMetaCache == null){
+            return readPluginMetaInfo(location, null);
+        }
+        PluginMetaCache.Fingerprint fingerprint = pluginMetaCache.fingerprint(location);
+        PluginMetaCache.Entry entry = pluginMetaCache.get(fingerprint);
+        if(entry == null){
+            return readPluginMetaInfo(location, fingerprint);
+        }
+        Properties properties = entry.getDecryptedProperties();
+        if(properties == null){
+            properties = decryptProperties(entry.getRawProperties());
+            entry.setDecryptedProperties(properties);
+        }
+        pluginResourcesConfig = PluginResourcesConfig.parse(entry.getResourcesConfigLines());
+        return new PluginMeta(entry.getPackageType(), properties);
+    }
+
+    /**
+     * 打开插件包读取元信息
+     * @param location 插件包路径
+     * @param fingerprint 插件包指纹. 不为空时缓存读取的元信息
+     * @return PluginMeta
+     * @throws Exception 读取异常
+     */
+    private PluginMeta readPluginMetaInfo(Path location, PluginMetaCache.Fingerprint fingerprint) throws Exception {
         try (JarFile jarFile = new JarFile(location.toFile())){
             Manifest manifest = jarFile.getManifest();
             Attributes attributes = manifest.getMainAttributes();
@@ -66,11 +100,20 @@ public class ProdPackagePluginDescriptorLoader extends AbstractPluginDescriptorL
             if(jarEntry == null){
                 return null;
             }
-            Properties properties = super.getDecryptProperties(jarFile.getInputStream(jarEntry));
+            Properties properties = super.getProperties(jarFile.getInputStream(jarEntry));
             if(properties.isEmpty()){
                 return null;
             }
-            pluginResourcesConfig = getPluginResourcesConfig(jarFile, properties);
+            List<String> resourcesConfigLines = getPluginResourcesConfigLines(jarFile, properties);
+            PluginMetaCache.Entry entry = null;
+            if(fingerprint != null){
+                entry = pluginMetaCache.put(fingerprint, packageType, properties, resourcesConfigLines);
+            }
+            properties = decryptProperties(properties);
+            if(entry != null){
+                entry.setDecryptedProperties(properties);
+            }
+            pluginResourcesConfig = PluginResourcesConfig.parse(resourcesConfigLines);
             return new PluginMeta(packageType, properties);
         }
     }
@@ -99,17 +142,29 @@ public class ProdPackagePluginDescriptorLoader extends AbstractPluginDescriptorL
     }
 
     protected PluginResourcesConfig getPluginResourcesConfig(JarFile jarFile, Properties properties) throws Exception {
+        return PluginResourcesConfig.parse(getPluginResourcesConfigLines(jarFile, properties));
+    }
+
+    /**
+     * 读取插件资源配置文件内容
+     * @param jarFile 插件包
+     * @param properties 插件元信息
+     * @return 文件内容. 不存在时返回 null
+     * @throws Exception 读取异常
+     * @since 3.0.4
+     */
+    protected List<String> getPluginResourcesConfigLines(JarFile jarFile, Properties properties) throws Exception {
         String pluginResourcesConf = PropertiesUtils.getValue(properties, PLUGIN_RESOURCES_CONFIG);
         if(ObjectUtils.isEmpty(pluginResourcesConf)){
-            return new PluginResourcesConfig();
+            return null;
         }
         JarEntry jarEntry = jarFile.getJarEntry(pluginResourcesConf);
         if(jarEntry == null){
-            return new PluginResourcesConfig();
+            return null;
+        }
+        try (InputStream jarFileInputStream = jarFile.getInputStream(jarEntry)){
+            return IOUtils.readLines(jarFileInputStream, PackageStructure.CHARSET_NAME);
         }
-        InputStream jarFileInputStream = jarFile.getInputStream(jarEntry);
-        List<String> lines = IOUtils.readLines(jarFileInputStream, PackageStructure.CHARSET_NAME);
-        return PluginResourcesConfig.parse(lines);
     }
 
 
@@ -25,39 +25,53 @@ import org.slf4j.LoggerFactory;
 import java.nio.file.Path;
 
 /**
- * 生产环境插件描述加载者
+ * 生产环境插件描述加载者. 每次加载都创建新的目标加载者, 自身不保存加载状态, 可被并发调用
  * @author starBlues
- * @version 3.0.1
+ * @version 3.0.4
  */
 public class ProdPluginDescriptorLoader implements PluginDescriptorLoader{
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private PluginDescriptorLoader target;
-
     private final PluginDescriptorDecrypt pluginDescriptorDecrypt;
+    private final PluginMetaCache pluginMetaCache;
 
     public ProdPluginDescriptorLoader(PluginDescriptorDecrypt pluginDescriptorDecrypt) {
+        this(pluginDescriptorDecrypt, null);
+    }
+
+    public ProdPluginDescriptorLoader(PluginDescriptorDecrypt pluginDescriptorDecrypt,
+                                      PluginMetaCache pluginMetaCache) {
         this.pluginDescriptorDecrypt = pluginDescriptorDecrypt;
+        this.pluginMetaCache = pluginMetaCache;
     }
 
     @Override
     public InsidePluginDescriptor load(Path location) throws PluginException {
+        PluginDescriptorLoader target;
         if(ResourceUtils.isJarFile(location)){
-            target = new ProdPackagePluginDescriptorLoader(pluginDescriptorDecrypt);
+            target = new ProdPackagePluginDescriptorLoader(pluginDescriptorDecrypt, pluginMetaCache);
         } else if(ResourceUtils.isZipFile(location)){
-            target = new ProdPackagePluginDescriptorLoader(pluginDescriptorDecrypt);
+            target = new ProdPackagePluginDescriptorLoader(pluginDescriptorDecrypt, pluginMetaCache);
         } else if(ResourceUtils.isDirFile(location)){
             target = new ProdDirPluginDescriptorLoader(pluginDescriptorDecrypt);
         } else {
             logger.warn("不能解析文件: {}", location);
             return null;
         }
-        return target.load(location);
+        try {
+            return target.load(location);
+        } finally {
+            try {
+                target.close();
+            } catch (Exception e){
+                logger.debug("关闭插件描述加载者失败: {}", location, e);
+            }
+        }
     }
 
     @Override
     public void close() throws Exception {
-        target.close();
+
     }
 }
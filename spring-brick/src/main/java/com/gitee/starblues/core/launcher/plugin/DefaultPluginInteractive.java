@@ -27,7 +27,7 @@ import com.gitee.starblues.spring.invoke.InvokeSupperCache;
 /**
  * 默认的插件交互实现
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class DefaultPluginInteractive implements PluginInteractive{
 
@@ -36,6 +36,7 @@ public class DefaultPluginInteractive implements PluginInteractive{
     private final IntegrationConfiguration configuration;
     private final InvokeSupperCache invokeSupperCache;
     private final OpExtractFactory opExtractFactory;
+    private final PluginStartupTrace startupTrace = new PluginStartupTrace();
 
     public DefaultPluginInteractive(InsidePluginDescriptor pluginDescriptor,
                                     MainApplicationContext mainApplicationContext,
@@ -78,4 +79,9 @@ public class DefaultPluginInteractive implements PluginInteractive{
     public OpExtractFactory getOpExtractFactory() {
         return opExtractFactory;
     }
+
+    @Override
+    public PluginStartupTrace getStartupTrace() {
+        return startupTrace;
+    }
 }
@@ -0,0 +1,51 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.gitee.starblues.core.launcher.plugin;
+
+import com.gitee.starblues.core.exception.PluginException;
+
+import java.util.Set;
+
+/**
+ * 延迟启动插件的激活者. 延迟启动的插件第一次被访问时, 通过该接口真正启动插件
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public interface LazyPluginActivator {
+
+    /**
+     * 插件是否处于等待激活的状态
+     * @param pluginId 插件id
+     * @return true: 等待激活
+     */
+    boolean isPending(String pluginId);
+
+    /**
+     * 得到所有等待激活的插件id
+     * @return 插件id集合
+     */
+    Set<String> getPendingPluginIds();
+
+    /**
+     * 激活插件. 插件已经激活或者不是等待激活的插件时, 直接返回
+     * @param pluginId 插件id
+     * @throws PluginException 插件启动异常
+     */
+    void activate(String pluginId) throws PluginException;
+
+}
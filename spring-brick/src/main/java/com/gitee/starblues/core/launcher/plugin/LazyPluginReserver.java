@@ -0,0 +1,44 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.gitee.starblues.core.launcher.plugin;
+
+import com.gitee.starblues.core.descriptor.InsidePluginDescriptor;
+
+/**
+ * 延迟启动插件的入口预留者. 主程序中实现该接口的 bean 在插件延迟启动时为其预留访问入口,
+ * 入口第一次被访问时通过 {@link LazyPluginActivator} 激活插件
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public interface LazyPluginReserver {
+
+    /**
+     * 为插件预留访问入口
+     * @param descriptor 插件信息
+     * @param activator 插件激活者
+     * @return 是否预留成功. 返回 false 时, 插件不进行延迟启动
+     */
+    boolean reserve(InsidePluginDescriptor descriptor, LazyPluginActivator activator);
+
+    /**
+     * 释放为插件预留的访问入口. 插件被激活或者停止时调用
+     * @param descriptor 插件信息
+     */
+    void release(InsidePluginDescriptor descriptor);
+
+}
@@ -25,7 +25,7 @@ import com.gitee.starblues.spring.invoke.InvokeSupperCache;
 /**
  * 插件交互接口
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public interface PluginInteractive {
 
@@ -59,4 +59,23 @@ public interface PluginInteractive {
      */
     OpExtractFactory getOpExtractFactory();
 
+    /**
+     * 获取插件启动耗时记录. 默认不保存记录, 每次返回新的空记录
+     * @return PluginStartupTrace
+     * @since 3.0.4
+     */
+    default PluginStartupTrace getStartupTrace(){
+        return new PluginStartupTrace();
+    }
+
+    /**
+     * 在插件的注册信息生效时执行操作. 插件不停机升级时, 新版本的注册信息暂存, 操作在切换到新版本时执行;
+     * 其他情况下立即执行
+     * @param action 操作
+     * @since 3.0.4
+     */
+    default void onActive(Runnable action){
+        action.run();
+    }
+
 }
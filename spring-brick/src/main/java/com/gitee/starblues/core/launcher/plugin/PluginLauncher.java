@@ -35,9 +35,9 @@ import java.util.Map;
 import java.util.WeakHashMap;
 
 /**
- * 插件启动引导类
+ * 插件启动引导类. 启动过程的各个阶段耗时记录到 {@link PluginStartupTrace}
  * @author starBlues
- * @version 3.0.3
+ * @version 3.0.4
  */
 public class PluginLauncher extends AbstractLauncher<SpringPluginHook> {
 
@@ -71,25 +71,47 @@ public class PluginLauncher extends AbstractLauncher<SpringPluginHook> {
         return new ComposeMainResourceMatcher(resourceMatchers);
     }
 
+    @Override
+    public SpringPluginHook run(String... args) throws Exception {
+        PluginStartupTrace startupTrace = pluginInteractive.getStartupTrace();
+        PluginStartupTrace.Phase phase = startupTrace.begin("launch");
+        try {
+            return super.run(args);
+        } finally {
+            phase.end();
+            startupTrace.finish();
+        }
+    }
+
     @Override
     protected ClassLoader createClassLoader(String... args) throws Exception {
-        PluginClassLoader pluginClassLoader = getPluginClassLoader();
-        pluginClassLoader.addResource(pluginDescriptor);
-        return pluginClassLoader;
+        PluginStartupTrace startupTrace = pluginInteractive.getStartupTrace();
+        PluginStartupTrace.Phase phase = startupTrace.begin("classloader.create");
+        try {
+            PluginClassLoader pluginClassLoader = getPluginClassLoader();
+            startupTrace.setClassLoader(pluginClassLoader);
+            pluginClassLoader.addResource(pluginDescriptor);
+            return pluginClassLoader;
+        } finally {
+            phase.end();
+        }
     }
 
-    protected synchronized PluginClassLoader getPluginClassLoader() throws Exception {
+    protected PluginClassLoader getPluginClassLoader() throws Exception {
         String pluginId = pluginDescriptor.getPluginId();
         String key = MsgUtils.getPluginUnique(pluginDescriptor);
-        PluginClassLoader classLoader = CLASS_LOADER_CACHE.get(key);
-        if(classLoader != null){
-            return classLoader;
+        // 类加载器缓存为所有启动器共享, 插件并发启动时使用缓存本身作为锁
+        synchronized (CLASS_LOADER_CACHE){
+            PluginClassLoader classLoader = CLASS_LOADER_CACHE.get(key);
+            if(classLoader != null){
+                return classLoader;
+            }
+            PluginClassLoader pluginClassLoader = new PluginClassLoader(
+                    pluginId, getParentClassLoader(), getResourceLoaderFactory(), mainResourceMatcher
+            );
+            CLASS_LOADER_CACHE.put(key, pluginClassLoader);
+            return pluginClassLoader;
         }
-        PluginClassLoader pluginClassLoader = new PluginClassLoader(
-                pluginId, getParentClassLoader(), getResourceLoaderFactory(), mainResourceMatcher
-        );
-        CLASS_LOADER_CACHE.put(key, pluginClassLoader);
-        return pluginClassLoader;
     }
 
     protected ResourceLoaderFactory getResourceLoaderFactory(){
@@ -107,11 +129,27 @@ public class PluginLauncher extends AbstractLauncher<SpringPluginHook> {
 
     @Override
     protected SpringPluginHook launch(ClassLoader classLoader, String... args) throws Exception {
-        pluginLaunchInvolved.before(pluginDescriptor, classLoader);
+        PluginStartupTrace startupTrace = pluginInteractive.getStartupTrace();
+        PluginStartupTrace.Phase phase = startupTrace.begin("involved.before");
+        try {
+            pluginLaunchInvolved.before(pluginDescriptor, classLoader);
+        } finally {
+            phase.end();
+        }
         try {
-            SpringPluginHook springPluginHook = (SpringPluginHook) new PluginMethodRunner(pluginInteractive)
-                    .run(classLoader);
-            pluginLaunchInvolved.after(pluginDescriptor, classLoader, springPluginHook);
+            SpringPluginHook springPluginHook;
+            phase = startupTrace.begin("bootstrap.run");
+            try {
+                springPluginHook = (SpringPluginHook) new PluginMethodRunner(pluginInteractive).run(classLoader);
+            } finally {
+                phase.end();
+            }
+            phase = startupTrace.begin("involved.after");
+            try {
+                pluginLaunchInvolved.after(pluginDescriptor, classLoader, springPluginHook);
+            } finally {
+                phase.end();
+            }
             return new SpringPluginHookWrapper(springPluginHook, pluginDescriptor, pluginLaunchInvolved, classLoader);
         } catch (Throwable throwable){
             pluginLaunchInvolved.failure(pluginDescriptor,classLoader, throwable);
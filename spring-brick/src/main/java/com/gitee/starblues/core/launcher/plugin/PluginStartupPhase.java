@@ -0,0 +1,114 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.gitee.starblues.core.launcher.plugin;
+
+/**
+ * 插件启动阶段的耗时信息
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class PluginStartupPhase {
+
+    private final String name;
+    private final int depth;
+    private final long startTime;
+    private final long wallTime;
+    private final long cpuTime;
+    private final long loadedClasses;
+    private final long readBytes;
+
+    public PluginStartupPhase(String name, int depth, long startTime, long wallTime, long cpuTime,
+                              long loadedClasses, long readBytes) {
+        this.name = name;
+        this.depth = depth;
+        this.startTime = startTime;
+        this.wallTime = wallTime;
+        this.cpuTime = cpuTime;
+        this.loadedClasses = loadedClasses;
+        this.readBytes = readBytes;
+    }
+
+    /**
+     * 阶段名称
+     * @return String
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 阶段嵌套深度. 0 为最外层阶段
+     * @return int
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 阶段开始时间, 相对于插件开始启动的毫秒数
+     * @return long
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * 阶段耗费的时间(毫秒)
+     * @return long
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * 阶段耗费的启动线程 cpu 时间(毫秒). 当前 jvm 不支持时为 -1
+     * @return long
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * 阶段中插件 ClassLoader 加载的类数量
+     * @return long
+     */
+    public long getLoadedClasses() {
+        return loadedClasses;
+    }
+
+    /**
+     * 阶段中插件 ClassLoader 加载类时读取的字节数
+     * @return long
+     */
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "PluginStartupPhase{" +
+                "name='" + name + '\'' +
+                ", depth=" + depth +
+                ", startTime=" + startTime +
+                ", wallTime=" + wallTime +
+                ", cpuTime=" + cpuTime +
+                ", loadedClasses=" + loadedClasses +
+                ", readBytes=" + readBytes +
+                '}';
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.gitee.starblues.core.launcher.plugin;
+
+import com.gitee.starblues.loader.classloader.GenericClassLoader;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 插件启动耗时记录.
+ * 记录插件启动各个阶段的耗时、cpu 时间、插件 ClassLoader 加载的类数量和读取的字节数.
+ * 阶段可以嵌套, 插件在单个线程中启动
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class PluginStartupTrace {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final long startNanos = System.nanoTime();
+    /**
+     * key: 阶段开始的顺序
+     */
+    private final Map<Integer, PluginStartupPhase> phases = new ConcurrentSkipListMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private volatile GenericClassLoader classLoader;
+    private volatile long classLoaderBaseCount;
+    private volatile long classLoaderBaseBytes;
+
+    /**
+     * 设置插件的 ClassLoader, 用于统计各个阶段加载的类
+     * @param classLoader ClassLoader
+     */
+    public void setClassLoader(ClassLoader classLoader){
+        if(!(classLoader instanceof GenericClassLoader)){
+            return;
+        }
+        GenericClassLoader genericClassLoader = (GenericClassLoader) classLoader;
+        this.classLoaderBaseCount = genericClassLoader.getDefinedClassCount();
+        this.classLoaderBaseBytes = genericClassLoader.getDefinedClassBytes();
+        this.classLoader = genericClassLoader;
+    }
+
+    /**
+     * 启动结束. 释放对插件 ClassLoader 的引用, 之后的阶段不再统计加载的类.
+     * 启动耗时记录在插件停止前一直保留, 不能因此持有插件的 ClassLoader
+     */
+    public void finish(){
+        this.classLoader = null;
+    }
+
+    /**
+     * 开始一个阶段. 阶段结束时调用 {@link Phase#end()}
+     * @param name 阶段名称
+     * @return Phase
+     */
+    public Phase begin(String name){
+        return new Phase(name);
+    }
+
+    /**
+     * 得到已结束的阶段, 按开始顺序排序
+     * @return 阶段集合
+     */
+    public List<PluginStartupPhase> getPhases(){
+        return new ArrayList<>(phases.values());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (PluginStartupPhase phase : getPhases()) {
+            if(builder.length() > 0){
+                builder.append('\n');
+            }
+            for (int i = 0; i < phase.getDepth(); i++) {
+                builder.append("  ");
+            }
+            builder.append(phase.getName())
+                    .append(": wall=").append(phase.getWallTime()).append("ms")
+                    .append(", cpu=").append(phase.getCpuTime()).append("ms")
+                    .append(", classes=").append(phase.getLoadedClasses())
+                    .append(", bytes=").append(phase.getReadBytes());
+        }
+        return builder.toString();
+    }
+
+    private static long currentThreadCpuTime(){
+        if(THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()){
+            return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        }
+        return -1;
+    }
+
+    /**
+     * 进行中的阶段
+     */
+    public class Phase implements AutoCloseable{
+
+        private final String name;
+        private final int phaseSequence;
+        private final int phaseDepth;
+        private final long beginNanos;
+        private final long beginCpuNanos;
+        private final GenericClassLoader beginClassLoader;
+        private final long beginClassCount;
+        private final long beginClassBytes;
+        private boolean ended;
+
+        private Phase(String name) {
+            this.name = name;
+            this.phaseSequence = sequence.getAndIncrement();
+            this.phaseDepth = depth.getAndIncrement();
+            this.beginClassLoader = classLoader;
+            if(beginClassLoader != null){
+                this.beginClassCount = beginClassLoader.getDefinedClassCount();
+                this.beginClassBytes = beginClassLoader.getDefinedClassBytes();
+            } else {
+                this.beginClassCount = 0;
+                this.beginClassBytes = 0;
+            }
+            this.beginCpuNanos = currentThreadCpuTime();
+            this.beginNanos = System.nanoTime();
+        }
+
+        /**
+         * 结束阶段并记录耗时
+         */
+        public void end(){
+            if(ended){
+                return;
+            }
+            ended = true;
+            long endNanos = System.nanoTime();
+            long endCpuNanos = currentThreadCpuTime();
+            long cpuTime = -1;
+            if(beginCpuNanos >= 0 && endCpuNanos >= 0){
+                cpuTime = TimeUnit.NANOSECONDS.toMillis(endCpuNanos - beginCpuNanos);
+            }
+            long loadedClasses = 0;
+            long readBytes = 0;
+            GenericClassLoader endClassLoader = classLoader;
+            if(endClassLoader != null){
+                if(beginClassLoader == endClassLoader){
+                    loadedClasses = endClassLoader.getDefinedClassCount() - beginClassCount;
+                    readBytes = endClassLoader.getDefinedClassBytes() - beginClassBytes;
+                } else {
+                    // 阶段开始时还未创建 ClassLoader
+                    loadedClasses = endClassLoader.getDefinedClassCount() - classLoaderBaseCount;
+                    readBytes = endClassLoader.getDefinedClassBytes() - classLoaderBaseBytes;
+                }
+            }
+            depth.decrementAndGet();
+            phases.put(phaseSequence, new PluginStartupPhase(name, phaseDepth,
+                    TimeUnit.NANOSECONDS.toMillis(beginNanos - startNanos),
+                    TimeUnit.NANOSECONDS.toMillis(endNanos - beginNanos),
+                    cpuTime, loadedClasses, readBytes));
+        }
+
+        @Override
+        public void close() {
+            end();
+        }
+    }
+
+}
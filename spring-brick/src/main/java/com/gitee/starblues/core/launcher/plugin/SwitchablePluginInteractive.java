@@ -0,0 +1,248 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.gitee.starblues.core.launcher.plugin;
+
+import com.gitee.starblues.core.descriptor.InsidePluginDescriptor;
+import com.gitee.starblues.integration.IntegrationConfiguration;
+import com.gitee.starblues.spring.MainApplicationContext;
+import com.gitee.starblues.spring.extract.ExtractCoordinate;
+import com.gitee.starblues.spring.extract.OpExtractFactory;
+import com.gitee.starblues.spring.invoke.InvokeSupperCache;
+import com.gitee.starblues.spring.invoke.SupperCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 可切换注册信息的插件交互实现. 用于插件不停机升级.
+ * 暂存状态下, 插件注册的扩展和调用提供者只暂存不生效, 调用 switchOver 时整体替换旧版本的注册信息,
+ * 通过 onActive 注册的操作(例如注册接口)也在此时执行;
+ * 脱离状态下, 插件对扩展和调用提供者的注册、移除均不再生效, 避免旧版本关闭时移除新版本的注册信息
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class SwitchablePluginInteractive extends DefaultPluginInteractive{
+
+    private final Logger logger = LoggerFactory.getLogger(SwitchablePluginInteractive.class);
+
+    private final String pluginId;
+    private final InvokeSupperCache targetInvokeSupperCache;
+    private final SwitchableInvokeSupperCache invokeSupperCache;
+    private final SwitchableOpExtractFactory opExtractFactory;
+    private final List<Runnable> stagingActions = new ArrayList<>();
+
+    private volatile State state;
+
+    public SwitchablePluginInteractive(InsidePluginDescriptor pluginDescriptor,
+                                       MainApplicationContext mainApplicationContext,
+                                       IntegrationConfiguration configuration,
+                                       InvokeSupperCache invokeSupperCache,
+                                       boolean staging) {
+        super(pluginDescriptor, mainApplicationContext, configuration, invokeSupperCache);
+        this.pluginId = pluginDescriptor.getPluginId();
+        this.targetInvokeSupperCache = invokeSupperCache;
+        this.invokeSupperCache = new SwitchableInvokeSupperCache();
+        this.opExtractFactory = new SwitchableOpExtractFactory(super.getOpExtractFactory());
+        this.state = staging ? State.STAGING : State.ACTIVE;
+    }
+
+    @Override
+    public InvokeSupperCache getInvokeSupperCache() {
+        return invokeSupperCache;
+    }
+
+    @Override
+    public OpExtractFactory getOpExtractFactory() {
+        return opExtractFactory;
+    }
+
+    @Override
+    public synchronized void onActive(Runnable action) {
+        if(state == State.STAGING){
+            stagingActions.add(action);
+        } else if(state == State.ACTIVE){
+            action.run();
+        }
+    }
+
+    /**
+     * 使暂存的扩展和调用提供者生效, 整体替换当前插件id已注册的信息, 并执行暂存的操作
+     */
+    public synchronized void switchOver(){
+        if(state != State.STAGING){
+            return;
+        }
+        targetInvokeSupperCache.replace(pluginId, invokeSupperCache.stagingCaches);
+        opExtractFactory.target.replace(pluginId, opExtractFactory.stagingExtracts);
+        invokeSupperCache.stagingCaches.clear();
+        opExtractFactory.stagingExtracts.clear();
+        state = State.ACTIVE;
+        for (Runnable action : stagingActions) {
+            try {
+                action.run();
+            } catch (Throwable e){
+                logger.error("插件[{}]切换时执行操作失败. {}", pluginId, e.getMessage(), e);
+            }
+        }
+        stagingActions.clear();
+    }
+
+    /**
+     * 脱离注册信息. 之后当前插件对扩展和调用提供者的注册、移除均不再生效
+     */
+    public synchronized void detach(){
+        state = State.DETACHED;
+        invokeSupperCache.stagingCaches.clear();
+        opExtractFactory.stagingExtracts.clear();
+        stagingActions.clear();
+    }
+
+    private enum State{
+        /**
+         * 暂存
+         */
+        STAGING,
+        /**
+         * 生效
+         */
+        ACTIVE,
+        /**
+         * 脱离
+         */
+        DETACHED
+    }
+
+    private class SwitchableInvokeSupperCache implements InvokeSupperCache{
+
+        private final List<SupperCache> stagingCaches = new ArrayList<>();
+
+        @Override
+        public Object getSupperBean(String pluginId, String supperKey) {
+            return targetInvokeSupperCache.getSupperBean(pluginId, supperKey);
+        }
+
+        @Override
+        public Object getSupperBean(String supperKey) {
+            return targetInvokeSupperCache.getSupperBean(supperKey);
+        }
+
+        @Override
+        public void add(String pluginId, SupperCache cache) {
+            synchronized (SwitchablePluginInteractive.this){
+                if(state == State.STAGING){
+                    stagingCaches.add(cache);
+                } else if(state == State.ACTIVE){
+                    targetInvokeSupperCache.add(pluginId, cache);
+                }
+            }
+        }
+
+        @Override
+        public void remove(String pluginId) {
+            synchronized (SwitchablePluginInteractive.this){
+                if(state == State.STAGING){
+                    stagingCaches.clear();
+                } else if(state == State.ACTIVE){
+                    targetInvokeSupperCache.remove(pluginId);
+                }
+            }
+        }
+
+        @Override
+        public long getVersion() {
+            return targetInvokeSupperCache.getVersion();
+        }
+    }
+
+    private class SwitchableOpExtractFactory implements OpExtractFactory{
+
+        private final OpExtractFactory target;
+        private final List<Object> stagingExtracts = new ArrayList<>();
+
+        private SwitchableOpExtractFactory(OpExtractFactory target) {
+            this.target = target;
+        }
+
+        @Override
+        public void addOfMain(Object extractObject) {
+            target.addOfMain(extractObject);
+        }
+
+        @Override
+        public void add(String pluginId, Object extractObject) {
+            synchronized (SwitchablePluginInteractive.this){
+                if(state == State.STAGING){
+                    stagingExtracts.add(extractObject);
+                } else if(state == State.ACTIVE){
+                    target.add(pluginId, extractObject);
+                }
+            }
+        }
+
+        @Override
+        public void remove(String pluginId) {
+            synchronized (SwitchablePluginInteractive.this){
+                if(state == State.STAGING){
+                    stagingExtracts.clear();
+                } else if(state == State.ACTIVE){
+                    target.remove(pluginId);
+                }
+            }
+        }
+
+        @Override
+        public <T> T getExtractByCoordinate(ExtractCoordinate coordinate) {
+            return target.getExtractByCoordinate(coordinate);
+        }
+
+        @Override
+        public <T> T getExtractByCoordinate(String pluginId, ExtractCoordinate coordinate) {
+            return target.getExtractByCoordinate(pluginId, coordinate);
+        }
+
+        @Override
+        public <T> T getExtractByCoordinateOfMain(ExtractCoordinate coordinate) {
+            return target.getExtractByCoordinateOfMain(coordinate);
+        }
+
+        @Override
+        public <T> List<T> getExtractByInterClass(Class<T> interfaceClass) {
+            return target.getExtractByInterClass(interfaceClass);
+        }
+
+        @Override
+        public <T> List<T> getExtractByInterClass(String pluginId, Class<T> interfaceClass) {
+            return target.getExtractByInterClass(pluginId, interfaceClass);
+        }
+
+        @Override
+        public <T> List<T> getExtractByInterClassOfMain(Class<T> interfaceClass) {
+            return target.getExtractByInterClassOfMain(interfaceClass);
+        }
+
+        @Override
+        public Map<String, Set<ExtractCoordinate>> getExtractCoordinates() {
+            return target.getExtractCoordinates();
+        }
+    }
+
+}
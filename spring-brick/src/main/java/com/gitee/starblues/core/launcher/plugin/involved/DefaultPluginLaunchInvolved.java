@@ -20,17 +20,19 @@ import com.gitee.starblues.core.descriptor.InsidePluginDescriptor;
 import com.gitee.starblues.loader.PluginResourceStorage;
 import com.gitee.starblues.spring.SpringPluginHook;
 import com.gitee.starblues.spring.web.PluginStaticResourceResolver;
+import com.gitee.starblues.utils.MsgUtils;
 
 /**
- * 默认的插件启动介入者
+ * 默认的插件启动介入者.
+ * 插件资源按插件id和版本存储, 以支持同一插件的新旧版本在不停机升级时同时存在
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class DefaultPluginLaunchInvolved implements PluginLaunchInvolved{
 
     @Override
     public void before(InsidePluginDescriptor descriptor, ClassLoader classLoader) throws Exception {
-        PluginResourceStorage.addPlugin(descriptor.getPluginId(), descriptor.getPluginFileName());
+        PluginResourceStorage.addPlugin(MsgUtils.getPluginUnique(descriptor), descriptor.getPluginFileName());
     }
 
     @Override
@@ -40,8 +42,7 @@ public class DefaultPluginLaunchInvolved implements PluginLaunchInvolved{
 
     @Override
     public void close(InsidePluginDescriptor descriptor, ClassLoader classLoader) throws Exception {
-        String pluginId = descriptor.getPluginId();
-        PluginResourceStorage.removePlugin(pluginId);
-        PluginStaticResourceResolver.remove(pluginId);
+        PluginResourceStorage.removePlugin(MsgUtils.getPluginUnique(descriptor));
+        PluginStaticResourceResolver.remove(descriptor.getPluginId(), classLoader);
     }
 }
@@ -24,21 +24,36 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * 插件 ApplicationContext 获取者
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class PluginApplicationContextGetter implements PluginLaunchInvolved{
 
     private static final Map<String, ApplicationContext> PLUGIN_CONTEXTS = new ConcurrentHashMap<>();
 
+    /**
+     * 注册 ApplicationContext 的插件classloader. 用于不停机升级时, 旧版本关闭不移除新版本的 ApplicationContext
+     */
+    private static final Map<String, ClassLoader> PLUGIN_CLASS_LOADERS = new ConcurrentHashMap<>();
+
     @Override
     public void after(InsidePluginDescriptor descriptor, ClassLoader classLoader, SpringPluginHook pluginHook) throws Exception {
-        PLUGIN_CONTEXTS.put(descriptor.getPluginId(), pluginHook.getApplicationContext());
+        String pluginId = descriptor.getPluginId();
+        synchronized (PLUGIN_CONTEXTS){
+            PLUGIN_CONTEXTS.put(pluginId, pluginHook.getApplicationContext());
+            PLUGIN_CLASS_LOADERS.put(pluginId, classLoader);
+        }
     }
 
     @Override
     public void close(InsidePluginDescriptor descriptor, ClassLoader classLoader) throws Exception {
-        PLUGIN_CONTEXTS.remove(descriptor.getPluginId());
+        String pluginId = descriptor.getPluginId();
+        synchronized (PLUGIN_CONTEXTS){
+            if(PLUGIN_CLASS_LOADERS.remove(pluginId, classLoader)){
+                PLUGIN_CONTEXTS.remove(pluginId);
+            }
+        }
     }
 
     public static ApplicationContext get(String pluginId){
@@ -27,7 +27,7 @@ import java.util.List;
 /**
  * 基本的插件扫描者
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class BasePluginScanner implements PluginScanner{
 
@@ -37,6 +37,10 @@ public class BasePluginScanner implements PluginScanner{
         this.pathResolve = pathResolve;
     }
 
+    protected PathResolve getPathResolve() {
+        return pathResolve;
+    }
+
     @Override
     public List<Path> scan(List<String> rootDir) {
         if(ObjectUtils.isEmpty(rootDir)){
@@ -68,6 +72,9 @@ public class BasePluginScanner implements PluginScanner{
         if(currentPath != null){
             pluginPaths.add(currentPath);
         } else {
+            if(currentFile.isDirectory()){
+                resolveDirectory(currentFile);
+            }
             File[] files = currentFile.listFiles();
             if(files == null || files.length == 0){
                 return;
@@ -77,4 +84,13 @@ public class BasePluginScanner implements PluginScanner{
             }
         }
     }
+
+    /**
+     * 扫描到不是插件的目录时调用, 子类可进行扩展
+     * @param directory 目录
+     * @since 3.0.4
+     */
+    protected void resolveDirectory(File directory){
+
+    }
 }
@@ -0,0 +1,47 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.gitee.starblues.core.scanner;
+
+import java.nio.file.Path;
+
+/**
+ * 插件目录变化的监听者
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public interface PluginPathListener {
+
+    /**
+     * 插件目录中新增了插件
+     * @param pluginPath 插件路径
+     */
+    void added(Path pluginPath);
+
+    /**
+     * 插件目录中的插件被修改
+     * @param pluginPath 插件路径
+     */
+    void modified(Path pluginPath);
+
+    /**
+     * 插件目录中的插件被删除
+     * @param pluginPath 插件路径
+     */
+    void removed(Path pluginPath);
+
+}
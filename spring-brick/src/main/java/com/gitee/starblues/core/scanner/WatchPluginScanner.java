@@ -0,0 +1,381 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.gitee.starblues.core.scanner;
+
+import com.gitee.starblues.utils.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 监听插件目录变化的插件扫描者.
+ * 第一次扫描时遍历插件目录, 在内存中保存插件目录中的插件路径, 并使用 WatchService 监听非插件的目录.
+ * 之后根据目录的变化事件增量更新内存中的插件路径, 再次扫描时不再遍历插件目录.
+ * 插件包的变化在 debounceTime 内没有新的事件, 并且大小和修改时间不再变化时才通知监听者, 避免读取到未写入完成的插件包;
+ * 目录内部的写入不会产生该目录的事件, 目录的变化按目录中所有文件的数量、总大小和最大修改时间判断是否写入完成
+ *
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class WatchPluginScanner extends BasePluginScanner implements Closeable {
+
+    private final Logger log = LoggerFactory.getLogger(WatchPluginScanner.class);
+
+    private static final long MIN_POLL_TIME = 50L;
+
+    private final long debounceTime;
+
+    /**
+     * 插件根目录 -> 根目录中的插件路径
+     */
+    private final Map<Path, Set<Path>> pluginPathModel = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchDirectories = new ConcurrentHashMap<>();
+    private final Map<Path, PendingChange> pendingChanges = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+    private Thread watchThread;
+    private volatile PluginPathListener listener;
+    private volatile boolean closed = false;
+
+    public WatchPluginScanner(long debounceTime) {
+        this.debounceTime = Math.max(debounceTime, 0);
+    }
+
+    @Override
+    public List<Path> scan(List<String> rootDir) {
+        if(ObjectUtils.isEmpty(rootDir) || getPathResolve() == null){
+            return Collections.emptyList();
+        }
+        List<Path> pluginPaths = new ArrayList<>();
+        for (String dir : rootDir) {
+            if(ObjectUtils.isEmpty(dir)){
+                continue;
+            }
+            File file = new File(dir);
+            Path root = file.toPath();
+            Set<Path> rootPluginPaths = pluginPathModel.get(root);
+            if(rootPluginPaths == null){
+                if(!file.exists()){
+                    continue;
+                }
+                rootPluginPaths = ConcurrentHashMap.newKeySet();
+                List<Path> scanPluginPaths = new ArrayList<>();
+                resolve(file, scanPluginPaths);
+                rootPluginPaths.addAll(scanPluginPaths);
+                pluginPathModel.put(root, rootPluginPaths);
+            }
+            pluginPaths.addAll(rootPluginPaths);
+        }
+        return pluginPaths;
+    }
+
+    @Override
+    protected void resolveDirectory(File directory) {
+        register(directory.toPath());
+    }
+
+    /**
+     * 开始监听插件目录的变化. 只监听已扫描过的插件目录
+     * @param listener 监听者
+     */
+    public synchronized void startWatch(PluginPathListener listener){
+        this.listener = Objects.requireNonNull(listener, "listener 不能为空");
+        if(closed || watchThread != null || watchService == null){
+            return;
+        }
+        watchThread = new Thread(this::watch, "plugin-path-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        log.info("开始监听插件目录: {}", pluginPathModel.keySet());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if(watchThread != null){
+            watchThread.interrupt();
+            watchThread = null;
+        }
+        if(watchService != null){
+            watchService.close();
+        }
+        watchDirectories.clear();
+        pendingChanges.clear();
+    }
+
+    private synchronized void register(Path directory){
+        if(closed){
+            return;
+        }
+        try {
+            if(watchService == null){
+                watchService = FileSystems.getDefault().newWatchService();
+            }
+            WatchKey watchKey = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            watchDirectories.put(watchKey, directory);
+        } catch (Exception e){
+            log.warn("监听插件目录[{}]失败: {}", directory, e.getMessage());
+        }
+    }
+
+    private void watch(){
+        long pollTime = Math.max(debounceTime / 4, MIN_POLL_TIME);
+        while (!closed){
+            try {
+                WatchKey watchKey = watchService.poll(pollTime, TimeUnit.MILLISECONDS);
+                if(watchKey != null){
+                    onWatchKey(watchKey);
+                }
+                processPendingChanges();
+            } catch (InterruptedException | ClosedWatchServiceException e){
+                return;
+            } catch (Throwable e){
+                log.error("处理插件目录变化异常: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void onWatchKey(WatchKey watchKey){
+        Path directory = watchDirectories.get(watchKey);
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if(directory == null){
+                continue;
+            }
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW){
+                // 事件丢失, 重新检查该目录
+                File[] files = directory.toFile().listFiles();
+                if(files != null){
+                    for (File file : files) {
+                        addPendingChange(file.toPath());
+                    }
+                }
+                addPendingChange(directory);
+                continue;
+            }
+            Object context = event.context();
+            if(context instanceof Path){
+                addPendingChange(directory.resolve((Path) context));
+            }
+        }
+        if(!watchKey.reset()){
+            // 目录已不可访问
+            watchDirectories.remove(watchKey);
+        }
+    }
+
+    private void addPendingChange(Path path){
+        pendingChanges.put(path, new PendingChange(path));
+    }
+
+    private void processPendingChanges(){
+        if(pendingChanges.isEmpty()){
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Path> stablePaths = new ArrayList<>();
+        for (Map.Entry<Path, PendingChange> entry : pendingChanges.entrySet()) {
+            PendingChange pendingChange = entry.getValue();
+            if(now - pendingChange.eventTime < debounceTime){
+                continue;
+            }
+            PendingChange current = new PendingChange(entry.getKey());
+            if(current.isSameFile(pendingChange)){
+                stablePaths.add(entry.getKey());
+            } else {
+                // 仍在写入中, 继续等待
+                pendingChanges.replace(entry.getKey(), pendingChange, current);
+            }
+        }
+        // 先处理父目录, 以便子路径的变化能找到已注册的目录
+        stablePaths.sort(Comparator.comparingInt(Path::getNameCount));
+        for (Path path : stablePaths) {
+            pendingChanges.remove(path);
+            try {
+                applyChange(path);
+            } catch (Throwable e){
+                log.error("处理插件路径[{}]变化异常: {}", path, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void applyChange(Path path){
+        Path root = getRoot(path);
+        if(root == null){
+            return;
+        }
+        Set<Path> rootPluginPaths = pluginPathModel.get(root);
+        // 目录插件的内容晚于目录写入时, 变化归属于该目录插件
+        for (Path parent = path.getParent(); parent != null && !parent.equals(root); parent = parent.getParent()) {
+            if(Files.isDirectory(parent) && getPathResolve().resolve(parent) != null){
+                path = parent;
+            }
+        }
+        if(!Files.exists(path)){
+            // 删除了插件或者包含插件的目录
+            List<Path> removedPaths = new ArrayList<>();
+            for (Path pluginPath : rootPluginPaths) {
+                if(pluginPath.startsWith(path)){
+                    removedPaths.add(pluginPath);
+                }
+            }
+            for (Path removedPath : removedPaths) {
+                rootPluginPaths.remove(removedPath);
+                notifyListener(removedPath, ChangeType.REMOVED);
+            }
+            return;
+        }
+        File file = path.toFile();
+        Path pluginPath = getPathResolve().resolve(path);
+        if(pluginPath != null){
+            if(rootPluginPaths.add(pluginPath)){
+                notifyListener(pluginPath, ChangeType.ADDED);
+            } else if(!file.isDirectory()){
+                // 目录插件内部的修改无法被监听, 只通知插件包文件的修改
+                notifyListener(pluginPath, ChangeType.MODIFIED);
+            }
+            return;
+        }
+        if(!file.isDirectory()){
+            return;
+        }
+        // 新增或修改了不是插件的目录, 扫描其中的插件
+        List<Path> scanPluginPaths = new ArrayList<>();
+        resolve(file, scanPluginPaths);
+        for (Path scanPluginPath : scanPluginPaths) {
+            if(rootPluginPaths.add(scanPluginPath)){
+                notifyListener(scanPluginPath, ChangeType.ADDED);
+            }
+        }
+    }
+
+    private Path getRoot(Path path){
+        for (Path root : pluginPathModel.keySet()) {
+            if(path.startsWith(root)){
+                return root;
+            }
+        }
+        return null;
+    }
+
+    private void notifyListener(Path pluginPath, ChangeType changeType){
+        PluginPathListener listener = this.listener;
+        if(listener == null){
+            return;
+        }
+        log.debug("插件路径[{}]变化: {}", pluginPath, changeType);
+        try {
+            switch (changeType){
+                case ADDED:
+                    listener.added(pluginPath);
+                    break;
+                case MODIFIED:
+                    listener.modified(pluginPath);
+                    break;
+                case REMOVED:
+                    listener.removed(pluginPath);
+                    break;
+                default:
+            }
+        } catch (Throwable e){
+            log.error("插件路径[{}]变化处理失败: {}", pluginPath, e.getMessage(), e);
+        }
+    }
+
+    private enum ChangeType{
+        ADDED,
+        MODIFIED,
+        REMOVED
+    }
+
+    /**
+     * 等待稳定的路径变化
+     */
+    private static class PendingChange{
+
+        private final long eventTime;
+        private final boolean exists;
+        private long count;
+        private long size;
+        private long lastModified;
+
+        private PendingChange(Path path){
+            this.eventTime = System.currentTimeMillis();
+            File file = path.toFile();
+            this.exists = file.exists();
+            if(!exists){
+                this.count = -1;
+                this.size = -1;
+                this.lastModified = -1;
+            } else if(file.isDirectory()){
+                snapshotDirectory(path);
+            } else {
+                this.count = 1;
+                this.size = file.length();
+                this.lastModified = file.lastModified();
+            }
+        }
+
+        /**
+         * 统计目录中所有文件的数量、总大小和最大修改时间
+         * @param directory 目录
+         */
+        private void snapshotDirectory(Path directory){
+            try {
+                Files.walkFileTree(directory, new SimpleFileVisitor<Path>(){
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        lastModified = Math.max(lastModified, attrs.lastModifiedTime().toMillis());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        count++;
+                        size += attrs.size();
+                        lastModified = Math.max(lastModified, attrs.lastModifiedTime().toMillis());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        // 文件在遍历过程中被删除或者替换, 说明仍在写入中
+                        count = -2;
+                        return FileVisitResult.TERMINATE;
+                    }
+                });
+            } catch (IOException e){
+                count = -2;
+            }
+        }
+
+        private boolean isSameFile(PendingChange other){
+            return exists == other.exists && count == other.count && size == other.size
+                    && lastModified == other.lastModified;
+        }
+    }
+
+}
@@ -32,7 +32,7 @@ import java.util.Set;
 /**
  * 自动集成的配置
  * @author starBlues
- * @version 3.0.3
+ * @version 3.0.4
  */
 @EqualsAndHashCode(callSuper = true)
 @Component
@@ -111,6 +111,47 @@ public class AutoIntegrationConfiguration extends DefaultIntegrationConfiguratio
      */
     private List<String> sortInitPluginIds;
 
+    /**
+     * 初始化时并行启动插件的线程数. 默认为1, 即按顺序逐个启动插件
+     * 大于1时, 根据插件依赖关系和 sortInitPluginIds 的顺序, 并行启动互不依赖的插件
+     */
+    @Value("${initPluginThreads:1}")
+    private Integer initPluginThreads;
+
+    /**
+     * 不停机更新已启动的插件时, 新版本切换生效后等待旧版本处理中请求完成的时间(毫秒), 之后停止旧版本.
+     * 默认为1000
+     */
+    @Value("${upgradeDrainTime:1000}")
+    private Long upgradeDrainTime;
+
+    /**
+     * 延迟启动的插件id. 延迟启动的插件在初始化时只预留访问入口, 第一次被访问时才真正启动.
+     * 设置为 * 表示所有插件都延迟启动
+     */
+    private Set<String> lazyStartPluginIds;
+
+    /**
+     * 插件包元信息缓存的持久化目录. 插件包未变化时, 重启后直接使用缓存的元信息, 不再打开插件包解析.
+     * 为空时只在内存中缓存
+     */
+    @Value("${descriptorCachePath:}")
+    private String descriptorCachePath;
+
+    /**
+     * 是否监听插件目录的变化. 开启后插件目录中新增、修改、删除插件包时, 自动安装、更新、卸载插件.
+     * 只在 prod 环境下生效. 默认为 false
+     */
+    @Value("${watchPluginPath:false}")
+    private Boolean watchPluginPath;
+
+    /**
+     * 监听插件目录时, 插件包最后一次变化后等待其稳定(写入完成)的时间(毫秒).
+     * 默认为2000
+     */
+    @Value("${watchDebounceTime:2000}")
+    private Long watchDebounceTime;
+
     /**
      * 当前主程序的版本号, 用于校验插件是否可安装.
      * 插件中可通过插件配置信息 requires 来指定可安装的主程序版本
@@ -204,6 +245,48 @@ public class AutoIntegrationConfiguration extends DefaultIntegrationConfiguratio
         return sortInitPluginIds;
     }
 
+    @Override
+    public int initPluginThreads() {
+        if(initPluginThreads == null){
+            return super.initPluginThreads();
+        }
+        return initPluginThreads;
+    }
+
+    @Override
+    public long upgradeDrainTime() {
+        if(upgradeDrainTime == null){
+            return super.upgradeDrainTime();
+        }
+        return upgradeDrainTime;
+    }
+
+    @Override
+    public Set<String> lazyStartPluginIds() {
+        return lazyStartPluginIds;
+    }
+
+    @Override
+    public String descriptorCachePath() {
+        return descriptorCachePath;
+    }
+
+    @Override
+    public boolean watchPluginPath() {
+        if(watchPluginPath == null){
+            return super.watchPluginPath();
+        }
+        return watchPluginPath;
+    }
+
+    @Override
+    public long watchDebounceTime() {
+        if(watchDebounceTime == null){
+            return super.watchDebounceTime();
+        }
+        return watchDebounceTime;
+    }
+
     @Override
     public String version() {
         return version;
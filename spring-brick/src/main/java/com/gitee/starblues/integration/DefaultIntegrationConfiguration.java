@@ -28,12 +28,15 @@ import java.util.Set;
  * 默认的插件集成配置。给非必须配置设置了默认值
  *
  * @author starBlues
- * @version 3.0.1
+ * @version 3.0.4
  */
 public abstract class DefaultIntegrationConfiguration implements IntegrationConfiguration{
 
     public static final String DEFAULT_PLUGIN_REST_PATH_PREFIX = "plugins";
     public static final boolean DEFAULT_ENABLE_PLUGIN_ID_REST_PATH_PREFIX = true;
+    public static final int DEFAULT_INIT_PLUGIN_THREADS = 1;
+    public static final long DEFAULT_UPGRADE_DRAIN_TIME = 1000L;
+    public static final long DEFAULT_WATCH_DEBOUNCE_TIME = 2000L;
 
     @Override
     public boolean enable() {
@@ -82,6 +85,36 @@ public abstract class DefaultIntegrationConfiguration implements IntegrationConf
         return null;
     }
 
+    @Override
+    public int initPluginThreads() {
+        return DEFAULT_INIT_PLUGIN_THREADS;
+    }
+
+    @Override
+    public long upgradeDrainTime() {
+        return DEFAULT_UPGRADE_DRAIN_TIME;
+    }
+
+    @Override
+    public Set<String> lazyStartPluginIds() {
+        return null;
+    }
+
+    @Override
+    public String descriptorCachePath() {
+        return null;
+    }
+
+    @Override
+    public boolean watchPluginPath() {
+        return false;
+    }
+
+    @Override
+    public long watchDebounceTime() {
+        return DEFAULT_WATCH_DEBOUNCE_TIME;
+    }
+
     @Override
     public String version() {
         return Constants.ALLOW_VERSION;
@@ -18,6 +18,7 @@ package com.gitee.starblues.integration;
 
 import com.gitee.starblues.integration.listener.SwaggerListener;
 import com.gitee.starblues.spring.ResolvePluginThreadClassLoader;
+import com.gitee.starblues.spring.web.PluginLazyRequestReserver;
 import com.gitee.starblues.spring.web.PluginStaticResourceConfig;
 import com.gitee.starblues.spring.web.PluginStaticResourceWebMvcConfigurer;
 import com.gitee.starblues.spring.web.thymeleaf.PluginThymeleafInvolved;
@@ -29,6 +30,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 import org.springframework.web.servlet.resource.ResourceResolver;
 import org.thymeleaf.spring5.SpringTemplateEngine;
 import org.thymeleaf.templatemode.TemplateMode;
@@ -37,13 +39,14 @@ import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapp
 /**
  * 系统web环境配置点
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 @ConditionalOnWebApplication
 @Import({
         ExtendPointWebConfiguration.PluginStaticResourceConfiguration.class,
         ExtendPointWebConfiguration.PluginThymeleafConfiguration.class,
         ExtendPointWebConfiguration.SwaggerListenerConfiguration.class,
+        ExtendPointWebConfiguration.PluginLazyRequestConfiguration.class,
 })
 public class ExtendPointWebConfiguration {
 
@@ -92,6 +95,18 @@ public class ExtendPointWebConfiguration {
 
     }
 
+    @ConditionalOnClass({ RequestMappingHandlerMapping.class })
+    public static class PluginLazyRequestConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public PluginLazyRequestReserver pluginLazyRequestReserver(GenericApplicationContext applicationContext,
+                                                                   IntegrationConfiguration configuration){
+            return new PluginLazyRequestReserver(applicationContext, configuration);
+        }
+
+    }
+
     @Bean
     public WebMvcConfigurer webMvcConfigurer(){
         return new ResolvePluginThreadClassLoader();
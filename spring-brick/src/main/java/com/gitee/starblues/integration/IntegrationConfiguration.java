@@ -29,7 +29,7 @@ import java.util.Set;
 /**
  * 插件集成时的配置接口。插件集成的配置接口
  * @author starBlues
- * @version 3.0.1
+ * @version 3.0.4
  */
 public interface IntegrationConfiguration {
 
@@ -103,6 +103,47 @@ public interface IntegrationConfiguration {
      */
     List<String> sortInitPluginIds();
 
+    /**
+     * 初始化时并行启动插件的线程数. 小于等于1时按顺序逐个启动插件.
+     * 大于1时, 根据插件依赖关系和 sortInitPluginIds 的顺序, 并行启动互不依赖的插件
+     * @return 线程数
+     */
+    int initPluginThreads();
+
+    /**
+     * 不停机更新已启动的插件时, 新版本切换生效后等待旧版本处理中请求完成的时间, 之后停止旧版本.
+     * 单位毫秒, 小于等于0时立即停止旧版本
+     * @return 等待时间
+     */
+    long upgradeDrainTime();
+
+    /**
+     * 延迟启动的插件id. 延迟启动的插件在初始化时只预留访问入口, 第一次被访问时才真正启动.
+     * 设置为 * 表示所有插件都延迟启动
+     * @return 插件id
+     */
+    Set<String> lazyStartPluginIds();
+
+    /**
+     * 插件包元信息缓存的持久化目录. 插件包未变化时, 重启后直接使用缓存的元信息, 不再打开插件包解析.
+     * 为空时只在内存中缓存
+     * @return 目录
+     */
+    String descriptorCachePath();
+
+    /**
+     * 是否监听插件目录的变化. 开启后插件目录中新增、修改、删除插件包时, 自动安装、更新、卸载插件.
+     * 只在 prod 环境下生效
+     * @return 是否监听
+     */
+    boolean watchPluginPath();
+
+    /**
+     * 监听插件目录时, 插件包最后一次变化后等待其稳定(写入完成)的时间, 单位毫秒
+     * @return 等待时间
+     */
+    long watchDebounceTime();
+
     /**
      * 当前主程序的版本号, 用于校验插件是否可安装.
      * 插件中可通过插件配置信息 requires 来指定可安装的主程序版本
@@ -179,4 +220,20 @@ public interface IntegrationConfiguration {
         return disablePluginIds().contains(pluginId);
     }
 
+    /**
+     * 是否延迟启动该插件
+     * @param pluginId 插件id
+     * @return true: 延迟启动
+     */
+    default boolean isLazyStart(String pluginId){
+        Set<String> lazyStartPluginIds = lazyStartPluginIds();
+        if(ObjectUtils.isEmpty(lazyStartPluginIds)){
+            return false;
+        }
+        if(lazyStartPluginIds.contains(Constants.LAZY_START_ALL_PLUGIN)){
+            return true;
+        }
+        return lazyStartPluginIds.contains(pluginId);
+    }
+
 }
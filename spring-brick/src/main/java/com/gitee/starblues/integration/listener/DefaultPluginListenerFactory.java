@@ -18,41 +18,97 @@ package com.gitee.starblues.integration.listener;
 
 import com.gitee.starblues.core.PluginInfo;
 import com.gitee.starblues.utils.SpringBeanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.io.Closeable;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
- * 默认的插件工厂
+ * 默认的插件监听工厂.
+ * 事件异步投递给监听者, 不阻塞插件的加载、启动、停止:
+ * 每个监听者拥有独立的事件队列, 同一监听者按事件发生的顺序依次接收事件;
+ * 所有监听者共享线程数有限的线程池, 一次调度会连续投递队列中积压的所有事件, 之后调用 {@link PluginListener#afterBatch()},
+ * 使监听者可以把开销大的操作合并为一次执行;
+ * 单个事件处理超过超时时间时, 记录错误日志并中断处理线程;
+ * 不再使用时需调用 {@link #close()} 关闭投递线程
  * @author starBlues
  * @since 3.0.0
- * @version 3.0.3
+ * @version 3.0.4
  */
-public class DefaultPluginListenerFactory implements PluginListenerFactory{
+public class DefaultPluginListenerFactory implements PluginListenerFactory, Closeable {
 
-    private final List<PluginListener> listeners;
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultPluginListenerFactory.class);
+
+    private static final String THREAD_NAME_PREFIX = "plugin-listener-";
+
+    /**
+     * 默认的投递线程数
+     */
+    public static final int DEFAULT_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * 默认的单个事件处理超时时间(毫秒)
+     */
+    public static final long DEFAULT_TIMEOUT = 30000L;
+
+    private final List<PluginListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<PluginListener, ListenerChannel> channels = new ConcurrentHashMap<>();
+
+    private final long timeout;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor timeoutChecker;
 
     public DefaultPluginListenerFactory(ApplicationContext applicationContext){
-        listeners = new ArrayList<>();
+        this();
         addExtendPluginListener(applicationContext);
     }
 
     public DefaultPluginListenerFactory(){
-        listeners = new ArrayList<>();
+        this(DEFAULT_THREADS, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * 创建监听工厂
+     * @param threads 投递事件的线程数
+     * @param timeout 单个事件处理超时时间(毫秒), 小于等于0时不检查超时
+     */
+    public DefaultPluginListenerFactory(int threads, long timeout){
+        threads = Math.max(1, threads);
+        this.timeout = timeout;
+        // 每个监听者同一时刻最多只有一个调度任务, 队列长度不会超过监听者数量
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ListenerThreadFactory(THREAD_NAME_PREFIX));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timeoutChecker = new ScheduledThreadPoolExecutor(1,
+                new ListenerThreadFactory(THREAD_NAME_PREFIX + "timeout-"));
+        this.timeoutChecker.setRemoveOnCancelPolicy(true);
+        this.timeoutChecker.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.timeoutChecker.setKeepAliveTime(60L, TimeUnit.SECONDS);
+        this.timeoutChecker.allowCoreThreadTimeOut(true);
     }
 
 
     private void addExtendPluginListener(ApplicationContext applicationContext){
         List<PluginListener> pluginListeners = SpringBeanUtils.getBeans(applicationContext, PluginListener.class);
-        listeners.addAll(pluginListeners);
+        for (PluginListener pluginListener : pluginListeners) {
+            addPluginListener(pluginListener);
+        }
     }
 
     @Override
     public synchronized void addPluginListener(PluginListener pluginListener) {
         if(pluginListener != null){
             listeners.add(pluginListener);
+            channels.computeIfAbsent(pluginListener, ListenerChannel::new);
         }
     }
 
@@ -63,80 +119,198 @@ public class DefaultPluginListenerFactory implements PluginListenerFactory{
 
     @Override
     public void loadSuccess(PluginInfo pluginInfo) {
-        for (PluginListener listener : listeners) {
-            try {
-                listener.loadSuccess(pluginInfo);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        publish("loadSuccess", pluginInfo, listener -> listener.loadSuccess(pluginInfo));
     }
 
     @Override
     public void loadFailure(Path path, Throwable throwable) {
-        for (PluginListener listener : listeners) {
-            try {
-                listener.loadFailure(path, throwable);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        publish("loadFailure", path, listener -> listener.loadFailure(path, throwable));
     }
 
     @Override
     public void unLoadSuccess(PluginInfo pluginInfo) {
-        for (PluginListener listener : listeners) {
-            try {
-                listener.unLoadSuccess(pluginInfo);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        publish("unLoadSuccess", pluginInfo, listener -> listener.unLoadSuccess(pluginInfo));
+    }
+
+    @Override
+    public void unLoadFailure(PluginInfo pluginInfo, Throwable throwable) {
+        publish("unLoadFailure", pluginInfo, listener -> listener.unLoadFailure(pluginInfo, throwable));
     }
 
     @Override
     public void startSuccess(PluginInfo pluginInfo) {
-        for (PluginListener listener : listeners) {
-            try {
-                listener.startSuccess(pluginInfo);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        publish("startSuccess", pluginInfo, listener -> listener.startSuccess(pluginInfo));
+    }
+
+    @Override
+    public void activateSuccess(PluginInfo pluginInfo) {
+        publish("activateSuccess", pluginInfo, listener -> listener.activateSuccess(pluginInfo));
     }
 
     @Override
     public void startFailure(PluginInfo pluginInfo, Throwable throwable) {
-        for (PluginListener listener : listeners) {
-            try {
-                listener.startFailure(pluginInfo, throwable);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        publish("startFailure", pluginInfo, listener -> listener.startFailure(pluginInfo, throwable));
     }
 
     @Override
     public void stopSuccess(PluginInfo pluginInfo) {
-        for (PluginListener listener : listeners) {
-            try {
-                listener.stopSuccess(pluginInfo);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        publish("stopSuccess", pluginInfo, listener -> listener.stopSuccess(pluginInfo));
     }
 
     @Override
     public void stopFailure(PluginInfo pluginInfo, Throwable throwable) {
+        publish("stopFailure", pluginInfo, listener -> listener.stopFailure(pluginInfo, throwable));
+    }
+
+    /**
+     * 关闭监听工厂, 停止投递事件的线程. 已入队的事件仍会投递, 之后发布的事件被丢弃
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        timeoutChecker.shutdown();
+    }
+
+    /**
+     * 发布事件到所有监听者
+     * @param eventName 事件名称
+     * @param source 事件源, 用于日志
+     * @param event 事件
+     */
+    private void publish(String eventName, Object source, Consumer<PluginListener> event){
+        if(listeners.isEmpty() || executor.isShutdown()){
+            return;
+        }
+        String description = eventName + "[" + getSourceName(source) + "]";
         for (PluginListener listener : listeners) {
+            ListenerChannel channel = channels.get(listener);
+            if(channel != null){
+                channel.offer(new ListenerEvent(description, event));
+            }
+        }
+    }
+
+    private static String getSourceName(Object source){
+        if(source instanceof PluginInfo){
+            return ((PluginInfo) source).getPluginId();
+        }
+        return String.valueOf(source);
+    }
+
+    private static class ListenerEvent{
+        private final String description;
+        private final Consumer<PluginListener> event;
+
+        private ListenerEvent(String description, Consumer<PluginListener> event) {
+            this.description = description;
+            this.event = event;
+        }
+    }
+
+    /**
+     * 单个监听者的事件通道. 保证同一时刻只有一个线程向该监听者投递事件
+     */
+    private class ListenerChannel implements Runnable{
+
+        private final PluginListener listener;
+        private final Queue<ListenerEvent> events = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        private ListenerChannel(PluginListener listener) {
+            this.listener = listener;
+        }
+
+        void offer(ListenerEvent event){
+            events.offer(event);
+            schedule();
+        }
+
+        private void schedule(){
+            if(scheduled.compareAndSet(false, true)){
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e){
+                    scheduled.set(false);
+                    LOG.error("插件监听者[{}]事件调度失败. {}", listener.getClass().getName(), e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean delivered = false;
+                ListenerEvent event;
+                while ((event = events.poll()) != null){
+                    Consumer<PluginListener> consumer = event.event;
+                    deliver(event.description, () -> consumer.accept(listener));
+                    delivered = true;
+                }
+                if(delivered){
+                    deliver("afterBatch", listener::afterBatch);
+                }
+            } finally {
+                scheduled.set(false);
+                // 调度结束前可能有新的事件入队
+                if(!events.isEmpty()){
+                    schedule();
+                }
+            }
+        }
+
+        private void deliver(String description, Runnable runnable){
+            Thread thread = Thread.currentThread();
+            AtomicBoolean finished = new AtomicBoolean(false);
+            ScheduledFuture<?> timeoutFuture = null;
+            if(timeout > 0){
+                try {
+                    timeoutFuture = timeoutChecker.schedule(() -> {
+                        synchronized (finished){
+                            if(finished.get()){
+                                return;
+                            }
+                            LOG.error("插件监听者[{}]处理事件 {} 超过 {}ms, 中断处理",
+                                    listener.getClass().getName(), description, timeout);
+                            thread.interrupt();
+                        }
+                    }, timeout, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e){
+                    // 监听工厂已关闭, 不再检查超时
+                }
+            }
             try {
-                listener.stopFailure(pluginInfo, throwable);
-            } catch (Exception e) {
-                e.printStackTrace();
+                runnable.run();
+            } catch (Throwable e){
+                LOG.error("插件监听者[{}]处理事件 {} 异常. {}",
+                        listener.getClass().getName(), description, e.getMessage(), e);
+            } finally {
+                synchronized (finished){
+                    finished.set(true);
+                }
+                if(timeoutFuture != null){
+                    timeoutFuture.cancel(false);
+                }
+                // 清除超时产生的中断标志, 不影响后续事件
+                Thread.interrupted();
             }
         }
     }
 
+    private static class ListenerThreadFactory implements ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        private ListenerThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, namePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 
 }
@@ -25,7 +25,7 @@ import java.nio.file.Path;
  * 插件监听者
  *
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public interface PluginListener {
 
@@ -61,6 +61,13 @@ public interface PluginListener {
      */
     default void startSuccess(PluginInfo pluginInfo){}
 
+    /**
+     * 延迟启动的插件激活成功. 延迟启动的插件在预留访问入口时已通知 startSuccess,
+     * 第一次被访问并真正启动后通知该事件, 此时插件的接口、扩展等已注册
+     * @param pluginInfo 插件信息
+     * @since 3.0.4
+     */
+    default void activateSuccess(PluginInfo pluginInfo){}
 
     /**
      * 启动失败
@@ -83,4 +90,10 @@ public interface PluginListener {
      */
     default void stopFailure(PluginInfo pluginInfo, Throwable throwable){}
 
+    /**
+     * 一批连续的事件通知完成后调用. 短时间内发生多个事件时(例如同时启动多个插件),
+     * 监听者可将开销大的操作延迟到此处, 合并为一次执行
+     */
+    default void afterBatch(){}
+
 }
@@ -42,16 +42,22 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Swagger 监听事件
+ * Swagger 监听事件.
+ * 插件的文档分组在每个事件中注册或移除, 文档刷新合并到一批事件完成后执行一次
  * @author starBlues
  * @since 3.0.0
- * @version 3.0.3
+ * @version 3.0.4
  */
 public class SwaggerListener implements PluginListener{
 
     private final Logger log = LoggerFactory.getLogger(this.getClass());
     private final ApplicationContext mainApplicationContext;
 
+    /**
+     * 是否需要在一批事件完成后刷新文档
+     */
+    private volatile boolean refreshRequired = false;
+
     private static List<Parameter> parameterList = new ArrayList<>();
 
     /**
@@ -75,6 +81,17 @@ public class SwaggerListener implements PluginListener{
 
     @Override
     public void startSuccess(PluginInfo pluginInfo) {
+        // 如果第一次启动且为跟随系统启动的插件，减少刷新
+        register(pluginInfo, !pluginInfo.isFollowSystem() || pluginInfo.getStopTime() != null);
+    }
+
+    @Override
+    public void activateSuccess(PluginInfo pluginInfo) {
+        // 延迟启动的插件激活后接口才注册, 需要刷新文档
+        register(pluginInfo, true);
+    }
+
+    private void register(PluginInfo pluginInfo, boolean refresh) {
         PluginDescriptor descriptor = pluginInfo.getPluginDescriptor();
         Docket docket = this.createDocket(descriptor);
         String groupName = docket.getGroupName();
@@ -92,9 +109,8 @@ public class SwaggerListener implements PluginListener{
             Field field = PluginRegistrySupport.class.getDeclaredField("plugins");
             field.setAccessible(true);
             field.set(pluginRegistry, newPlugins);
-            // 如果第一次启动且为跟随系统启动的插件，减少刷新
-            if(!pluginInfo.isFollowSystem() || pluginInfo.getStopTime() != null){
-                this.refresh();
+            if(refresh){
+                refreshRequired = true;
             }
             log.debug("插件[{}]注册到 Swagger 成功", pluginInfo.getPluginId());
         } catch (NoSuchFieldException | IllegalAccessException e) {
@@ -121,7 +137,7 @@ public class SwaggerListener implements PluginListener{
             field.setAccessible(true);
             field.set(pluginRegistry, newPlugins);
 
-            this.refresh();
+            refreshRequired = true;
             log.debug("插件[{}]从 Swagger 移除成功", MsgUtils.getPluginUnique(descriptor));
         }
         catch (NoSuchFieldException | IllegalAccessException e) {
@@ -129,6 +145,14 @@ public class SwaggerListener implements PluginListener{
         }
     }
 
+    @Override
+    public void afterBatch() {
+        if(refreshRequired){
+            refreshRequired = false;
+            this.refresh();
+        }
+    }
+
     void refresh(){
         try {
             DocumentationPluginsBootstrapper documentationPluginsBootstrapper = this.getDocumentationPluginsBootstrapper();
@@ -22,6 +22,10 @@ import com.gitee.starblues.core.PluginManager;
 import com.gitee.starblues.core.RealizeProvider;
 import com.gitee.starblues.core.exception.PluginDisabledException;
 import com.gitee.starblues.core.exception.PluginException;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupPhase;
+import com.gitee.starblues.core.scanner.PluginPathListener;
+import com.gitee.starblues.core.scanner.PluginScanner;
+import com.gitee.starblues.core.scanner.WatchPluginScanner;
 import com.gitee.starblues.integration.IntegrationConfiguration;
 import com.gitee.starblues.integration.listener.PluginInitializerListener;
 import com.gitee.starblues.integration.listener.PluginInitializerListenerFactory;
@@ -37,6 +41,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -53,9 +58,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * 默认的插件操作者
  * @author starBlues
- * @version 3.0.1
+ * @version 3.0.4
  */
-public class DefaultPluginOperator implements PluginOperator {
+public class DefaultPluginOperator implements PluginOperator, Closeable {
     protected final Logger log = LoggerFactory.getLogger(this.getClass());
 
     private final static DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
@@ -65,6 +70,7 @@ public class DefaultPluginOperator implements PluginOperator {
     private final GenericApplicationContext applicationContext;
     private final IntegrationConfiguration configuration;
 
+    private final RealizeProvider realizeProvider;
     private final PluginManager pluginManager;
     private final PluginInitializerListenerFactory pluginInitializerListenerFactory;
 
@@ -73,6 +79,7 @@ public class DefaultPluginOperator implements PluginOperator {
                                  IntegrationConfiguration configuration) {
         this.applicationContext = applicationContext;
         this.configuration = configuration;
+        this.realizeProvider = realizeProvider;
         this.pluginManager = new PluginLauncherManager(realizeProvider, applicationContext, configuration);
         this.pluginInitializerListenerFactory = new PluginInitializerListenerFactory(applicationContext);
     }
@@ -97,24 +104,14 @@ public class DefaultPluginOperator implements PluginOperator {
             // 开始加载插件
             List<PluginInfo> pluginInfos = pluginManager.loadPlugins();
             if(ObjectUtils.isEmpty(pluginInfos)){
+                startWatchPluginPath();
                 return false;
             }
             // 触发插件初始化监听器
             pluginInitializerListenerFactory.before();
-            boolean isFoundException = false;
-            for (PluginInfo pluginInfo : pluginInfos) {
-                try {
-                    pluginManager.start(pluginInfo.getPluginId());
-                } catch (Exception e){
-                    if(e instanceof PluginDisabledException){
-                        log.info(e.getMessage());
-                        continue;
-                    }
-                    log.error(e.getMessage(), e);
-                    isFoundException = true;
-                }
-            }
+            boolean isFoundException = !startPlugins(pluginInfos);
             isInit.set(true);
+            startWatchPluginPath();
             if(isFoundException){
                 log.error("插件初始化失败");
                 pluginInitializerListenerFactory.failure(new PluginException("插件初始化存在异常"));
@@ -130,6 +127,75 @@ public class DefaultPluginOperator implements PluginOperator {
         }
     }
 
+    /**
+     * 初始化时启动插件. 配置的线程数大于1时, 根据插件依赖关系并行启动
+     * @param pluginInfos 插件信息
+     * @return true 全部启动成功, false 存在启动异常
+     */
+    protected boolean startPlugins(List<PluginInfo> pluginInfos){
+        int threads = configuration.initPluginThreads();
+        if(threads <= 1 || pluginInfos.size() <= 1){
+            boolean success = true;
+            for (PluginInfo pluginInfo : pluginInfos) {
+                if(!initStartPlugin(pluginInfo.getPluginId())){
+                    success = false;
+                }
+            }
+            return success;
+        }
+        log.info("使用[{}]个线程并行启动插件", threads);
+        ParallelPluginStarter pluginStarter = new ParallelPluginStarter(threads, this::initStartPlugin);
+        return pluginStarter.start(pluginInfos, configuration.sortInitPluginIds());
+    }
+
+    /**
+     * 初始化时启动单个插件
+     * @param pluginId 插件id
+     * @return 启动异常返回 false, 否则返回 true
+     */
+    private boolean initStartPlugin(String pluginId){
+        try {
+            pluginManager.start(pluginId);
+            return true;
+        } catch (Exception e){
+            if(e instanceof PluginDisabledException){
+                log.info(e.getMessage());
+                return true;
+            }
+            log.error(e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 插件扫描者为 WatchPluginScanner 时, 开始监听插件目录的变化
+     */
+    private void startWatchPluginPath(){
+        PluginScanner pluginScanner = realizeProvider.getPluginScanner();
+        if(pluginScanner instanceof WatchPluginScanner){
+            ((WatchPluginScanner) pluginScanner).startWatch(new PluginPathChangeListener());
+        }
+    }
+
+    /**
+     * 关闭插件操作者, 停止监听插件目录并释放插件管理者的资源. 不会停止已启动的插件
+     */
+    @Override
+    public void close() {
+        closeQuietly(realizeProvider.getPluginScanner());
+        closeQuietly(pluginManager);
+    }
+
+    private void closeQuietly(Object object){
+        if(object instanceof Closeable){
+            try {
+                ((Closeable) object).close();
+            } catch (Exception e){
+                log.warn("关闭[{}]失败. {}", object.getClass().getName(), e.getMessage(), e);
+            }
+        }
+    }
+
     /**
      * 初始化之前日志打印
      */
@@ -239,6 +305,11 @@ public class DefaultPluginOperator implements PluginOperator {
         return pluginManager.getPluginInfo(pluginId);
     }
 
+    @Override
+    public List<PluginStartupPhase> getStartupPhases(String pluginId) {
+        return pluginManager.getStartupPhases(pluginId);
+    }
+
     /**
      * 卸载插件
      * @param pluginId 插件id
@@ -407,5 +478,58 @@ public class DefaultPluginOperator implements PluginOperator {
         FileUtils.forceMkdir(file);
     }
 
+    /**
+     * 插件目录变化的监听者. 新增或修改插件包时安装或者更新插件, 删除插件包时卸载插件
+     */
+    private class PluginPathChangeListener implements PluginPathListener {
+
+        @Override
+        public void added(Path pluginPath) {
+            installOrUpgrade(pluginPath);
+        }
+
+        @Override
+        public void modified(Path pluginPath) {
+            installOrUpgrade(pluginPath);
+        }
+
+        @Override
+        public void removed(Path pluginPath) {
+            PluginInfo pluginInfo = getPluginInfoByPath(pluginPath);
+            if(pluginInfo == null){
+                return;
+            }
+            try {
+                pluginManager.uninstall(pluginInfo.getPluginId());
+            } catch (Exception e){
+                log.error("插件包[{}]被删除, 卸载插件失败: {}", pluginPath, e.getMessage(), e);
+            }
+        }
+
+        private void installOrUpgrade(Path pluginPath){
+            try {
+                // 插件管理者在插件锁内再次检查已安装的插件, 并忽略自身正在拷贝或刚拷贝的插件包
+                pluginManager.upgradeOfChanged(pluginPath);
+            } catch (Exception e){
+                if(e instanceof PluginDisabledException){
+                    log.info(e.getMessage());
+                    return;
+                }
+                log.error("插件包[{}]变化, 安装或更新插件失败: {}", pluginPath, e.getMessage(), e);
+            }
+        }
+
+        private PluginInfo getPluginInfoByPath(Path pluginPath){
+            Path path = pluginPath.toAbsolutePath().normalize();
+            for (PluginInfo pluginInfo : pluginManager.getPluginInfos()) {
+                String installPath = pluginInfo.getPluginPath();
+                if(!ObjectUtils.isEmpty(installPath)
+                        && Paths.get(installPath).toAbsolutePath().normalize().equals(path)){
+                    return pluginInfo;
+                }
+            }
+            return null;
+        }
+    }
 
 }
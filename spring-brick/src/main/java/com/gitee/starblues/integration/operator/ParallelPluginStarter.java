@@ -0,0 +1,200 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.gitee.starblues.integration.operator;
+
+import com.gitee.starblues.common.DependencyPlugin;
+import com.gitee.starblues.core.PluginInfo;
+import com.gitee.starblues.core.exception.PluginException;
+import com.gitee.starblues.utils.Assert;
+import com.gitee.starblues.utils.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 根据插件依赖关系并行启动插件.
+ * 插件的依赖关系由插件描述中的依赖插件和 sortInitPluginIds 的顺序共同组成,
+ * 只有当插件依赖的插件都启动完成后, 才会启动该插件.
+ *
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class ParallelPluginStarter {
+
+    private final Logger log = LoggerFactory.getLogger(ParallelPluginStarter.class);
+
+    private static final String THREAD_NAME_PREFIX = "plugin-init-";
+
+    private final int threads;
+    private final Predicate<String> pluginStarter;
+
+    /**
+     * 创建并行插件启动者
+     * @param threads 启动线程数
+     * @param pluginStarter 单个插件启动者. 参数为插件id, 返回 false 表示启动出现异常
+     */
+    public ParallelPluginStarter(int threads, Predicate<String> pluginStarter) {
+        this.threads = threads;
+        this.pluginStarter = Assert.isNotNull(pluginStarter, "pluginStarter 不能为空");
+    }
+
+    /**
+     * 启动插件
+     * @param pluginInfos 需要启动的插件信息
+     * @param sortedPluginIds 配置的插件启动顺序
+     * @return true 全部启动成功, false 存在启动异常
+     * @throws PluginException 启动被中断
+     */
+    public boolean start(List<PluginInfo> pluginInfos, List<String> sortedPluginIds) throws PluginException {
+        if(ObjectUtils.isEmpty(pluginInfos)){
+            return true;
+        }
+        Map<String, Set<String>> dependencies = resolveDependencies(pluginInfos, sortedPluginIds);
+        Map<String, List<String>> dependents = new HashMap<>(dependencies.size());
+        Map<String, Integer> remainDependencies = new HashMap<>(dependencies.size());
+        Deque<String> readyPluginIds = new ArrayDeque<>();
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            String pluginId = entry.getKey();
+            Set<String> dependencyIds = entry.getValue();
+            remainDependencies.put(pluginId, dependencyIds.size());
+            for (String dependencyId : dependencyIds) {
+                dependents.computeIfAbsent(dependencyId, k -> new ArrayList<>()).add(pluginId);
+            }
+            if(dependencyIds.isEmpty()){
+                readyPluginIds.add(pluginId);
+            }
+        }
+
+        AtomicBoolean foundException = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, dependencies.size()),
+                new StartThreadFactory());
+        CompletionService<String> completionService = new ExecutorCompletionService<>(executor);
+        Set<String> submittedPluginIds = new HashSet<>(dependencies.size());
+        int finished = 0;
+        int running = 0;
+        try {
+            while (finished < dependencies.size()){
+                while (!readyPluginIds.isEmpty()){
+                    String pluginId = readyPluginIds.poll();
+                    if(!submittedPluginIds.add(pluginId)){
+                        continue;
+                    }
+                    completionService.submit(()->{
+                        if(!pluginStarter.test(pluginId)){
+                            foundException.set(true);
+                        }
+                        return pluginId;
+                    });
+                    running++;
+                }
+                if(running == 0){
+                    // 存在循环依赖, 按顺序取出第一个未启动的插件启动, 由插件启动检查者处理依赖问题
+                    String pluginId = getFirstNotSubmitted(dependencies.keySet(), submittedPluginIds);
+                    log.warn("插件[{}]存在循环依赖, 将尝试直接启动", pluginId);
+                    readyPluginIds.add(pluginId);
+                    continue;
+                }
+                String finishedPluginId = completionService.take().get();
+                running--;
+                finished++;
+                for (String dependent : dependents.getOrDefault(finishedPluginId, Collections.emptyList())) {
+                    int remain = remainDependencies.merge(dependent, -1, Integer::sum);
+                    if(remain == 0){
+                        readyPluginIds.add(dependent);
+                    }
+                }
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new PluginException("并行启动插件被中断", e);
+        } catch (ExecutionException e){
+            throw new PluginException("并行启动插件异常", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return !foundException.get();
+    }
+
+    /**
+     * 解析插件之间的依赖关系
+     * @param pluginInfos 插件信息
+     * @param sortedPluginIds 配置的插件启动顺序
+     * @return key: 插件id, value: 该插件依赖的插件id
+     */
+    private Map<String, Set<String>> resolveDependencies(List<PluginInfo> pluginInfos,
+                                                         List<String> sortedPluginIds){
+        Map<String, Set<String>> dependencies = new LinkedHashMap<>(pluginInfos.size());
+        for (PluginInfo pluginInfo : pluginInfos) {
+            dependencies.put(pluginInfo.getPluginId(), new LinkedHashSet<>());
+        }
+        for (PluginInfo pluginInfo : pluginInfos) {
+            List<DependencyPlugin> dependencyPlugins = pluginInfo.getPluginDescriptor().getDependencyPlugin();
+            if(ObjectUtils.isEmpty(dependencyPlugins)){
+                continue;
+            }
+            Set<String> dependencyIds = dependencies.get(pluginInfo.getPluginId());
+            for (DependencyPlugin dependencyPlugin : dependencyPlugins) {
+                String dependencyId = dependencyPlugin.getId();
+                if(dependencies.containsKey(dependencyId) && !dependencyId.equals(pluginInfo.getPluginId())){
+                    dependencyIds.add(dependencyId);
+                }
+            }
+        }
+        if(!ObjectUtils.isEmpty(sortedPluginIds)){
+            // 配置了启动顺序的插件, 依赖其前一个插件
+            String previousPluginId = null;
+            for (String sortedPluginId : sortedPluginIds) {
+                if(!dependencies.containsKey(sortedPluginId)){
+                    continue;
+                }
+                if(previousPluginId != null && !previousPluginId.equals(sortedPluginId)){
+                    dependencies.get(sortedPluginId).add(previousPluginId);
+                }
+                previousPluginId = sortedPluginId;
+            }
+        }
+        return dependencies;
+    }
+
+    private String getFirstNotSubmitted(Set<String> pluginIds, Set<String> submittedPluginIds){
+        for (String pluginId : pluginIds) {
+            if(!submittedPluginIds.contains(pluginId)){
+                return pluginId;
+            }
+        }
+        throw new PluginException("没有可启动的插件");
+    }
+
+    private static class StartThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, THREAD_NAME_PREFIX + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -18,18 +18,20 @@ package com.gitee.starblues.integration.operator;
 
 import com.gitee.starblues.core.exception.PluginException;
 import com.gitee.starblues.core.PluginInfo;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupPhase;
 import com.gitee.starblues.integration.listener.PluginInitializerListener;
 import com.gitee.starblues.integration.operator.upload.UploadByInputStreamParam;
 import com.gitee.starblues.integration.operator.upload.UploadByMultipartFileParam;
 import com.gitee.starblues.integration.operator.upload.UploadParam;
 
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * 操作插件的接口
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  * @see DefaultPluginOperator
  */
 public interface PluginOperator {
@@ -164,4 +166,15 @@ public interface PluginOperator {
      */
     PluginInfo getPluginInfo(String pluginId);
 
+    /**
+     * 得到插件最近一次启动各个阶段的耗时信息 [适用于 dev、prod 环境]
+     * 包含 ClassLoader 创建、Spring 容器刷新、各个处理器执行等阶段的耗时、cpu 时间、加载的类数量和读取的字节数
+     * @param pluginId 插件id
+     * @return 按开始顺序排序的阶段信息. 插件未启动过时返回空集合
+     * @since 3.0.4
+     */
+    default List<PluginStartupPhase> getStartupPhases(String pluginId){
+        return Collections.emptyList();
+    }
+
 }
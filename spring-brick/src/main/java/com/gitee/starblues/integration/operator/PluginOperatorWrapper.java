@@ -18,12 +18,15 @@ package com.gitee.starblues.integration.operator;
 
 import com.gitee.starblues.core.exception.PluginException;
 import com.gitee.starblues.core.PluginInfo;
+import com.gitee.starblues.core.launcher.plugin.PluginStartupPhase;
 import com.gitee.starblues.integration.IntegrationConfiguration;
 import com.gitee.starblues.integration.listener.PluginInitializerListener;
 import com.gitee.starblues.integration.operator.upload.UploadParam;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
@@ -31,9 +34,9 @@ import java.util.List;
 /**
  * 插件操作包装者
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
-public class PluginOperatorWrapper implements PluginOperator{
+public class PluginOperatorWrapper implements PluginOperator, Closeable {
 
     protected final Logger log = LoggerFactory.getLogger(this.getClass());
 
@@ -158,6 +161,25 @@ public class PluginOperatorWrapper implements PluginOperator{
         return pluginOperator.getPluginInfo(pluginId);
     }
 
+    @Override
+    public List<PluginStartupPhase> getStartupPhases(String pluginId) {
+        if(isDisable()){
+            return Collections.emptyList();
+        }
+        return pluginOperator.getStartupPhases(pluginId);
+    }
+
+    /**
+     * 关闭被包装的插件操作者. 作为 Spring Bean 时, 容器关闭时自动调用
+     * @throws IOException 关闭异常
+     */
+    @Override
+    public void close() throws IOException {
+        if(pluginOperator instanceof Closeable){
+            ((Closeable) pluginOperator).close();
+        }
+    }
+
     /**
      * 是否被禁用
      * @return true 禁用
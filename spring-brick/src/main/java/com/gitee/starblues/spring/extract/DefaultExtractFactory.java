@@ -16,17 +16,27 @@
 
 package com.gitee.starblues.spring.extract;
 
+import com.gitee.starblues.core.launcher.plugin.LazyPluginActivator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.*;
 
 /**
- * 默认的扩展工厂
+ * 默认的扩展工厂.
+ * 设置 LazyPluginActivator 后, 查找指定插件的扩展时先激活延迟启动的该插件, 激活失败时记录日志并按未找到处理;
+ * 未指定插件时只在已启动的插件中查找, 不会激活延迟启动的插件
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class DefaultExtractFactory implements ExtractFactory{
 
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultExtractFactory.class);
+
     private final ExtractFactory target;
 
+    private volatile LazyPluginActivator lazyPluginActivator;
+
     public DefaultExtractFactory() {
         this.target = new DefaultOpExtractFactory();
     }
@@ -35,6 +45,15 @@ public class DefaultExtractFactory implements ExtractFactory{
         return target;
     }
 
+    /**
+     * 设置延迟启动插件的激活者
+     * @param lazyPluginActivator LazyPluginActivator
+     * @since 3.0.4
+     */
+    public void setLazyPluginActivator(LazyPluginActivator lazyPluginActivator) {
+        this.lazyPluginActivator = lazyPluginActivator;
+    }
+
     @Override
     public <T> T getExtractByCoordinate(ExtractCoordinate coordinate) {
         return target.getExtractByCoordinate(coordinate);
@@ -42,6 +61,7 @@ public class DefaultExtractFactory implements ExtractFactory{
 
     @Override
     public <T> T getExtractByCoordinate(String pluginId, ExtractCoordinate coordinate) {
+        activate(pluginId);
         return target.getExtractByCoordinate(pluginId, coordinate);
     }
 
@@ -57,6 +77,7 @@ public class DefaultExtractFactory implements ExtractFactory{
 
     @Override
     public <T> List<T> getExtractByInterClass(String pluginId, Class<T> interfaceClass) {
+        activate(pluginId);
         return target.getExtractByInterClass(pluginId, interfaceClass);
     }
 
@@ -69,4 +90,17 @@ public class DefaultExtractFactory implements ExtractFactory{
     public Map<String, Set<ExtractCoordinate>> getExtractCoordinates() {
         return target.getExtractCoordinates();
     }
+
+    private void activate(String pluginId){
+        LazyPluginActivator activator = this.lazyPluginActivator;
+        if(activator == null || !activator.isPending(pluginId)){
+            return;
+        }
+        try {
+            activator.activate(pluginId);
+        } catch (Exception e){
+            LOG.error("激活插件[{}]失败. {}", pluginId, e.getMessage(), e);
+        }
+    }
+
 }
@@ -28,7 +28,7 @@ import java.util.stream.Collectors;
 /**
  * 默认的可扩展的工厂
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class DefaultOpExtractFactory implements OpExtractFactory {
 
@@ -47,14 +47,9 @@ public class DefaultOpExtractFactory implements OpExtractFactory {
         if(extractObject == null){
             return;
         }
-        Extract extract = getExtract(extractObject);
-        if(extract == null){
-            return;
-        }
         Map<ExtractCoordinate, ExtractWrapper> extractObjects = extractMap.computeIfAbsent(pluginId, k ->
                 new ConcurrentHashMap<>());
-        ExtractWrapper extractWrapper = new ExtractWrapper(extractObject, extract.order());
-        extractObjects.put(new ExtractCoordinate(extract, extractObject.getClass()), extractWrapper);
+        add(extractObjects, extractObject);
     }
 
     @Override
@@ -62,6 +57,27 @@ public class DefaultOpExtractFactory implements OpExtractFactory {
         extractMap.remove(pluginId);
     }
 
+    @Override
+    public void replace(String pluginId, List<Object> extractObjects) {
+        Map<ExtractCoordinate, ExtractWrapper> newExtractObjects = new ConcurrentHashMap<>();
+        for (Object extractObject : extractObjects) {
+            if(extractObject != null){
+                add(newExtractObjects, extractObject);
+            }
+        }
+        // 整体替换, 获取扩展时不会看到新旧版本混合的中间状态
+        extractMap.put(pluginId, newExtractObjects);
+    }
+
+    private void add(Map<ExtractCoordinate, ExtractWrapper> extractObjects, Object extractObject){
+        Extract extract = getExtract(extractObject);
+        if(extract == null){
+            return;
+        }
+        ExtractWrapper extractWrapper = new ExtractWrapper(extractObject, extract.order());
+        extractObjects.put(new ExtractCoordinate(extract, extractObject.getClass()), extractWrapper);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> T getExtractByCoordinate(ExtractCoordinate coordinate) {
@@ -16,10 +16,12 @@
 
 package com.gitee.starblues.spring.extract;
 
+import java.util.List;
+
 /**
  * 可操作的扩展工厂
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public interface OpExtractFactory extends ExtractFactory{
 
@@ -42,4 +44,16 @@ public interface OpExtractFactory extends ExtractFactory{
      */
     void remove(String pluginId);
 
+    /**
+     * 使用新的扩展整体替换插件中的扩展. 用于插件不停机升级时切换新旧版本
+     * @param pluginId 插件id
+     * @param extractObjects 新的扩展对象集合
+     */
+    default void replace(String pluginId, List<Object> extractObjects){
+        remove(pluginId);
+        for (Object extractObject : extractObjects) {
+            add(pluginId, extractObject);
+        }
+    }
+
 }
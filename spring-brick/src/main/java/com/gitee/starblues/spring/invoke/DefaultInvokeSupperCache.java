@@ -16,23 +16,45 @@
 
 package com.gitee.starblues.spring.invoke;
 
+import com.gitee.starblues.core.launcher.plugin.LazyPluginActivator;
 import com.gitee.starblues.spring.ApplicationContext;
 import com.gitee.starblues.spring.SpringBeanFactory;
 import com.gitee.starblues.utils.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * 默认的 InvokeSupperCache
+ * 默认的 InvokeSupperCache.
+ * 设置 LazyPluginActivator 后, 获取指定插件的提供者时先激活延迟启动的该插件, 激活失败时记录日志并按未找到处理;
+ * 未指定插件时只在已启动的插件中查找, 不会激活延迟启动的插件
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public class DefaultInvokeSupperCache implements InvokeSupperCache{
 
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultInvokeSupperCache.class);
+
     private final Map<String, Map<String, SupperCache>> invokeSupplierCache = new ConcurrentHashMap<>();
 
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile LazyPluginActivator lazyPluginActivator;
+
+    /**
+     * 设置延迟启动插件的激活者
+     * @param lazyPluginActivator LazyPluginActivator
+     */
+    public void setLazyPluginActivator(LazyPluginActivator lazyPluginActivator) {
+        this.lazyPluginActivator = lazyPluginActivator;
+    }
+
     @Override
     public Object getSupperBean(String supperKey){
         return getSupperBean(null, supperKey);
@@ -40,31 +62,66 @@ public class DefaultInvokeSupperCache implements InvokeSupperCache{
 
     @Override
     public Object getSupperBean(String pluginId, String supperKey){
-        if(!ObjectUtils.isEmpty(pluginId)){
-            Map<String, SupperCache> cacheMap = invokeSupplierCache.get(pluginId);
-            if(cacheMap == null){
-                return null;
-            }
-            return getSupperBean(cacheMap.get(supperKey));
+        if(ObjectUtils.isEmpty(pluginId)){
+            return findSupperBean(supperKey);
         }
-        for (Map<String, SupperCache> value : invokeSupplierCache.values()) {
-            Object supperBean = getSupperBean(value.get(supperKey));
-            if(supperBean != null){
-                return supperBean;
-            }
+        activate(pluginId);
+        Map<String, SupperCache> cacheMap = invokeSupplierCache.get(pluginId);
+        if(cacheMap == null){
+            return null;
         }
-        return null;
+        return getSupperBean(cacheMap.get(supperKey));
     }
 
     @Override
     public void add(String pluginId, SupperCache cache){
         Map<String, SupperCache> supperCache = invokeSupplierCache.computeIfAbsent(pluginId, k -> new HashMap<>());
         supperCache.put(cache.getSupperKey(), cache);
+        version.incrementAndGet();
     }
 
     @Override
     public void remove(String pluginId){
         invokeSupplierCache.remove(pluginId);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void replace(String pluginId, List<SupperCache> caches) {
+        Map<String, SupperCache> supperCache = new HashMap<>(caches.size());
+        for (SupperCache cache : caches) {
+            supperCache.put(cache.getSupperKey(), cache);
+        }
+        // 整体替换, 调用方不会看到新旧版本混合的中间状态
+        invokeSupplierCache.put(pluginId, supperCache);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    private void activate(String pluginId){
+        LazyPluginActivator activator = this.lazyPluginActivator;
+        if(activator == null || !activator.isPending(pluginId)){
+            return;
+        }
+        try {
+            activator.activate(pluginId);
+        } catch (Exception e){
+            LOG.error("激活插件[{}]失败. {}", pluginId, e.getMessage(), e);
+        }
+    }
+
+    private Object findSupperBean(String supperKey){
+        for (Map<String, SupperCache> value : invokeSupplierCache.values()) {
+            Object supperBean = getSupperBean(value.get(supperKey));
+            if(supperBean != null){
+                return supperBean;
+            }
+        }
+        return null;
     }
 
     private static Object getSupperBean(SupperCache cache){
@@ -16,11 +16,13 @@
 
 package com.gitee.starblues.spring.invoke;
 
+import java.util.List;
 
 /**
  * 插件调用提供者缓存
  * @author starBlues
- * @version 3.0.0
+ * @since 3.0.0
+ * @version 3.0.4
  */
 public interface InvokeSupperCache {
 
@@ -52,6 +54,25 @@ public interface InvokeSupperCache {
      */
     void remove(String pluginId);
 
+    /**
+     * 使用新的提供者整体替换插件的提供者. 用于插件不停机升级时切换新旧版本
+     * @param pluginId 插件id
+     * @param caches 新的提供者缓存集合
+     */
+    default void replace(String pluginId, List<SupperCache> caches){
+        remove(pluginId);
+        for (SupperCache cache : caches) {
+            add(pluginId, cache);
+        }
+    }
 
+    /**
+     * 获取当前提供者缓存的版本号. 每次添加或者移除提供者后版本号都会发生变化.
+     * 调用者可在版本号未变化时复用已获取的提供者, 默认返回 -1 表示不支持版本号
+     * @return 版本号
+     */
+    default long getVersion(){
+        return -1;
+    }
 
 }
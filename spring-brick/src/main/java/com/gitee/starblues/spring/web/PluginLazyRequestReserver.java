@@ -0,0 +1,149 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.gitee.starblues.spring.web;
+
+import com.gitee.starblues.core.descriptor.InsidePluginDescriptor;
+import com.gitee.starblues.core.launcher.plugin.LazyPluginActivator;
+import com.gitee.starblues.core.launcher.plugin.LazyPluginReserver;
+import com.gitee.starblues.integration.IntegrationConfiguration;
+import com.gitee.starblues.utils.MsgUtils;
+import com.gitee.starblues.utils.ObjectUtils;
+import com.gitee.starblues.utils.PluginConfigUtils;
+import com.gitee.starblues.utils.UrlUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 为延迟启动的插件预留 http 访问入口.
+ * 在主程序中注册插件接口路径前缀的占位映射, 第一次请求到达时激活插件, 然后将请求转发到插件注册的接口.
+ * 插件接口路径前缀不包含插件id时, 无法区分插件, 不进行预留
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class PluginLazyRequestReserver implements LazyPluginReserver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PluginLazyRequestReserver.class);
+
+    private static final Method HANDLE_METHOD = ReflectionUtils.findMethod(LazyRequestHandler.class, "handle",
+            HttpServletRequest.class, HttpServletResponse.class);
+
+    private final GenericApplicationContext applicationContext;
+    private final IntegrationConfiguration configuration;
+
+    private final Map<String, RequestMappingInfo> reservedMappings = new ConcurrentHashMap<>();
+
+    private volatile RequestMappingHandlerMapping requestMappingHandlerMapping;
+
+    public PluginLazyRequestReserver(GenericApplicationContext applicationContext,
+                                     IntegrationConfiguration configuration) {
+        this.applicationContext = applicationContext;
+        this.configuration = configuration;
+    }
+
+    @Override
+    public boolean reserve(InsidePluginDescriptor descriptor, LazyPluginActivator activator) {
+        String pluginId = descriptor.getPluginId();
+        if(!configuration.enablePluginIdRestPathPrefix()){
+            return false;
+        }
+        String pathPrefix = PluginConfigUtils.getPluginRestPrefix(configuration, pluginId);
+        if(ObjectUtils.isEmpty(pathPrefix)){
+            return false;
+        }
+        pathPrefix = UrlUtils.joiningUrlPath(pathPrefix);
+        RequestMappingHandlerMapping handlerMapping = getRequestMappingHandlerMapping();
+        RequestMappingInfo mappingInfo = RequestMappingInfo
+                .paths(pathPrefix, pathPrefix + "/**")
+                .options(getBuilderConfiguration(handlerMapping))
+                .build();
+        handlerMapping.registerMapping(mappingInfo, new LazyRequestHandler(descriptor, activator), HANDLE_METHOD);
+        reservedMappings.put(pluginId, mappingInfo);
+        return true;
+    }
+
+    @Override
+    public void release(InsidePluginDescriptor descriptor) {
+        RequestMappingInfo mappingInfo = reservedMappings.remove(descriptor.getPluginId());
+        if(mappingInfo != null){
+            getRequestMappingHandlerMapping().unregisterMapping(mappingInfo);
+        }
+    }
+
+    private static RequestMappingInfo.BuilderConfiguration getBuilderConfiguration(
+            RequestMappingHandlerMapping handlerMapping){
+        // 与主程序 RequestMappingHandlerMapping 使用相同的路径匹配方式
+        RequestMappingInfo.BuilderConfiguration config = new RequestMappingInfo.BuilderConfiguration();
+        if(handlerMapping.getPatternParser() != null){
+            config.setPatternParser(handlerMapping.getPatternParser());
+        } else {
+            config.setPathMatcher(handlerMapping.getPathMatcher());
+        }
+        config.setContentNegotiationManager(handlerMapping.getContentNegotiationManager());
+        return config;
+    }
+
+    private RequestMappingHandlerMapping getRequestMappingHandlerMapping(){
+        if(requestMappingHandlerMapping == null){
+            requestMappingHandlerMapping = applicationContext.getBean(RequestMappingHandlerMapping.class);
+        }
+        return requestMappingHandlerMapping;
+    }
+
+    /**
+     * 占位映射的处理者
+     */
+    public static class LazyRequestHandler {
+
+        private final InsidePluginDescriptor descriptor;
+        private final LazyPluginActivator activator;
+
+        private LazyRequestHandler(InsidePluginDescriptor descriptor, LazyPluginActivator activator) {
+            this.descriptor = descriptor;
+            this.activator = activator;
+        }
+
+        public void handle(HttpServletRequest request, HttpServletResponse response)
+                throws ServletException, IOException {
+            try {
+                activator.activate(descriptor.getPluginId());
+            } catch (Throwable e){
+                LOG.error("激活插件[{}]失败. {}", MsgUtils.getPluginUnique(descriptor), e.getMessage(), e);
+                response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Plugin '"
+                        + descriptor.getPluginId() + "' start failure");
+                return;
+            }
+            // 插件接口已注册, 转发到插件的接口
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            request.getRequestDispatcher(path).forward(request, response);
+        }
+    }
+
+}
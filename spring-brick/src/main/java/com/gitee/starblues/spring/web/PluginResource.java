@@ -21,34 +21,41 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.NestedIOException;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ResourceUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.resource.HttpResource;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.JarURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.jar.JarEntry;
 
 /**
  * 插件资源实现类.主要是对Spring中的抽象的Resource实现.
  * 功能: 主要是获取插件包中的文件资源。
+ * 最后修改时间和 ETag 取自插件包中的文件条目(或文件本身), 以便浏览器进行协商缓存
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
-public class PluginResource implements Resource {
+public class PluginResource implements Resource, HttpResource {
 
     private final static Logger log = LoggerFactory.getLogger(PluginResource.class);
 
     private ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
     private final PluginDescriptor pluginDescriptor;
 
-    private final long lastModified;
+    private final long createTime;
     private final String path;
 
+    private volatile Validator validator;
+
 
     /**
      * 相对Classpath 路径
@@ -62,7 +69,7 @@ public class PluginResource implements Resource {
         }
         this.path = pathToUse;
         this.pluginDescriptor = pluginDescriptor;
-        this.lastModified = System.currentTimeMillis();
+        this.createTime = System.currentTimeMillis();
     }
 
     public void setClassLoader(ClassLoader classLoader) {
@@ -90,7 +97,73 @@ public class PluginResource implements Resource {
 
     @Override
     public long lastModified() throws IOException {
-        return lastModified;
+        return getValidator().lastModified;
+    }
+
+    /**
+     * 得到强 ETag. 无法从资源中获取时返回 null
+     * @return ETag
+     * @throws IOException IOException
+     */
+    public String getETag() throws IOException {
+        return getValidator().eTag;
+    }
+
+    @Override
+    public HttpHeaders getResponseHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        try {
+            String eTag = getETag();
+            if(eTag != null){
+                headers.setETag(eTag);
+            }
+        } catch (IOException e){
+            log.debug(e.getMessage(), e);
+        }
+        return headers;
+    }
+
+    private Validator getValidator() throws IOException {
+        Validator validator = this.validator;
+        if(validator == null){
+            validator = createValidator();
+            this.validator = validator;
+        }
+        return validator;
+    }
+
+    private Validator createValidator() throws IOException {
+        URL url = getURL();
+        if(url == null){
+            return new Validator(createTime, null);
+        }
+        if (ResourceUtils.isFileURL(url)) {
+            File file = getFile();
+            long fileLastModified = file.lastModified();
+            return new Validator(fileLastModified,
+                    toETag(file.length(), fileLastModified));
+        }
+        if(ResourceUtils.isJarURL(url)){
+            URLConnection con = url.openConnection();
+            if(con instanceof JarURLConnection){
+                JarEntry jarEntry = ((JarURLConnection) con).getJarEntry();
+                if(jarEntry != null){
+                    long entryTime = jarEntry.getTime();
+                    if(entryTime <= 0){
+                        entryTime = getFile().lastModified();
+                    }
+                    long crc = jarEntry.getCrc();
+                    String eTag = crc == -1 ? toETag(jarEntry.getSize(), entryTime)
+                            : toETag(jarEntry.getSize(), crc);
+                    return new Validator(entryTime, eTag);
+                }
+            }
+        }
+        return new Validator(createTime, null);
+    }
+
+    private static String toETag(long size, long value){
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(value) + "\"";
     }
 
 
@@ -180,5 +253,18 @@ public class PluginResource implements Resource {
         }
     }
 
+    /**
+     * 资源的协商缓存校验信息
+     */
+    private static class Validator {
+        private final long lastModified;
+        private final String eTag;
+
+        private Validator(long lastModified, String eTag) {
+            this.lastModified = lastModified;
+            this.eTag = eTag;
+        }
+    }
+
 }
 
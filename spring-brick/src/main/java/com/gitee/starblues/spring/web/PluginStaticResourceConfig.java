@@ -26,12 +26,13 @@ import org.springframework.http.CacheControl;
 /**
  * 插件PluginStaticResourceConfig
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class PluginStaticResourceConfig {
 
     public static final String DEFAULT_PLUGIN_STATIC_RESOURCE_PATH_PREFIX = "static-plugin";
     public static final String DEFAULT_INDEX_PAGE_NAME = "index.html";
+    public static final long DEFAULT_CACHE_MAX_BYTES = 1024L * 1024L;
     private static final Logger log = LoggerFactory.getLogger(PluginStaticResourceConfig.class);
 
     /**
@@ -49,6 +50,11 @@ public class PluginStaticResourceConfig {
      */
     private CacheControl cacheControl = CacheControl.noCache();
 
+    /**
+     * 每个插件解析后的静态资源缓存的最大字节数(估算值), 小于等于0 时不缓存
+     */
+    private long cacheMaxBytes = DEFAULT_CACHE_MAX_BYTES;
+
 
     public void logPathPrefix(){
         log.info("插件静态资源访问前缀配置为: /{}/{pluginId}", pathPrefix);
@@ -81,4 +87,12 @@ public class PluginStaticResourceConfig {
         Assert.isNotNull(pathPrefix, "配置 cacheControl 不能为空");
         this.cacheControl = cacheControl;
     }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
 }
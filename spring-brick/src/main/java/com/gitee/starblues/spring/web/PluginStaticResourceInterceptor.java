@@ -0,0 +1,87 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gitee.starblues.spring.web;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.resource.HttpResource;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * 插件静态资源协商缓存拦截器.
+ * ResourceHttpRequestHandler 只校验 If-Modified-Since, 该拦截器使用资源的 ETag 校验 If-None-Match,
+ * 资源未修改时直接返回 304
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class PluginStaticResourceInterceptor implements HandlerInterceptor {
+
+    private final PluginStaticResourceResolver resourceResolver;
+    private final CacheControl cacheControl;
+
+    public PluginStaticResourceInterceptor(PluginStaticResourceResolver resourceResolver,
+                                           CacheControl cacheControl) {
+        this.resourceResolver = resourceResolver;
+        this.cacheControl = cacheControl;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+                             Object handler) throws Exception {
+        String method = request.getMethod();
+        if(!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)){
+            return true;
+        }
+        if(request.getHeader(HttpHeaders.IF_NONE_MATCH) == null){
+            return true;
+        }
+        Resource resource = resourceResolver.findPluginResource(request);
+        if(!(resource instanceof HttpResource)){
+            return true;
+        }
+        HttpHeaders resourceHeaders = ((HttpResource) resource).getResponseHeaders();
+        String eTag = resourceHeaders.getETag();
+        if(eTag == null){
+            return true;
+        }
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        if(!webRequest.checkNotModified(eTag, resource.lastModified())){
+            return true;
+        }
+        // 资源未修改, 已响应 304
+        if(cacheControl != null){
+            String headerValue = cacheControl.getHeaderValue();
+            if(headerValue != null){
+                response.setHeader(HttpHeaders.CACHE_CONTROL, headerValue);
+            }
+        }
+        List<String> vary = resourceHeaders.getVary();
+        if(!vary.isEmpty()){
+            response.setHeader(HttpHeaders.VARY, String.join(", ", vary));
+        }
+        return false;
+    }
+
+}
@@ -23,26 +23,33 @@ import com.gitee.starblues.utils.ObjectUtils;
 import com.gitee.starblues.utils.UrlUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.AbstractResource;
 import org.springframework.core.io.FileUrlResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
 import org.springframework.web.servlet.resource.ResourceResolverChain;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
  * 插件web静态资源Resolver
+ * 客户端支持时, 优先返回预压缩的 .br/.gz 资源。
+ * 解析到的资源按插件缓存, 缓存按估算的字节数限制大小, 超出时淘汰最久未使用的资源
  * @author starBlues
- * @version 3.0.2
+ * @version 3.0.4
  */
 public class PluginStaticResourceResolver extends AbstractResourceResolver {
 
@@ -52,6 +59,16 @@ public class PluginStaticResourceResolver extends AbstractResourceResolver {
 
     private final static Map<String, PluginStaticResource> PLUGIN_RESOURCE_MAP = new ConcurrentHashMap<>();
 
+    /**
+     * 支持的预压缩编码, 按优先级排列。key 为编码, value 为文件后缀
+     */
+    private final static Map<String, String> CONTENT_CODINGS = new LinkedHashMap<>();
+
+    static {
+        CONTENT_CODINGS.put("br", ".br");
+        CONTENT_CODINGS.put("gzip", ".gz");
+    }
+
     private final PluginStaticResourceConfig config;
 
     public PluginStaticResourceResolver(PluginStaticResourceConfig config) {
@@ -64,37 +81,64 @@ public class PluginStaticResourceResolver extends AbstractResourceResolver {
                                                String requestPath, List<? extends Resource> locations,
                                                ResourceResolverChain chain) {
         if(request != null){
-            String requestUri = request.getRequestURI();
-            String formatUri = UrlUtils.format(requestUri);
-            // fix https://gitee.com/starblues/springboot-plugin-framework-parent/issues/I53T9W
-            requestPath = UrlUtils.format(formatUri.replaceFirst(config.getPathPrefix(), ""));
+            requestPath = getRequestPath(request);
+        }
+        PluginStaticResource pluginResource = PLUGIN_RESOURCE_MAP.get(getPluginId(requestPath));
+        if(pluginResource == null){
+            return chain.resolveResource(request, requestPath, locations);
+        }
+        return resolvePluginResource(request, requestPath, pluginResource);
+    }
+
+    /**
+     * 根据请求解析插件静态资源
+     * @param request request
+     * @return 资源。不是插件的资源或者没有发现则返回null
+     */
+    public Resource findPluginResource(HttpServletRequest request){
+        String requestPath = getRequestPath(request);
+        PluginStaticResource pluginResource = PLUGIN_RESOURCE_MAP.get(getPluginId(requestPath));
+        if(pluginResource == null){
+            return null;
         }
+        return resolvePluginResource(request, requestPath, pluginResource);
+    }
+
+    private String getRequestPath(HttpServletRequest request){
+        String requestUri = request.getRequestURI();
+        String formatUri = UrlUtils.format(requestUri);
+        // fix https://gitee.com/starblues/springboot-plugin-framework-parent/issues/I53T9W
+        return UrlUtils.format(formatUri.replaceFirst(config.getPathPrefix(), ""));
+    }
+
+    private String getPluginId(String requestPath){
+        int startOffset = requestPath.indexOf("/");
+        if (startOffset == -1) {
+            return requestPath;
+        } else {
+            return requestPath.substring(0, startOffset);
+        }
+    }
+
+    private Resource resolvePluginResource(HttpServletRequest request, String requestPath,
+                                           PluginStaticResource pluginResource){
         int startOffset = requestPath.indexOf("/");
-        String pluginId = null;
         String partialPath = null;
         if (startOffset == -1) {
-            pluginId = requestPath;
             partialPath = config.getIndexPageName();
         } else {
-            pluginId = requestPath.substring(0, startOffset);
             partialPath = requestPath.substring(startOffset + 1);
         }
 
-        PluginStaticResource pluginResource = PLUGIN_RESOURCE_MAP.get(pluginId);
-
-        if(pluginResource == null){
-            return chain.resolveResource(request, requestPath, locations);
-        }
-
         String key = computeKey(request, requestPath);
         // 先判断缓存中是否存在。
         Resource resource = pluginResource.getCacheResource(key);
         if(resource != null){
             return resource;
         }
-        resource = findResource(pluginResource, partialPath);
+        resource = findResource(request, pluginResource, partialPath);
         if(resource != null){
-            pluginResource.putCacheResource(key, resource);
+            pluginResource.putCacheResource(key, resource, config.getCacheMaxBytes());
             return resource;
         } else {
             // 尝试获取首页页面
@@ -112,15 +156,38 @@ public class PluginStaticResourceResolver extends AbstractResourceResolver {
                 partialPath = partialPath.substring(0, partialPath.indexOf(UrlUtils.PATH_SEPARATOR));
             }
             // 第一级节点
-            resource = findResource(pluginResource, UrlUtils.joiningUrlPath(partialPath, indexPageName));
+            resource = findResource(request, pluginResource, UrlUtils.joiningUrlPath(partialPath, indexPageName));
             if(resource != null){
                 return resource;
             }
             // 根节点
-            return findResource(pluginResource, UrlUtils.joiningUrlPath(UrlUtils.PATH_SEPARATOR, indexPageName));
+            return findResource(request, pluginResource,
+                    UrlUtils.joiningUrlPath(UrlUtils.PATH_SEPARATOR, indexPageName));
         }
     }
 
+    /**
+     * 查找资源。如果客户端接受压缩编码, 并且存在预压缩的同名 .br/.gz 资源, 则返回压缩资源
+     * @param request request
+     * @param pluginResource 插件资源配置Bean
+     * @param partialPath 部分路径
+     * @return 资源。没有发现则返回null
+     */
+    private Resource findResource(HttpServletRequest request, PluginStaticResource pluginResource,
+                                  String partialPath){
+        Resource resource = findResource(pluginResource, partialPath);
+        if(resource == null || request == null){
+            return resource;
+        }
+        for (String coding : getAcceptCodings(request)) {
+            Resource encodedResource = findResource(pluginResource, partialPath + CONTENT_CODINGS.get(coding));
+            if(encodedResource != null){
+                return new PluginEncodedResource(resource, encodedResource, coding);
+            }
+        }
+        return resource;
+    }
+
     private Resource findResource(PluginStaticResource pluginResource, String partialPath){
         // 从classpath 获取资源
         Resource resource = resolveClassPath(pluginResource, partialPath);
@@ -212,7 +279,7 @@ public class PluginStaticResourceResolver extends AbstractResourceResolver {
      */
     protected String computeKey(HttpServletRequest request, String requestPath) {
         StringBuilder key = new StringBuilder(RESOLVED_RESOURCE_CACHE_KEY_PREFIX);
-        key.append(requestPath);
+        key.append(StringUtils.cleanPath(requestPath));
         if (request != null) {
             String codingKey = getContentCodingKey(request);
             if (ObjectUtils.hasText(codingKey)) {
@@ -223,7 +290,7 @@ public class PluginStaticResourceResolver extends AbstractResourceResolver {
     }
 
     /**
-     * 根据请求获取内容code key
+     * 根据请求获取内容code key. 只保留支持的预压缩编码, 避免任意的 Accept-Encoding 值产生新的缓存
      * @param request request
      * @return key
      */
@@ -232,13 +299,62 @@ public class PluginStaticResourceResolver extends AbstractResourceResolver {
         if (!ObjectUtils.hasText(header)) {
             return null;
         }
-        return Arrays.stream(StringUtils.tokenizeToStringArray(header, ","))
-                .map(token -> {
-                    int index = token.indexOf(';');
-                    return (index >= 0 ? token.substring(0, index) : token).trim().toLowerCase();
-                })
-                .sorted()
-                .collect(Collectors.joining(","));
+        return String.join(",", getAcceptCodings(header));
+    }
+
+    /**
+     * 得到客户端接受的预压缩编码, 按支持的编码优先级排列
+     * @param request request
+     * @return 编码集合
+     */
+    private List<String> getAcceptCodings(HttpServletRequest request){
+        String header = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if(!ObjectUtils.hasText(header)){
+            return Collections.emptyList();
+        }
+        return getAcceptCodings(header);
+    }
+
+    /**
+     * 解析 Accept-Encoding 请求头, 得到客户端接受的预压缩编码. 按编码名称完整匹配, q 值为 0 的编码不接受,
+     * 没有列出的编码根据 * 的 q 值决定是否接受
+     * @param header Accept-Encoding 请求头
+     * @return 编码集合, 按支持的编码优先级排列
+     */
+    private static List<String> getAcceptCodings(String header){
+        Map<String, Double> qualities = new HashMap<>();
+        for (String token : header.split(",")) {
+            String[] params = token.split(";");
+            String coding = params[0].trim().toLowerCase();
+            if(coding.isEmpty()){
+                continue;
+            }
+            double quality = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if(param.length() > 1 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q')
+                        && param.charAt(1) == '='){
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e){
+                        quality = 0;
+                    }
+                }
+            }
+            qualities.put(coding, quality);
+        }
+        Double anyQuality = qualities.get("*");
+        List<String> codings = new ArrayList<>(CONTENT_CODINGS.size());
+        for (String coding : CONTENT_CODINGS.keySet()) {
+            Double quality = qualities.get(coding);
+            if(quality == null){
+                quality = anyQuality;
+            }
+            if(quality != null && quality > 0){
+                codings.add(coding);
+            }
+        }
+        return codings;
     }
 
 
@@ -326,6 +442,102 @@ public class PluginStaticResourceResolver extends AbstractResourceResolver {
         PLUGIN_RESOURCE_MAP.remove(pluginId);
     }
 
+    /**
+     * 卸载插件时。仅当当前注册的资源信息属于该插件classloader时才移除。
+     * 插件不停机升级时, 新版本已覆盖注册的资源信息不会被旧版本的卸载移除
+     * @param pluginId 插件id
+     * @param pluginClassLoader 插件classloader
+     */
+    public static synchronized void remove(String pluginId, ClassLoader pluginClassLoader){
+        PluginStaticResource pluginResource = PLUGIN_RESOURCE_MAP.get(pluginId);
+        if(pluginResource == null || pluginResource.getPluginClassLoader() != pluginClassLoader){
+            return;
+        }
+        PLUGIN_RESOURCE_MAP.remove(pluginId);
+    }
+
+    /**
+     * 预压缩的资源。文件名称使用原始资源的名称, 以便正确识别 Content-Type
+     */
+    private static class PluginEncodedResource extends AbstractResource implements HttpResource {
+
+        private final Resource original;
+        private final Resource encoded;
+        private final String coding;
+
+        private PluginEncodedResource(Resource original, Resource encoded, String coding) {
+            this.original = original;
+            this.encoded = encoded;
+            this.coding = coding;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return encoded.getInputStream();
+        }
+
+        @Override
+        public boolean exists() {
+            return encoded.exists();
+        }
+
+        @Override
+        public boolean isReadable() {
+            return encoded.isReadable();
+        }
+
+        @Override
+        public URL getURL() throws IOException {
+            return encoded.getURL();
+        }
+
+        @Override
+        public URI getURI() throws IOException {
+            return encoded.getURI();
+        }
+
+        @Override
+        public File getFile() throws IOException {
+            return encoded.getFile();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return encoded.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return encoded.lastModified();
+        }
+
+        @Override
+        public Resource createRelative(String relativePath) throws IOException {
+            return encoded.createRelative(relativePath);
+        }
+
+        @Override
+        public String getFilename() {
+            return original.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return encoded.getDescription();
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            if(encoded instanceof HttpResource){
+                headers.putAll(((HttpResource) encoded).getResponseHeaders());
+            }
+            headers.add(HttpHeaders.CONTENT_ENCODING, coding);
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            return headers;
+        }
+    }
+
     /**
      * 插件资源解析后的信息
      */
@@ -352,9 +564,9 @@ public class PluginStaticResourceResolver extends AbstractResourceResolver {
         private Set<String> filePaths;
 
         /**
-         * 缓存的资源。key 为资源的可以。值为资源
+         * 缓存的资源。key 为资源的key。值为资源
          */
-        private final Map<String, Resource> cacheResourceMaps = new ConcurrentHashMap<>();
+        private final ResourceCache cacheResourceMaps = new ResourceCache();
 
         PluginDescriptor getPluginDescriptor() {
             return pluginDescriptor;
@@ -393,11 +605,51 @@ public class PluginStaticResourceResolver extends AbstractResourceResolver {
             return cacheResourceMaps.get(key);
         }
 
-        void putCacheResource(String key, Resource resource){
+        void putCacheResource(String key, Resource resource, long maxBytes){
             if(StringUtils.isEmpty(key) || resource == null){
                 return;
             }
-            cacheResourceMaps.put(key, resource);
+            cacheResourceMaps.put(key, resource, maxBytes);
+        }
+    }
+
+    /**
+     * 按字节数限制大小的 LRU 资源缓存。
+     * 缓存的是资源句柄而不是资源内容, 每个条目的大小按 key 长度加上固定开销估算
+     */
+    private static class ResourceCache {
+
+        /**
+         * 每个缓存条目除 key 之外的估算开销(资源对象、map 条目等)
+         */
+        private final static long ENTRY_OVERHEAD_BYTES = 512L;
+
+        private final LinkedHashMap<String, Resource> resources = new LinkedHashMap<>(16, 0.75f, true);
+        private long currentBytes = 0L;
+
+        synchronized Resource get(String key){
+            return resources.get(key);
+        }
+
+        synchronized void put(String key, Resource resource, long maxBytes){
+            long entryBytes = getEntryBytes(key);
+            if(entryBytes > maxBytes){
+                return;
+            }
+            if(resources.put(key, resource) == null){
+                currentBytes = currentBytes + entryBytes;
+            }
+            Iterator<Map.Entry<String, Resource>> iterator = resources.entrySet().iterator();
+            while (currentBytes > maxBytes && iterator.hasNext()){
+                // 淘汰最久未使用的资源
+                Map.Entry<String, Resource> eldest = iterator.next();
+                iterator.remove();
+                currentBytes = currentBytes - getEntryBytes(eldest.getKey());
+            }
+        }
+
+        private static long getEntryBytes(String key){
+            return ENTRY_OVERHEAD_BYTES + 2L * key.length();
         }
     }
 
@@ -17,6 +17,7 @@
 package com.gitee.starblues.spring.web;
 
 import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistration;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -24,29 +25,44 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 /**
  * 插件静态资源webMvc配置
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class PluginStaticResourceWebMvcConfigurer implements WebMvcConfigurer {
 
     private final PluginStaticResourceConfig resourceConfig;
+    private final PluginStaticResourceResolver resourceResolver;
 
     public PluginStaticResourceWebMvcConfigurer(PluginStaticResourceConfig resourceConfig) {
         this.resourceConfig = resourceConfig;
+        this.resourceResolver = new PluginStaticResourceResolver(resourceConfig);
     }
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        String pathPattern = "/" + resourceConfig.getPathPrefix() + "/**";
-        ResourceHandlerRegistration resourceHandlerRegistration = registry.addResourceHandler(pathPattern);
+        ResourceHandlerRegistration resourceHandlerRegistration = registry.addResourceHandler(getPathPattern());
+        resourceHandlerRegistration.setCacheControl(getCacheControl());
+        resourceHandlerRegistration
+                .resourceChain(false)
+                .addResolver(resourceResolver);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new PluginStaticResourceInterceptor(resourceResolver, getCacheControl()))
+                .addPathPatterns(getPathPattern());
+    }
+
+    private String getPathPattern(){
+        return "/" + resourceConfig.getPathPrefix() + "/**";
+    }
+
+    private CacheControl getCacheControl(){
         CacheControl cacheControl = resourceConfig.getCacheControl();
         if(cacheControl != null){
-            resourceHandlerRegistration.setCacheControl(cacheControl);
+            return cacheControl;
         } else {
-            resourceHandlerRegistration.setCacheControl(CacheControl.noStore());
+            return CacheControl.noStore();
         }
-        resourceHandlerRegistration
-                .resourceChain(false)
-                .addResolver(new PluginStaticResourceResolver(resourceConfig));
     }
 
 
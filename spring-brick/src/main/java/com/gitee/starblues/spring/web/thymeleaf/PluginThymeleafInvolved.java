@@ -21,6 +21,7 @@ import com.gitee.starblues.core.launcher.plugin.involved.PluginLaunchInvolved;
 import com.gitee.starblues.integration.IntegrationConfiguration;
 import com.gitee.starblues.spring.SpringPluginHook;
 import com.gitee.starblues.utils.ClassUtils;
+import com.gitee.starblues.utils.MsgUtils;
 import com.gitee.starblues.utils.ObjectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,7 +37,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * 插件 Thymeleaf 注册
  * @author starBlues
- * @version 3.0.0
+ * @version 3.0.4
  */
 public class PluginThymeleafInvolved implements PluginLaunchInvolved {
 
@@ -92,15 +93,22 @@ public class PluginThymeleafInvolved implements PluginLaunchInvolved {
             resolver.setOrder(order);
         }
         resolver.setCheckExistence(true);
-        templateResolvers.add(resolver);
-        if(!pluginTemplateResolver.containsKey(descriptor.getPluginId())){
-            pluginTemplateResolver.put(descriptor.getPluginId(), resolver);
+        // 主程序的模板解析器集合不是线程安全的, 插件并发启动、停止时需同步修改
+        synchronized (templateResolvers){
+            templateResolvers.add(resolver);
         }
+        // 按插件id和版本存储, 不停机升级时新旧版本的模板解析器互不影响
+        pluginTemplateResolver.put(MsgUtils.getPluginUnique(descriptor), resolver);
     }
 
     @Override
     public void close(InsidePluginDescriptor descriptor, ClassLoader classLoader) throws Exception {
-        pluginTemplateResolver.remove(descriptor.getPluginId());
+        ClassLoaderTemplateResolver resolver = pluginTemplateResolver.remove(MsgUtils.getPluginUnique(descriptor));
+        if(resolver != null && templateResolvers != null){
+            synchronized (templateResolvers){
+                templateResolvers.remove(resolver);
+            }
+        }
     }
 
     private SpringTemplateEngine getSpringTemplateEngine(GenericApplicationContext context){
@@ -0,0 +1,149 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.gitee.starblues.core.classloader;
+
+import com.gitee.starblues.utils.UrlUtils;
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * DefaultMainResourceMatcher 单元测试. 逐条比较前缀树与 AntPathMatcher 的匹配结果
+ *
+ * @author starBlues
+ * @since 3.0.4
+ * @version 3.0.4
+ */
+public class DefaultMainResourceMatcherTest extends TestCase {
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            // 字面规则
+            "com/example",
+            "com/example/",
+            // *
+            "com/example/*",
+            "com/*/api",
+            // **
+            "com/**/service",
+            "com/example/**/*Impl",
+            // ?
+            "com/exampl?/api",
+            // 结尾的 /**
+            "com/example/**",
+            "org/**",
+            // 字面前缀为空
+            "**/util",
+            "*/example/**",
+            "**",
+            // 以 / 开头
+            "/com/example/**"
+    );
+
+    private static final List<String> PATHS = Arrays.asList(
+            "com",
+            "com/example",
+            "com/example/",
+            "com/example/api",
+            "com/example/api/",
+            "com/example/api/v1",
+            "com/examplx/api",
+            "com/exampl/api",
+            "com/other/api",
+            "com/service",
+            "com/a/service",
+            "com/a/b/service",
+            "com/example/x/FooImpl",
+            "com/example/FooImpl",
+            "org",
+            "org/util",
+            "com/a/b/util",
+            "util",
+            "net/example/api",
+            "net/sample/api",
+            "/com/example/api",
+            "com/example/Foo.class",
+            "com\\example\\api"
+    );
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Test
+    public void test_singlePattern(){
+        for (String pattern : PATTERNS) {
+            DefaultMainResourceMatcher matcher = newMatcher(Collections.singleton(pattern),
+                    Collections.emptySet());
+            for (String path : PATHS) {
+                boolean expected = antPathMatcher.match(pattern, UrlUtils.formatMatchUrl(path));
+                assertEquals("pattern: " + pattern + ", path: " + path,
+                        Boolean.valueOf(expected), matcher.match(path));
+            }
+        }
+    }
+
+    @Test
+    public void test_allPatterns(){
+        DefaultMainResourceMatcher matcher = newMatcher(new HashSet<>(PATTERNS), Collections.emptySet());
+        for (String path : PATHS) {
+            String url = UrlUtils.formatMatchUrl(path);
+            boolean expected = PATTERNS.stream().anyMatch(pattern -> antPathMatcher.match(pattern, url));
+            assertEquals("path: " + path, Boolean.valueOf(expected), matcher.match(path));
+        }
+    }
+
+    @Test
+    public void test_exclude(){
+        Set<String> includes = new HashSet<>(Arrays.asList("com/example/**", "**/util"));
+        Set<String> excludes = new HashSet<>(Arrays.asList("com/example/*/v1", "com/a/**"));
+        DefaultMainResourceMatcher matcher = newMatcher(includes, excludes);
+        for (String path : PATHS) {
+            String url = UrlUtils.formatMatchUrl(path);
+            boolean expected = includes.stream().anyMatch(pattern -> antPathMatcher.match(pattern, url))
+                    && excludes.stream().noneMatch(pattern -> antPathMatcher.match(pattern, url));
+            assertEquals("path: " + path, Boolean.valueOf(expected), matcher.match(path));
+        }
+    }
+
+    @Test
+    public void test_empty(){
+        DefaultMainResourceMatcher matcher = newMatcher(Collections.emptySet(), Collections.emptySet());
+        assertEquals(Boolean.FALSE, matcher.match("com/example/api"));
+        matcher = newMatcher(Collections.singleton("**"), Collections.emptySet());
+        assertEquals(Boolean.FALSE, matcher.match(""));
+    }
+
+    private static DefaultMainResourceMatcher newMatcher(Set<String> includes, Set<String> excludes){
+        return new DefaultMainResourceMatcher(new MainResourcePatternDefiner() {
+            @Override
+            public Set<String> getIncludePatterns() {
+                return includes;
+            }
+
+            @Override
+            public Set<String> getExcludePatterns() {
+                return excludes;
+            }
+        });
+    }
+
+}
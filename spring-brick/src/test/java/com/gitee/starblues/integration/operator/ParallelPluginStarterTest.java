@@ -0,0 +1,107 @@
+/**
+ * Copyright [2019-2022] [starBlues]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.gitee.starblues.integration.operator;
+
+import com.gitee.starblues.common.DependencyPlugin;
+import com.gitee.starblues.core.PluginInfo;
+import com.gitee.starblues.core.descriptor.DefaultDependencyPlugin;
+import com.gitee.starblues.core.descriptor.PluginDescriptor;
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.*;
+
+import static org.powermock.api.mockito.PowerMockito.*;
+
+/**
+ * 测试 ParallelPluginStarter
+ *
+ * @author starBlues
+ * @version 3.0.4
+ */
+@RunWith(PowerMockRunner.class)
+public class ParallelPluginStarterTest extends TestCase {
+
+    @Test
+    public void test_start_dependencyOrder(){
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        ParallelPluginStarter starter = new ParallelPluginStarter(4, pluginId -> {
+            started.add(pluginId);
+            return true;
+        });
+        List<PluginInfo> pluginInfos = Arrays.asList(
+                getPluginInfo("c", "b"),
+                getPluginInfo("b", "a"),
+                getPluginInfo("a"),
+                getPluginInfo("d")
+        );
+        assertTrue(starter.start(pluginInfos, null));
+        assertEquals(4, started.size());
+        assertTrue(started.indexOf("a") < started.indexOf("b"));
+        assertTrue(started.indexOf("b") < started.indexOf("c"));
+    }
+
+    @Test
+    public void test_start_sortedPluginIds(){
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        ParallelPluginStarter starter = new ParallelPluginStarter(4, pluginId -> {
+            started.add(pluginId);
+            return true;
+        });
+        List<PluginInfo> pluginInfos = Arrays.asList(
+                getPluginInfo("a"),
+                getPluginInfo("b"),
+                getPluginInfo("c")
+        );
+        assertTrue(starter.start(pluginInfos, Arrays.asList("c", "b", "a")));
+        assertEquals(Arrays.asList("c", "b", "a"), started);
+    }
+
+    @Test
+    public void test_start_failureAndCycle(){
+        List<String> started = Collections.synchronizedList(new ArrayList<>());
+        ParallelPluginStarter starter = new ParallelPluginStarter(2, pluginId -> {
+            started.add(pluginId);
+            return !"b".equals(pluginId);
+        });
+        List<PluginInfo> pluginInfos = Arrays.asList(
+                getPluginInfo("a", "b"),
+                getPluginInfo("b", "a"),
+                getPluginInfo("c")
+        );
+        assertFalse(starter.start(pluginInfos, null));
+        assertEquals(3, started.size());
+    }
+
+    private PluginInfo getPluginInfo(String pluginId, String... dependencyIds){
+        List<DependencyPlugin> dependencyPlugins = new ArrayList<>();
+        for (String dependencyId : dependencyIds) {
+            DefaultDependencyPlugin dependencyPlugin = new DefaultDependencyPlugin();
+            dependencyPlugin.setId(dependencyId);
+            dependencyPlugins.add(dependencyPlugin);
+        }
+        PluginDescriptor descriptor = mock(PluginDescriptor.class);
+        when(descriptor.getDependencyPlugin()).thenReturn(dependencyPlugins);
+        PluginInfo pluginInfo = mock(PluginInfo.class);
+        when(pluginInfo.getPluginId()).thenReturn(pluginId);
+        when(pluginInfo.getPluginDescriptor()).thenReturn(descriptor);
+        return pluginInfo;
+    }
+
+}